@@ -1,10 +1,14 @@
 import net.PlayerClient;
 import net.PlayerFactory;
+import net.ScotlandYardLocalModel;
 import player.RandomPlayerFactory;
 
 import client.application.*;
+import client.network.PlayerClientHost;
+import client.network.StreamMessenger;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.*;
@@ -22,6 +26,13 @@ import java.util.concurrent.*;
  * things such as  ab1234 and cd5678. Notice that the same ID might be
  * playing more than once. You should replace these with your actual
  * University of Bristol student IDs.
+ * To play several games at once from the same process, set the
+ * number of games and, optionally, the number of I/O and AI threads:
+ * <pre>
+ *   java -Dgames=32 -DioThreads=2 -DaiThreads=4 PlayerService localhost 8122 ab1234 cd5678
+ * </pre>
+ * Setting scotlandyard.record to a directory records the Moves of this
+ * service's players in each game for GameExporter.
  */
 public class PlayerService {
     public static void main(String[] args) throws IOException {
@@ -35,9 +46,31 @@ public class PlayerService {
         }
 
         // TODO: This factory should be replaced with a clever AI.
-        PlayerFactory factory = new RandomPlayerFactory();
+        PlayerFactory factory = RecordingPlayerFactory.wrap(new RandomPlayerFactory());
+
+        int games = Integer.getInteger("games", 1);
+        if (games > 1) {
+            int ioThreads = Integer.getInteger("ioThreads", 1);
+            int aiThreads = Integer.getInteger("aiThreads", Runtime.getRuntime().availableProcessors());
+            PlayerClientHost clientHost = new PlayerClientHost(ioThreads, aiThreads);
+            List<Future<?>> results = new ArrayList<Future<?>>();
+            for (int i = 0; i < games; i++) {
+                results.add(clientHost.connect(host, port, studentIds,
+                                               RecordingPlayerFactory.wrap(new RandomPlayerFactory())));
+            }
+            for (Future<?> result : results) {
+                try {
+                    result.get();
+                } catch (Exception e) {
+                    System.err.println("Error playing game :" + e);
+                }
+            }
+            clientHost.close();
+            return;
+        }
 
-        PlayerClient client = new PlayerClient(host, port, studentIds, factory);
+        PlayerClient client = new PlayerClient(new StreamMessenger(host, port), studentIds,
+                                               new ScotlandYardLocalModel(), factory);
         client.run();
     }
 }
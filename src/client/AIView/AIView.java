@@ -218,7 +218,7 @@ public class AIView extends AnimatablePanel implements ActionListener {
     @Override
     public void animationCompleted() {
         if (!onTreeView) {
-            threadCom.putUpdate("show_route", new ArrayList<RouteHint>());
+            threadCom.putUpdate(Update.SHOW_ROUTE, new ArrayList<RouteHint>());
             graphHandler.cleanTree();
         } else {
             graphHandler.finishTreeBuild();
@@ -7,6 +7,7 @@ import java.util.*;
 import javax.swing.SwingWorker;
 import java.awt.Color;
 import client.application.ThreadCommunicator;
+import client.application.Update;
 
 import scotlandyard.*;
 
@@ -42,7 +43,7 @@ public class GraphHandler {
         protected void done() {
             try {
                 List<RouteHint> hints = get();
-                if (threadCom != null && hints.size() != 0) threadCom.putUpdate("show_route", hints);
+                if (threadCom != null && hints.size() != 0) threadCom.putUpdate(Update.SHOW_ROUTE, hints);
             } catch (Exception ex) {
                 System.err.println(ex);
             }
@@ -122,14 +123,16 @@ public class GraphHandler {
         return treeNode;
     }
 
+    // The tree can be evicted from while it is walked, so nodes whose
+    // location is gone are skipped.
     public synchronized void selectNodes(TreeNode treeNode) {
         if (treeNode != null) {
-            synchronized (treeNode) {
-                for (TreeNode treeNodeRep : treeNode.getChildren()) {
-                    Node n = getNode(treeNodeRep.getPlayerLocation());
-                    n.setSelected(true);
-                    selectNodes(treeNodeRep);
-                }
+            for (TreeNode treeNodeRep : treeNode.getChildren()) {
+                Integer location = treeNodeRep.getPlayerLocation();
+                if (location == null) continue;
+                Node n = getNode(location);
+                n.setSelected(true);
+                selectNodes(treeNodeRep);
             }
         }
     }
@@ -194,69 +197,70 @@ public class GraphHandler {
 
     private synchronized List<RouteHint> buildTree(AnimatablePanel panel, TreeNode treeNode, Double xStart, Double width, Double y, Node parent, boolean rebuilding, boolean bestChild) {
         if (treeNode == null) return new ArrayList<RouteHint>();
-        synchronized (treeNode) {
-            //Spiders
-            List<RouteHint> allHints = new ArrayList<RouteHint>();
-            List<Integer> locs = new ArrayList<Integer>();
-
-            TreeNode treeParent = treeNode.getParent();
-            if (treeParent != null) {
-                Integer prevLocation = treeParent.getPlayerLocation();
-                Integer location = treeNode.getMoveLocation();
-
-                if (location != null && prevLocation != null) {
-                    locs.add(prevLocation);
-                    locs.add(location);
-
-                    Color c = new Color(0,109,209,255);
-                    if (treeNode.getPlayer().equals(Colour.Blue)) c = new Color(30,30,30,255);
-                    RouteHint hint = new RouteHint(locs, c);
-                    if (!prevContains(hint)) {
-                        allHints.add(hint);
-                        prev.add(hint);
-                    }
+        Integer playerLocation = treeNode.getPlayerLocation();
+        if (playerLocation == null) return new ArrayList<RouteHint>();
+        //Spiders
+        List<RouteHint> allHints = new ArrayList<RouteHint>();
+        List<Integer> locs = new ArrayList<Integer>();
+
+        TreeNode treeParent = treeNode.getParent();
+        if (treeParent != null) {
+            Integer prevLocation = treeParent.getPlayerLocation();
+            Integer location = treeNode.getMoveLocation();
+
+            if (location != null && prevLocation != null) {
+                locs.add(prevLocation);
+                locs.add(location);
+
+                Color c = new Color(0,109,209,255);
+                if (Colour.Blue.equals(treeNode.getPlayer())) c = new Color(30,30,30,255);
+                RouteHint hint = new RouteHint(locs, c);
+                if (!prevContains(hint)) {
+                    allHints.add(hint);
+                    prev.add(hint);
                 }
             }
-            //Tree
-            Double x =  xStart + (width / 2.0);
-            Node node = treeMap.get(treeNode);
-            if (node == null) {
-                node = getNode(treeNode.getPlayerLocation());
-
-                if (node.inTree()){
-                    node = new Node(node.getTrueX(), node.getTrueY(), node.getTrueZ(), node.getTrueColor(), node.location());
-                    allNodes.add(node);
-                }
-                node.setAnimators(panel.createDelayedAnimator(node.getX(), x, 1.0), panel.createDelayedAnimator(node.getY(), y, 1.0), panel.createDelayedAnimator(node.getZ(), 165.0, 1.0));
-                node.forwardAnimators(1.0);//if (rebuilding)
-                node.setTree(true);
-                node.setSelected(true);
-                if (parent != null)  {
-                    Edge<Node> e = new Edge<Node>(node, parent);
-                    e.setSelected(true);
-                    e.setInTree(true);
-                    addEdge(e);
-                    node.setParent(parent);
-                }
+        }
+        //Tree
+        Double x =  xStart + (width / 2.0);
+        Node node = treeMap.get(treeNode);
+        if (node == null) {
+            node = getNode(playerLocation);
+
+            if (node.inTree()){
+                node = new Node(node.getTrueX(), node.getTrueY(), node.getTrueZ(), node.getTrueColor(), node.location());
+                allNodes.add(node);
             }
-
-            if (bestChild) node.setBest(true);
-            else node.setBest(false);
-
-            TreeNode bestChildTreeNode = treeNode.getBestChild();
-            int bestIndex = treeNode.getChildren().indexOf(bestChildTreeNode);
-            int size = Math.min(treeNode.getChildren().size(), 4);
-            width = width / size;
-            allHints.addAll(buildTree(panel, bestChildTreeNode, xStart + (width * Math.min(bestIndex, 3)), width, y + 80, node, rebuilding, bestChild));
-            if (bestIndex >= size) size--;
-            for (int i = 0; i < size; i++) {
-                TreeNode treeNodeRep = treeNode.getChildren().get(i);
-                if (treeNodeRep == bestChildTreeNode) continue;
-                allHints.addAll(buildTree(panel, treeNodeRep, xStart + (width * i), width, y + 80, node, rebuilding, false));
+            node.setAnimators(panel.createDelayedAnimator(node.getX(), x, 1.0), panel.createDelayedAnimator(node.getY(), y, 1.0), panel.createDelayedAnimator(node.getZ(), 165.0, 1.0));
+            node.forwardAnimators(1.0);//if (rebuilding)
+            node.setTree(true);
+            node.setSelected(true);
+            if (parent != null)  {
+                Edge<Node> e = new Edge<Node>(node, parent);
+                e.setSelected(true);
+                e.setInTree(true);
+                addEdge(e);
+                node.setParent(parent);
             }
+        }
 
-            return allHints;
+        if (bestChild) node.setBest(true);
+        else node.setBest(false);
+
+        TreeNode bestChildTreeNode = treeNode.getBestChild();
+        List<TreeNode> children = treeNode.getChildren();
+        int bestIndex = children.indexOf(bestChildTreeNode);
+        int size = Math.min(children.size(), 4);
+        width = width / size;
+        allHints.addAll(buildTree(panel, bestChildTreeNode, xStart + (width * Math.min(bestIndex, 3)), width, y + 80, node, rebuilding, bestChild));
+        if (bestIndex >= size) size--;
+        for (int i = 0; i < size; i++) {
+            TreeNode treeNodeRep = children.get(i);
+            if (treeNodeRep.equals(bestChildTreeNode)) continue;
+            allHints.addAll(buildTree(panel, treeNodeRep, xStart + (width * i), width, y + 80, node, rebuilding, false));
         }
+
+        return allHints;
     }
 
     private synchronized boolean prevContains(RouteHint route) {
@@ -5,6 +5,7 @@ import scotlandyard.*;
 import java.awt.*;
 import java.awt.image.*;
 import java.io.*;
+import java.util.concurrent.*;
 import javax.imageio.*;
 
 /**
@@ -15,6 +16,7 @@ public class ImgToASCII {
   
     private BufferedImage originalImage;
     private BufferedImage greyscaleImage;
+    private int[] greyLevels;
     private Dimension panelSize;
     private final Dimension charSize = new Dimension(7, 13);
     private int x, y;
@@ -37,9 +39,33 @@ public class ImgToASCII {
         g.drawImage(originalImage, 0, 0, null);
         RescaleOp op = new RescaleOp(1.0f, 10.0f, null);
         greyscaleImage = op.filter(greyscaleImage, greyscaleImage);
+        greyLevels = greyLevels(greyscaleImage.getColorModel());
         calcDimensions();
     }
     
+    // Constructs a new ImgToASCII object that shares the greyscale image of another.
+    // @param source the ImgToASCII object whose greyscale image is to be shared.
+    // @param panelSize the size in pixels of the output image (string).
+    private ImgToASCII(ImgToASCII source, Dimension panelSize) {
+        this.panelSize = panelSize;
+        output = new String();
+        originalImage = source.originalImage;
+        greyscaleImage = source.greyscaleImage;
+        greyLevels = source.greyLevels;
+        calcDimensions();
+    }
+    
+    /**
+     * Returns a new ImgToASCII object for a different output size,
+     * without converting the image to greyscale again.
+     *
+     * @param panelSize the size in pixels of the output image (string).
+     * @return a new ImgToASCII object for the specified size.
+     */
+    public ImgToASCII resize(Dimension panelSize) {
+        return new ImgToASCII(this, panelSize);
+    }
+    
     /**
      * Returns the ASCII representation of the image as a String.
      * 
@@ -71,37 +97,89 @@ public class ImgToASCII {
     /**
      * Coverts the image to ASCII. It is a separate method as
      * it can take a long time to convert large images.
+     * Rows of blocks are converted in parallel.
      */
     public void convert() {
-        for (int y = 0; y < greyscaleImage.getHeight(); y += this.y) {
-            for (int x = 0; x < greyscaleImage.getWidth(); x += this.x) {
-                int averageColour = getAverage(x, y);
-                char asciiChar = getChar(averageColour);
-                output += Character.toString(asciiChar);
-            }
-            output += "\n";
-        }
+        int rows = (greyscaleImage.getHeight() + this.y - 1) / this.y;
+        String[] lines = new String[rows];
+        ForkJoinPool.commonPool().invoke(new RowTask(lines, 0, rows));
+        StringBuilder builder = new StringBuilder(rows * (lines.length > 0 ? lines[0].length() + 1 : 1));
+        for (String line : lines) builder.append(line).append('\n');
+        output = builder.toString();
     }
     
     // Calculates the size of the blocks in the image.
     private void calcDimensions() {
-        x = (int) Math.floor((greyscaleImage.getWidth() * charSize.width) / panelSize.width);
-        y = (int) Math.floor((greyscaleImage.getHeight() * charSize.height) / panelSize.height);
+        x = Math.max(1, (int) Math.floor((greyscaleImage.getWidth() * charSize.width) / panelSize.width));
+        y = Math.max(1, (int) Math.floor((greyscaleImage.getHeight() * charSize.height) / panelSize.height));
+    }
+    
+    // Returns the sRGB grey level of every sample in a greyscale image.
+    // The samples of a TYPE_BYTE_GRAY image are linear, so they are mapped
+    // to the same levels getRGB(x, y) gives.
+    // @param colorModel the ColorModel of the greyscale image.
+    // @return the sRGB grey level for each sample value.
+    private static int[] greyLevels(ColorModel colorModel) {
+        int[] levels = new int[256];
+        for (int sample = 0; sample < levels.length; sample++) levels[sample] = colorModel.getRGB(sample) & 0xFF;
+        return levels;
+    }
+    
+    // Converts a single row of blocks to ASCII.
+    // The grey values are read straight from the image's DataBuffer and
+    // mapped to sRGB levels.
+    // @param row the index of the row of blocks.
+    // @return the ASCII characters for the row.
+    private String convertRow(int row) {
+        Raster raster = greyscaleImage.getRaster();
+        ComponentSampleModel model = (ComponentSampleModel) raster.getSampleModel();
+        byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+        int stride = model.getScanlineStride();
+        int offset = model.getOffset(-raster.getSampleModelTranslateX(), -raster.getSampleModelTranslateY());
+        int width = greyscaleImage.getWidth();
+        int height = greyscaleImage.getHeight();
+        int yStart = row * this.y;
+        int yEnd = Math.min(yStart + this.y, height);
+        StringBuilder line = new StringBuilder(width / this.x + 1);
+        for (int xStart = 0; xStart < width; xStart += this.x) {
+            int xEnd = Math.min(xStart + this.x, width);
+            int runningTotal = 0;
+            for (int y = yStart; y < yEnd; y++) {
+                int index = offset + y * stride;
+                for (int x = xStart; x < xEnd; x++) {
+                    runningTotal += greyLevels[data[index + x] & 0xFF];
+                }
+            }
+            int count = (yEnd - yStart) * (xEnd - xStart);
+            line.append(getChar(runningTotal / count));
+        }
+        return line.toString();
     }
     
-    // Calculates the grey scale value of a single block.
-    private int getAverage(int x, int y) {
-        int runningTotal = 0;
-        int count = 0;
-        int yMax = y + this.y, xMax = x + this.x;
-        for (; y < yMax && y < greyscaleImage.getHeight(); y++) {
-            for (; x < xMax && x < greyscaleImage.getWidth(); x++) {
-                int colour = greyscaleImage.getRGB(x, y) & 0xFF;
-                runningTotal += colour;
-                count++;
+    // A task to convert a range of rows, splitting the range
+    // between Threads in the ForkJoinPool.
+    private class RowTask extends RecursiveAction {
+        
+        private static final long serialVersionUID = 2047693571092238153L;
+        
+        private final String[] lines;
+        private final int start, end;
+        
+        public RowTask(String[] lines, int start, int end) {
+            this.lines = lines;
+            this.start = start;
+            this.end = end;
+        }
+        
+        @Override
+        protected void compute() {
+            if (end - start <= 4) {
+                for (int row = start; row < end; row++) lines[row] = convertRow(row);
+            } else {
+                int middle = (start + end) / 2;
+                invokeAll(new RowTask(lines, start, middle), new RowTask(lines, middle, end));
             }
         }
-        return runningTotal / count;
     }
     
     // Returns the correct character for a block with a 
@@ -0,0 +1,209 @@
+package client.algorithms;
+
+import scotlandyard.*;
+import client.model.*;
+
+import java.util.*;
+
+/**
+ * A class to find which nodes a player can reach in 1, 2 or 3 moves.
+ * The nodes reachable from every node with every set of transport types are
+ * worked out once and kept as bitsets of longs, so asking whether a
+ * detective can reach Mr X is a few bitwise operations instead of a route
+ * search. A player is assumed to be able to use any transport they have a
+ * Ticket for on every move, and other players are not treated as blocking
+ * a route, so the sets can hold more nodes than the player can really reach.
+ */
+
+public class Reachability {
+
+    public static final int kMaxSteps = 3;
+
+    private static final int kRouteSets = 1 << Route.values().length;
+    public static final int kAllRoutes = kRouteSets - 1;
+
+    private static Graph<Integer, Route> lastGraph = null;
+    private static Reachability lastReachability = null;
+
+    private final int words;
+    private final long[][][][] reachable;
+
+    /**
+     * Constructs a new Reachability object.
+     *
+     * @param graph the Graph associated with the game.
+     */
+    public Reachability(Graph<Integer, Route> graph) {
+        int maxNode = 0;
+        for (Node<Integer> node : graph.getNodes()) maxNode = Math.max(maxNode, node.data());
+        this.words = (maxNode >> 6) + 1;
+        this.reachable = new long[kMaxSteps][maxNode + 1][kRouteSets][];
+        for (int node = 0; node <= maxNode; node++) {
+            for (int routes = 0; routes < kRouteSets; routes++) reachable[0][node][routes] = new long[words];
+        }
+        for (Node<Integer> node : graph.getNodes()) {
+            int location = node.data();
+            for (Edge<Integer, Route> edge : graph.getEdges(location)) {
+                int bit = 1 << edge.data().ordinal();
+                int target = edge.other(location);
+                for (int routes = 0; routes < kRouteSets; routes++) {
+                    if ((routes & bit) != 0) add(reachable[0][location][routes], target);
+                }
+            }
+        }
+        for (int step = 1; step < kMaxSteps; step++) {
+            for (int node = 0; node <= maxNode; node++) {
+                for (int routes = 0; routes < kRouteSets; routes++) {
+                    long[] set = reachable[step - 1][node][routes].clone();
+                    long[] previous = reachable[step - 1][node][routes];
+                    for (int word = 0; word < words; word++) {
+                        for (long bits = previous[word]; bits != 0; bits &= bits - 1) {
+                            int next = (word << 6) + Long.numberOfTrailingZeros(bits);
+                            or(set, reachable[0][next][routes]);
+                        }
+                    }
+                    reachable[step][node][routes] = set;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the Reachability of a Graph, working it out only the first time
+     * it is asked for.
+     *
+     * @param graph the Graph associated with the game.
+     * @return the Reachability of the Graph.
+     */
+    public static synchronized Reachability of(Graph<Integer, Route> graph) {
+        if (graph != lastGraph) {
+            lastReachability = new Reachability(graph);
+            lastGraph = graph;
+        }
+        return lastReachability;
+    }
+
+    /**
+     * Returns the set of transport types a player's Tickets let them use,
+     * as a bit for each Route. A secret Ticket can be used on any Route.
+     *
+     * @param tickets the Map of Tickets the player has.
+     * @return the set of transport types the player can use.
+     */
+    public static int routes(Map<Ticket, Integer> tickets) {
+        if (count(tickets, Ticket.Secret) > 0) return kAllRoutes;
+        int routes = 0;
+        if (count(tickets, Ticket.Taxi) > 0) routes |= 1 << Route.Taxi.ordinal();
+        if (count(tickets, Ticket.Bus) > 0) routes |= 1 << Route.Bus.ordinal();
+        if (count(tickets, Ticket.Underground) > 0) routes |= 1 << Route.Underground.ordinal();
+        return routes;
+    }
+
+    /**
+     * Returns the nodes that can be reached from a node in at most a number
+     * of moves. The array must not be changed.
+     *
+     * @param location the node to start from.
+     * @param routes the set of transport types that can be used, from routes.
+     * @param steps the number of moves, from 1 to kMaxSteps.
+     * @return the bitset of nodes that can be reached.
+     */
+    public long[] getReachable(int location, int routes, int steps) {
+        return reachable[steps - 1][location][routes];
+    }
+
+    /**
+     * Returns true if a player can reach a node in at most a number of moves.
+     *
+     * @param player the player.
+     * @param location the node to reach.
+     * @param steps the number of moves, from 1 to kMaxSteps.
+     * @return true if the player can reach the node.
+     */
+    public boolean canReach(GamePlayer player, int location, int steps) {
+        return contains(getReachable(player.location(), routes(player.tickets()), steps), location);
+    }
+
+    /**
+     * Returns the nodes any detective can reach in at most a number of moves.
+     *
+     * @param players the List of players in the game.
+     * @param steps the number of moves, from 1 to kMaxSteps.
+     * @return the bitset of nodes a detective can reach.
+     */
+    public long[] getThreats(List<GamePlayer> players, int steps) {
+        long[] threats = new long[words];
+        for (GamePlayer player : players) {
+            if (player.colour().equals(Colour.Black)) continue;
+            or(threats, getReachable(player.location(), routes(player.tickets()), steps));
+        }
+        return threats;
+    }
+
+    /**
+     * Returns true if any detective can reach Mr X in at most a number of moves.
+     *
+     * @param players the List of players in the game.
+     * @param steps the number of moves, from 1 to kMaxSteps.
+     * @return true if Mr X can be reached.
+     */
+    public boolean isThreatened(List<GamePlayer> players, int steps) {
+        int mrXLocation = ModelHelper.getPlayerOfColour(players, Colour.Black).location();
+        if (mrXLocation <= 0) return false;
+        for (GamePlayer player : players) {
+            if (player.colour().equals(Colour.Black)) continue;
+            if (player.location() == mrXLocation || canReach(player, mrXLocation, steps)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns true if Mr X can move to a node that no detective can reach
+     * in one move.
+     *
+     * @param players the List of players in the game.
+     * @return true if Mr X has a safe node to escape to.
+     */
+    public boolean hasEscape(List<GamePlayer> players) {
+        GamePlayer mrX = ModelHelper.getPlayerOfColour(players, Colour.Black);
+        if (mrX.location() <= 0) return true;
+        long[] escapes = getReachable(mrX.location(), routes(mrX.tickets()), 1);
+        long[] threats = getThreats(players, 1);
+        for (GamePlayer player : players) {
+            if (!player.colour().equals(Colour.Black)) add(threats, player.location());
+        }
+        for (int word = 0; word < words; word++) {
+            if ((escapes[word] & ~threats[word]) != 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns true if a bitset holds a node.
+     *
+     * @param set the bitset.
+     * @param location the node.
+     * @return true if the bitset holds the node.
+     */
+    public static boolean contains(long[] set, int location) {
+        return location >= 0 && (location >> 6) < set.length && (set[location >> 6] & (1L << location)) != 0;
+    }
+
+    // Adds a node to a bitset.
+    private static void add(long[] set, int location) {
+        set[location >> 6] |= 1L << location;
+    }
+
+    // Adds every node of one bitset to another.
+    private static void or(long[] set, long[] other) {
+        for (int word = 0; word < set.length; word++) set[word] |= other[word];
+    }
+
+    // Returns the number of a Ticket in a Map, or 0 if it is not there.
+    private static int count(Map<Ticket, Integer> tickets, Ticket ticket) {
+        Integer count = tickets.get(ticket);
+        if (count == null) return 0;
+        return count;
+    }
+
+}
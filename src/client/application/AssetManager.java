@@ -0,0 +1,116 @@
+package client.application;
+
+import java.awt.*;
+import java.awt.image.*;
+import java.net.URL;
+import java.util.*;
+import java.util.concurrent.*;
+import javax.imageio.*;
+
+/**
+ * A class to decode images on background Threads and cache them.
+ * Images are converted to match the screen's GraphicsConfiguration
+ * so they can be drawn without further conversion.
+ */
+
+public class AssetManager {
+
+    private static AssetManager shared = null;
+
+    private final ExecutorService executor;
+    private final Map<String, Future<BufferedImage>> images;
+    private final GraphicsConfiguration config;
+
+    /**
+     * Returns the AssetManager shared by the whole application.
+     *
+     * @return the shared AssetManager.
+     */
+    public static synchronized AssetManager shared() {
+        if (shared == null) shared = new AssetManager();
+        return shared;
+    }
+
+    /**
+     * Constructs a new AssetManager object.
+     */
+    public AssetManager() {
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "AssetLoader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        images = new ConcurrentHashMap<String, Future<BufferedImage>>();
+        if (GraphicsEnvironment.isHeadless()) {
+            config = null;
+        } else {
+            config = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                                        .getDefaultScreenDevice().getDefaultConfiguration();
+        }
+    }
+
+    /**
+     * Starts loading the images in the background if they are not already loaded.
+     *
+     * @param paths the resource paths of the images.
+     */
+    public void preload(String... paths) {
+        for (String path : paths) request(path);
+    }
+
+    /**
+     * Returns a Future for an image, starting to load it if necessary.
+     *
+     * @param path the resource path of the image.
+     * @return a Future for the image.
+     */
+    public Future<BufferedImage> request(final String path) {
+        return images.computeIfAbsent(path, p -> executor.submit(() -> load(p)));
+    }
+
+    /**
+     * Returns an image, waiting for it to load if necessary.
+     *
+     * @param path the resource path of the image.
+     * @return the image, or null if it could not be loaded.
+     */
+    public BufferedImage get(String path) {
+        try {
+            return request(path).get();
+        } catch (InterruptedException e) {
+            System.err.println(e);
+        } catch (ExecutionException e) {
+            System.err.println("Error retrieving image " + path + " :" + e.getCause());
+        }
+        return null;
+    }
+
+    /**
+     * Returns true if the image has finished loading.
+     *
+     * @param path the resource path of the image.
+     * @return true if the image has finished loading.
+     */
+    public boolean isLoaded(String path) {
+        Future<BufferedImage> future = images.get(path);
+        return future != null && future.isDone();
+    }
+
+    // Decodes an image and converts it to be compatible with the screen.
+    // @param path the resource path of the image.
+    // @return the decoded image, or null if the resource does not exist.
+    private BufferedImage load(String path) throws Exception {
+        URL url = AssetManager.class.getResource(path);
+        if (url == null) return null;
+        BufferedImage image = ImageIO.read(url);
+        if (image == null || config == null) return image;
+        if (image.getColorModel().equals(config.getColorModel(image.getTransparency()))) return image;
+        BufferedImage compatible = config.createCompatibleImage(image.getWidth(), image.getHeight(), image.getTransparency());
+        Graphics2D g = compatible.createGraphics();
+        g.drawImage(image, 0, 0, null);
+        g.dispose();
+        return compatible;
+    }
+
+}
@@ -0,0 +1,102 @@
+package client.application;
+
+import java.awt.*;
+import java.awt.image.*;
+import java.io.*;
+import java.util.*;
+import java.util.List;
+import javax.imageio.*;
+
+/**
+ * A build tool to pack the small images into a single sprite sheet with an index.
+ * It is run by the atlas target in build.xml:
+ * <pre>
+ *   java client.application.AtlasPacker resources/GUIResources bin/classes/resources tickets counters cursors
+ * </pre>
+ * Each line of the index is the resource path of an image followed by
+ * its x, y, width and height in the sheet.
+ */
+
+public class AtlasPacker {
+
+    public static final String kSheetName = "atlas.png";
+    public static final String kIndexName = "atlas.txt";
+
+    private static final int kSheetWidth = 1024;
+    private static final int kPadding = 1;
+
+    /**
+     * Packs the images in the specified directories.
+     *
+     * @param args the source directory, the output directory and the
+     * subdirectories of the source directory to pack.
+     */
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            System.err.println("Usage: AtlasPacker sourceDir outputDir subDir...");
+            System.exit(1);
+        }
+        try {
+            File source = new File(args[0]);
+            File output = new File(args[1]);
+            Map<String, BufferedImage> images = new LinkedHashMap<String, BufferedImage>();
+            for (int i = 2; i < args.length; i++) {
+                File[] files = new File(source, args[i]).listFiles();
+                if (files == null) continue;
+                Arrays.sort(files);
+                for (File file : files) {
+                    if (!file.getName().endsWith(".png")) continue;
+                    images.put("/resources/" + args[i] + "/" + file.getName(), ImageIO.read(file));
+                }
+            }
+            pack(images, output);
+            System.out.println("Packed " + images.size() + " images into " + new File(output, kSheetName));
+        } catch (IOException e) {
+            System.err.println("Error packing images :" + e);
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    // Packs the images into shelves of decreasing height and writes the sheet and index.
+    // @param images the Map of resource paths to images.
+    // @param output the directory to write the sheet and index to.
+    private static void pack(Map<String, BufferedImage> images, File output) throws IOException {
+        List<String> paths = new ArrayList<String>(images.keySet());
+        paths.sort((a, b) -> images.get(b).getHeight() - images.get(a).getHeight());
+
+        Map<String, Rectangle> bounds = new LinkedHashMap<String, Rectangle>();
+        int x = 0, y = 0, shelfHeight = 0, width = 0;
+        for (String path : paths) {
+            BufferedImage image = images.get(path);
+            if (x + image.getWidth() > kSheetWidth && x > 0) {
+                x = 0;
+                y += shelfHeight + kPadding;
+                shelfHeight = 0;
+            }
+            bounds.put(path, new Rectangle(x, y, image.getWidth(), image.getHeight()));
+            x += image.getWidth() + kPadding;
+            width = Math.max(width, x);
+            shelfHeight = Math.max(shelfHeight, image.getHeight());
+        }
+        int height = y + shelfHeight;
+
+        BufferedImage sheet = new BufferedImage(Math.max(width, 1), Math.max(height, 1), BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = sheet.createGraphics();
+        for (Map.Entry<String, Rectangle> entry : bounds.entrySet()) {
+            Rectangle r = entry.getValue();
+            g.drawImage(images.get(entry.getKey()), r.x, r.y, null);
+        }
+        g.dispose();
+
+        output.mkdirs();
+        ImageIO.write(sheet, "png", new File(output, kSheetName));
+        PrintWriter index = new PrintWriter(new FileWriter(new File(output, kIndexName)));
+        for (Map.Entry<String, Rectangle> entry : bounds.entrySet()) {
+            Rectangle r = entry.getValue();
+            index.println(entry.getKey() + " " + r.x + " " + r.y + " " + r.width + " " + r.height);
+        }
+        index.close();
+    }
+
+}
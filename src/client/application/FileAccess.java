@@ -8,6 +8,7 @@ import java.io.*;
 import javax.imageio.*;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.*;
 import javax.swing.*;
 import java.security.*;
 import java.net.*;
@@ -19,224 +20,65 @@ import java.awt.*;
 
 public class FileAccess {
 
-    private BufferedImage map;
-    private BufferedImage notify;
-    private BufferedImage setupBackground;
-    private Map<Ticket, BufferedImage> ticketsSmall;
-    private Map<Colour, BufferedImage> counters;
+    private static final String kMap = "/resources/map_large.png";
+    private static final String kNotify = "/resources/notify.png";
+    private static final String kSetupBackground = "/resources/setupBackground.png";
+    private static final String kWarningIcon = "/resources/warningIcon.jpg";
+    private static final String kMultiplayerIcon = "/resources/multiplayerIcon.png";
+    private static final String kSingleplayerIcon = "/resources/singleplayerIcon.png";
+    private static final String kSetupImage = "/resources/setup_image.png";
+    private static final String kBadMove = "/resources/AI/badMove.png";
+    private static final String kGoodMove = "/resources/AI/goodMove.png";
+    // The number of Moves between forcing a game save to disk, set by the
+    // scotlandyard.journal.sync property. Saving or ending the game forces
+    // the rest to disk.
+    private static final int kJournalSyncInterval = Math.max(1, Integer.getInteger("scotlandyard.journal.sync", 1));
+
+    private static final Ticket[] kCursorTickets = {Ticket.Taxi, Ticket.Bus, Ticket.Underground, Ticket.Secret};
+    private static final String[] kCursorCounts = {"single", "double", "triple", "quadruple"};
+
+    private static SaveCatalogue catalogue = null;
+    private static final Set<String> unreadableSaves = new HashSet<String>();
+    // The modified time of the save folder when the catalogue was last checked
+    // against it, and how close to now a modified time has to be before it is
+    // checked again, as some file systems only keep it to the nearest second.
+    private static long checkedModified = 0;
+    private static final long kModifiedResolution = 2000;
+
+    private static final int kSetupCacheSize = 8;
+    private static ImgToASCII setupConverter = null;
+    private static final Map<Dimension, BufferedImage> setupImages = new LinkedHashMap<Dimension, BufferedImage>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Dimension, BufferedImage> eldest) {
+            return size() > kSetupCacheSize;
+        }
+    };
+
+    private static SpriteAtlas atlas = null;
+    private static boolean atlasLoaded = false;
+
+    private AssetManager assets;
+    private Map<Ticket, BufferedImage> ticketsSmall = null;
+    private Map<Colour, BufferedImage> counters = null;
     private Map<Integer, Point> mapPositions;
-    private BufferedImage setupImage;
-    private BufferedImage warningIcon;
-    private BufferedImage multiplayerIcon;
-    private BufferedImage singleplayerIcon;
     private Map<Set<Ticket>, BufferedImage> cursors;
-    private BufferedImage badMove;
-    private BufferedImage goodMove;
-    private Map<Ticket, BufferedImage> ticketsLarge;
+    private Map<Ticket, BufferedImage> ticketsLarge = null;
 
     /**
      * Constructs a new FileAccess object.
-     * This loads all images to memory so they can be quickly accessed later.
+     * This starts loading the images needed for the first window in the
+     * background. Cursors and large tickets are loaded when first used.
      */
     public FileAccess() {
-        ticketsSmall = new HashMap<Ticket, BufferedImage>();
-        ticketsLarge = new HashMap<Ticket, BufferedImage>();
-        counters = new HashMap<Colour, BufferedImage>();
+        assets = AssetManager.shared();
         mapPositions = makePositions();
-        cursors = new HashMap<Set<Ticket>, BufferedImage>();
-        try {
-            map = ImageIO.read(this.getClass().getResource("/resources/map_large.png"));
-            notify = ImageIO.read(this.getClass().getResource("/resources/notify.png"));
-            setupBackground = ImageIO.read(this.getClass().getResource("/resources/setupBackground.png"));
-            warningIcon = ImageIO.read(this.getClass().getResource("/resources/warningIcon.jpg"));
-            multiplayerIcon = ImageIO.read(this.getClass().getResource("/resources/multiplayerIcon.png"));
-            singleplayerIcon = ImageIO.read(this.getClass().getResource("/resources/singleplayerIcon.png"));
-
-            counters.put(Colour.Black, ImageIO.read(this.getClass().getResource("/resources/counters/black_counter.png")));
-            counters.put(Colour.Blue, ImageIO.read(this.getClass().getResource("/resources/counters/blue_counter.png")));
-            counters.put(Colour.Yellow, ImageIO.read(this.getClass().getResource("/resources/counters/yellow_counter.png")));
-            counters.put(Colour.Red, ImageIO.read(this.getClass().getResource("/resources/counters/red_counter.png")));
-            counters.put(Colour.Green, ImageIO.read(this.getClass().getResource("/resources/counters/green_counter.png")));
-            counters.put(Colour.White, ImageIO.read(this.getClass().getResource("/resources/counters/white_counter.png")));
-
-            ticketsSmall.put(Ticket.Taxi, ImageIO.read(this.getClass().getResource("/resources/tickets/taxi_small.png")));
-            ticketsSmall.put(Ticket.Bus, ImageIO.read(this.getClass().getResource("/resources/tickets/bus_small.png")));
-            ticketsSmall.put(Ticket.Underground, ImageIO.read(this.getClass().getResource("/resources/tickets/underground_small.png")));
-            ticketsSmall.put(Ticket.Secret, ImageIO.read(this.getClass().getResource("/resources/tickets/secret_small.png")));
-            ticketsSmall.put(Ticket.Double, ImageIO.read(this.getClass().getResource("/resources/tickets/double_small.png")));
-
-            setupImage = ImageIO.read(this.getClass().getResource("/resources/setup_image.png"));
-
-            Set<Ticket> singleTaxi = new HashSet<Ticket>();
-            singleTaxi.add(Ticket.Taxi);
-            Set<Ticket> singleBus = new HashSet<Ticket>();
-            singleBus.add(Ticket.Bus);
-            Set<Ticket> singleUnderground = new HashSet<Ticket>();
-            singleUnderground.add(Ticket.Underground);
-            Set<Ticket> singleSecret = new HashSet<Ticket>();
-            singleSecret.add(Ticket.Secret);
-
-            cursors.put(singleTaxi, ImageIO.read(this.getClass().getResource("/resources/cursors/single_taxi.png")));
-            cursors.put(singleBus, ImageIO.read(this.getClass().getResource("/resources/cursors/single_bus.png")));
-            cursors.put(singleUnderground, ImageIO.read(this.getClass().getResource("/resources/cursors/single_underground.png")));
-            cursors.put(singleSecret, ImageIO.read(this.getClass().getResource("/resources/cursors/single_secret.png")));
-
-            Set<Ticket> singleDoubleTaxi = new HashSet<Ticket>();
-            singleDoubleTaxi.add(Ticket.Taxi);
-            singleDoubleTaxi.add(Ticket.Double);
-            Set<Ticket> singleDoubleBus = new HashSet<Ticket>();
-            singleDoubleBus.add(Ticket.Bus);
-            singleDoubleBus.add(Ticket.Double);
-            Set<Ticket> singleDoubleUnderground = new HashSet<Ticket>();
-            singleDoubleUnderground.add(Ticket.Underground);
-            singleDoubleUnderground.add(Ticket.Double);
-            Set<Ticket> singleDoubleSecret = new HashSet<Ticket>();
-            singleDoubleSecret.add(Ticket.Secret);
-            singleDoubleSecret.add(Ticket.Double);
-
-            cursors.put(singleDoubleTaxi, ImageIO.read(this.getClass().getResource("/resources/cursors/single_double_taxi.png")));
-            cursors.put(singleDoubleBus, ImageIO.read(this.getClass().getResource("/resources/cursors/single_double_bus.png")));
-            cursors.put(singleDoubleUnderground, ImageIO.read(this.getClass().getResource("/resources/cursors/single_double_underground.png")));
-            cursors.put(singleDoubleSecret, ImageIO.read(this.getClass().getResource("/resources/cursors/single_double_secret.png")));
-
-            Set<Ticket> doubleTaxiBus = new HashSet<Ticket>();
-            doubleTaxiBus.add(Ticket.Taxi);
-            doubleTaxiBus.add(Ticket.Bus);
-            Set<Ticket> doubleTaxiUnderground = new HashSet<Ticket>();
-            doubleTaxiUnderground.add(Ticket.Taxi);
-            doubleTaxiUnderground.add(Ticket.Underground);
-            Set<Ticket> doubleTaxiSecret = new HashSet<Ticket>();
-            doubleTaxiSecret.add(Ticket.Taxi);
-            doubleTaxiSecret.add(Ticket.Secret);
-
-            Set<Ticket> doubleBusUnderground = new HashSet<Ticket>();
-            doubleBusUnderground.add(Ticket.Bus);
-            doubleBusUnderground.add(Ticket.Underground);
-            Set<Ticket> doubleBusSecret = new HashSet<Ticket>();
-            doubleBusSecret.add(Ticket.Bus);
-            doubleBusSecret.add(Ticket.Secret);
-            Set<Ticket> doubleUndergroundSecret = new HashSet<Ticket>();
-            doubleUndergroundSecret.add(Ticket.Underground);
-            doubleUndergroundSecret.add(Ticket.Secret);
-
-            cursors.put(doubleTaxiBus, ImageIO.read(this.getClass().getResource("/resources/cursors/double_taxi_bus.png")));
-            cursors.put(doubleTaxiUnderground, ImageIO.read(this.getClass().getResource("/resources/cursors/double_taxi_underground.png")));
-            cursors.put(doubleTaxiSecret, ImageIO.read(this.getClass().getResource("/resources/cursors/double_taxi_secret.png")));
-            cursors.put(doubleBusUnderground, ImageIO.read(this.getClass().getResource("/resources/cursors/double_bus_underground.png")));
-            cursors.put(doubleBusSecret, ImageIO.read(this.getClass().getResource("/resources/cursors/double_bus_secret.png")));
-            cursors.put(doubleUndergroundSecret, ImageIO.read(this.getClass().getResource("/resources/cursors/double_underground_secret.png")));
-
-            Set<Ticket> doubleDoubleTaxiBus = new HashSet<Ticket>();
-            doubleDoubleTaxiBus.add(Ticket.Taxi);
-            doubleDoubleTaxiBus.add(Ticket.Bus);
-            doubleDoubleTaxiBus.add(Ticket.Double);
-            Set<Ticket> doubleDoubleTaxiUnderground = new HashSet<Ticket>();
-            doubleDoubleTaxiUnderground.add(Ticket.Taxi);
-            doubleDoubleTaxiUnderground.add(Ticket.Underground);
-            doubleDoubleTaxiUnderground.add(Ticket.Double);
-            Set<Ticket> doubleDoubleTaxiSecret = new HashSet<Ticket>();
-            doubleDoubleTaxiSecret.add(Ticket.Taxi);
-            doubleDoubleTaxiSecret.add(Ticket.Secret);
-            doubleDoubleTaxiSecret.add(Ticket.Double);
-
-            Set<Ticket> doubleDoubleBusUnderground = new HashSet<Ticket>();
-            doubleDoubleBusUnderground.add(Ticket.Bus);
-            doubleDoubleBusUnderground.add(Ticket.Underground);
-            doubleDoubleBusUnderground.add(Ticket.Double);
-            Set<Ticket> doubleDoubleBusSecret = new HashSet<Ticket>();
-            doubleDoubleBusSecret.add(Ticket.Bus);
-            doubleDoubleBusSecret.add(Ticket.Secret);
-            doubleDoubleBusSecret.add(Ticket.Double);
-            Set<Ticket> doubleDoubleUndergroundSecret = new HashSet<Ticket>();
-            doubleDoubleUndergroundSecret.add(Ticket.Underground);
-            doubleDoubleUndergroundSecret.add(Ticket.Secret);
-            doubleDoubleUndergroundSecret.add(Ticket.Double);
-
-            cursors.put(doubleDoubleTaxiBus, ImageIO.read(this.getClass().getResource("/resources/cursors/double_double_taxi_bus.png")));
-            cursors.put(doubleDoubleTaxiUnderground, ImageIO.read(this.getClass().getResource("/resources/cursors/double_double_taxi_underground.png")));
-            cursors.put(doubleDoubleTaxiSecret, ImageIO.read(this.getClass().getResource("/resources/cursors/double_double_taxi_secret.png")));
-            cursors.put(doubleDoubleBusUnderground, ImageIO.read(this.getClass().getResource("/resources/cursors/double_double_bus_underground.png")));
-            cursors.put(doubleDoubleBusSecret, ImageIO.read(this.getClass().getResource("/resources/cursors/double_double_bus_secret.png")));
-            cursors.put(doubleDoubleUndergroundSecret, ImageIO.read(this.getClass().getResource("/resources/cursors/double_double_underground_secret.png")));
-
-            Set<Ticket> tripleTaxiBusUnderground = new HashSet<Ticket>();
-            tripleTaxiBusUnderground.add(Ticket.Taxi);
-            tripleTaxiBusUnderground.add(Ticket.Bus);
-            tripleTaxiBusUnderground.add(Ticket.Underground);
-            Set<Ticket> tripleTaxiBusSecret = new HashSet<Ticket>();
-            tripleTaxiBusSecret.add(Ticket.Taxi);
-            tripleTaxiBusSecret.add(Ticket.Bus);
-            tripleTaxiBusSecret.add(Ticket.Secret);
-            Set<Ticket> tripleTaxiUndergroundSecret = new HashSet<Ticket>();
-            tripleTaxiUndergroundSecret.add(Ticket.Taxi);
-            tripleTaxiUndergroundSecret.add(Ticket.Underground);
-            tripleTaxiUndergroundSecret.add(Ticket.Secret);
-            Set<Ticket> tripleBusUndergroundSecret = new HashSet<Ticket>();
-            tripleBusUndergroundSecret.add(Ticket.Bus);
-            tripleBusUndergroundSecret.add(Ticket.Underground);
-            tripleBusUndergroundSecret.add(Ticket.Secret);
-
-            cursors.put(tripleTaxiBusUnderground, ImageIO.read(this.getClass().getResource("/resources/cursors/triple_taxi_bus_underground.png")));
-            cursors.put(tripleTaxiBusSecret, ImageIO.read(this.getClass().getResource("/resources/cursors/triple_taxi_bus_secret.png")));
-            cursors.put(tripleTaxiUndergroundSecret, ImageIO.read(this.getClass().getResource("/resources/cursors/triple_taxi_underground_secret.png")));
-            cursors.put(tripleBusUndergroundSecret, ImageIO.read(this.getClass().getResource("/resources/cursors/triple_bus_underground_secret.png")));
-
-            Set<Ticket> tripleDoubleTaxiBusUnderground = new HashSet<Ticket>();
-            tripleDoubleTaxiBusUnderground.add(Ticket.Taxi);
-            tripleDoubleTaxiBusUnderground.add(Ticket.Bus);
-            tripleDoubleTaxiBusUnderground.add(Ticket.Underground);
-            tripleDoubleTaxiBusUnderground.add(Ticket.Double);
-            Set<Ticket> tripleDoubleTaxiBusSecret = new HashSet<Ticket>();
-            tripleDoubleTaxiBusSecret.add(Ticket.Taxi);
-            tripleDoubleTaxiBusSecret.add(Ticket.Bus);
-            tripleDoubleTaxiBusSecret.add(Ticket.Secret);
-            tripleDoubleTaxiBusSecret.add(Ticket.Double);
-            Set<Ticket> tripleDoubleTaxiUndergroundSecret = new HashSet<Ticket>();
-            tripleDoubleTaxiUndergroundSecret.add(Ticket.Taxi);
-            tripleDoubleTaxiUndergroundSecret.add(Ticket.Underground);
-            tripleDoubleTaxiUndergroundSecret.add(Ticket.Secret);
-            tripleDoubleTaxiUndergroundSecret.add(Ticket.Double);
-            Set<Ticket> tripleDoubleBusUndergroundSecret = new HashSet<Ticket>();
-            tripleDoubleBusUndergroundSecret.add(Ticket.Bus);
-            tripleDoubleBusUndergroundSecret.add(Ticket.Underground);
-            tripleDoubleBusUndergroundSecret.add(Ticket.Secret);
-            tripleDoubleBusUndergroundSecret.add(Ticket.Double);
-
-            cursors.put(tripleDoubleTaxiBusUnderground, ImageIO.read(this.getClass().getResource("/resources/cursors/triple_double_taxi_bus_underground.png")));
-            cursors.put(tripleDoubleTaxiBusSecret, ImageIO.read(this.getClass().getResource("/resources/cursors/triple_double_taxi_bus_secret.png")));
-            cursors.put(tripleDoubleTaxiUndergroundSecret, ImageIO.read(this.getClass().getResource("/resources/cursors/triple_double_taxi_underground_secret.png")));
-            cursors.put(tripleDoubleBusUndergroundSecret, ImageIO.read(this.getClass().getResource("/resources/cursors/triple_double_bus_underground_secret.png")));
-
-            Set<Ticket> quadruple = new HashSet<Ticket>();
-            quadruple.add(Ticket.Taxi);
-            quadruple.add(Ticket.Bus);
-            quadruple.add(Ticket.Underground);
-            quadruple.add(Ticket.Secret);
-
-            cursors.put(quadruple, ImageIO.read(this.getClass().getResource("/resources/cursors/quadruple.png")));
-
-            Set<Ticket> quadrupleDouble = new HashSet<Ticket>();
-            quadrupleDouble.add(Ticket.Taxi);
-            quadrupleDouble.add(Ticket.Bus);
-            quadrupleDouble.add(Ticket.Underground);
-            quadrupleDouble.add(Ticket.Secret);
-            quadrupleDouble.add(Ticket.Double);
-
-            cursors.put(quadrupleDouble, ImageIO.read(this.getClass().getResource("/resources/cursors/quadruple_double.png")));
-
-            badMove = ImageIO.read(this.getClass().getResource("/resources/AI/badMove.png"));
-            goodMove = ImageIO.read(this.getClass().getResource("/resources/AI/goodMove.png"));
-
-            ticketsLarge.put(Ticket.Taxi, ImageIO.read(this.getClass().getResource("/resources/tickets/taxi.png")));
-            ticketsLarge.put(Ticket.Bus, ImageIO.read(this.getClass().getResource("/resources/tickets/bus.png")));
-            ticketsLarge.put(Ticket.Underground, ImageIO.read(this.getClass().getResource("/resources/tickets/underground.png")));
-            ticketsLarge.put(Ticket.Secret, ImageIO.read(this.getClass().getResource("/resources/tickets/secret.png")));
-            ticketsLarge.put(Ticket.Double, ImageIO.read(this.getClass().getResource("/resources/tickets/double.png")));
-        } catch (Exception e) {
-            System.err.println("Error retrieving images :" + e);
-            e.printStackTrace();
-            System.exit(1);
+        cursors = new ConcurrentHashMap<Set<Ticket>, BufferedImage>();
+        assets.preload(kSetupBackground, kSetupImage, kMultiplayerIcon, kSingleplayerIcon, kMap, kNotify);
+        if (atlas() == null) {
+            for (Colour colour : Colour.values()) assets.preload(counterPath(colour));
+            for (Ticket ticket : Ticket.values()) assets.preload(ticketPath(ticket, true));
         }
+        assets.preload(kWarningIcon, kBadMove, kGoodMove);
 
         //Create save folder if it doesn't already exist.
         File dir = new File (jarPath() + "/SavedGames/");
@@ -249,15 +91,52 @@ public class FileAccess {
         }
     }
 
+    /**
+     * Returns a Future for an image, for callers that should not
+     * wait for it to load.
+     *
+     * @param path the resource path of the image.
+     * @return a Future for the image.
+     */
+    public Future<BufferedImage> requestImage(String path) {
+        return assets.request(path);
+    }
+
+    // Returns the SpriteAtlas packaged with the application, loading it the first time.
+    // @return the SpriteAtlas, or null if the application was built without one.
+    private SpriteAtlas atlas() {
+        synchronized (FileAccess.class) {
+            if (!atlasLoaded) {
+                atlas = SpriteAtlas.load(assets);
+                atlasLoaded = true;
+            }
+            return atlas;
+        }
+    }
+
+    // Returns an image from the SpriteAtlas if it is packed, otherwise from
+    // its own file, which is also used if the sheet could not be loaded.
+    // @param path the resource path of the image.
+    // @return the image, or null if it could not be loaded.
+    private BufferedImage image(String path) {
+        SpriteAtlas atlas = atlas();
+        if (atlas != null && atlas.contains(path)) {
+            BufferedImage image = atlas.get(path);
+            if (image != null) return image;
+        }
+        return assets.get(path);
+    }
+
     public BufferedImage getBadMove() {
-        return badMove;
+        return assets.get(kBadMove);
     }
 
     public BufferedImage getGoodMove() {
-        return goodMove;
+        return assets.get(kGoodMove);
     }
 
-    public Map<Ticket, BufferedImage> getLargeTickets() {
+    public synchronized Map<Ticket, BufferedImage> getLargeTickets() {
+        if (ticketsLarge == null) ticketsLarge = ticketImages(false);
         return ticketsLarge;
     }
 
@@ -267,7 +146,7 @@ public class FileAccess {
      * @return the singleplayer icon image.
      */
     public BufferedImage getSingleplayerIcon() {
-        return singleplayerIcon;
+        return assets.get(kSingleplayerIcon);
     }
 
     /**
@@ -276,19 +155,27 @@ public class FileAccess {
      * @return the multiplayer icon image.
      */
     public BufferedImage getMultiplayerIcon() {
-        return multiplayerIcon;
+        return assets.get(kMultiplayerIcon);
     }
 
     /**
-     * Returns the map image.
+     * Returns the ASCII version of the setup image.
+     * The most recently used sizes are cached, so returning to a size is free.
      *
      * @param size the size of the image to be generated.
-     * @return the map image.
+     * @return the ASCII version of the setup image.
      */
     public BufferedImage getSetupImage(Dimension size) {
-        ImgToASCII ascii = new ImgToASCII(setupImage, size);
-        ascii.convert();
-        return ascii.toImage();
+        synchronized (setupImages) {
+            BufferedImage image = setupImages.get(size);
+            if (image != null) return image;
+            if (setupConverter == null) setupConverter = new ImgToASCII(assets.get(kSetupImage), size);
+            ImgToASCII ascii = setupConverter.resize(size);
+            ascii.convert();
+            image = ascii.toImage();
+            setupImages.put(new Dimension(size), image);
+            return image;
+        }
     }
 
     /**
@@ -297,7 +184,7 @@ public class FileAccess {
      * @return the map image.
      */
     public BufferedImage getMap() {
-        return map;
+        return assets.get(kMap);
     }
 
     /**
@@ -306,7 +193,7 @@ public class FileAccess {
      * @return the background image.
      */
     public BufferedImage getNotify() {
-        return notify;
+        return assets.get(kNotify);
     }
 
     /**
@@ -315,7 +202,7 @@ public class FileAccess {
      * @return the background image.
      */
     public BufferedImage getSetupBackground() {
-        return setupBackground;
+        return assets.get(kSetupBackground);
     }
 
     /**
@@ -324,7 +211,7 @@ public class FileAccess {
      * @return the warning icon.
      */
     public ImageIcon getWarningIcon() {
-        return new ImageIcon(warningIcon);
+        return new ImageIcon(assets.get(kWarningIcon));
     }
 
     /**
@@ -332,7 +219,8 @@ public class FileAccess {
      *
      * @return the Map of small Ticket images.
      */
-    public Map<Ticket, BufferedImage> getTicketsSmall() {
+    public synchronized Map<Ticket, BufferedImage> getTicketsSmall() {
+        if (ticketsSmall == null) ticketsSmall = ticketImages(true);
         return ticketsSmall;
     }
 
@@ -341,17 +229,68 @@ public class FileAccess {
      *
      * @return the Map of counter images.
      */
-    public Map<Colour, BufferedImage> getCounters() {
+    public synchronized Map<Colour, BufferedImage> getCounters() {
+        if (counters == null) {
+            counters = new HashMap<Colour, BufferedImage>();
+            for (Colour colour : Colour.values()) counters.put(colour, image(counterPath(colour)));
+        }
         return counters;
     }
 
     /**
-     * Returns a Map of the cursor images.
+     * Returns the cursor image for a Set of Tickets, loading it if necessary.
      *
-     * @return a Map of the cursor images.
+     * @param tickets the Set of Tickets that can be used to reach a node.
+     * @return the cursor image, or null if there is no cursor for the Tickets.
      */
-    public Map<Set<Ticket>, BufferedImage> getCursors() {
-        return cursors;
+    public BufferedImage getCursor(Set<Ticket> tickets) {
+        BufferedImage cursor = cursors.get(tickets);
+        if (cursor != null) return cursor;
+        String path = cursorPath(tickets);
+        if (path == null) return null;
+        cursor = image(path);
+        if (cursor != null) cursors.put(new HashSet<Ticket>(tickets), cursor);
+        return cursor;
+    }
+
+    // Returns the Map of Ticket images of the specified size.
+    // @param small true for the small Ticket images.
+    // @return the Map of Ticket images of the specified size.
+    private Map<Ticket, BufferedImage> ticketImages(boolean small) {
+        Map<Ticket, BufferedImage> tickets = new HashMap<Ticket, BufferedImage>();
+        for (Ticket ticket : Ticket.values()) tickets.put(ticket, image(ticketPath(ticket, small)));
+        return tickets;
+    }
+
+    // Returns the resource path of the counter image for a player.
+    // @param colour the player's Colour.
+    // @return the resource path of the counter image.
+    private static String counterPath(Colour colour) {
+        return "/resources/counters/" + colour.toString().toLowerCase() + "_counter.png";
+    }
+
+    // Returns the resource path of a Ticket image.
+    // @param ticket the Ticket.
+    // @param small true for the small image.
+    // @return the resource path of the Ticket image.
+    private static String ticketPath(Ticket ticket, boolean small) {
+        return "/resources/tickets/" + ticket.toString().toLowerCase() + (small ? "_small" : "") + ".png";
+    }
+
+    // Returns the resource path of the cursor for a Set of Tickets,
+    // e.g. double_double_taxi_bus.png for Taxi, Bus and Double.
+    // @param tickets the Set of Tickets.
+    // @return the resource path of the cursor, or null if there is none.
+    private static String cursorPath(Set<Ticket> tickets) {
+        List<String> names = new ArrayList<String>();
+        for (Ticket ticket : kCursorTickets) {
+            if (tickets.contains(ticket)) names.add(ticket.toString().toLowerCase());
+        }
+        if (names.isEmpty()) return null;
+        String path = kCursorCounts[names.size() - 1];
+        if (tickets.contains(Ticket.Double)) path += "_double";
+        if (names.size() < kCursorTickets.length) path += "_" + String.join("_", names);
+        return "/resources/cursors/" + path + ".png";
     }
 
     /**
@@ -361,14 +300,39 @@ public class FileAccess {
      */
     public List<String> savedGames() {
         List<String> games = new ArrayList<String>();
-        File dir = new File (jarPath() + "/SavedGames/");
-        for (File file : dir.listFiles()) {
-            String name = file.getName();
-            if (!file.isDirectory() && name.endsWith(".syg")) {
-                games.add(name);
+        for (SaveCatalogue.Entry entry : savedGameEntries()) games.add(entry.getFilename());
+        return games;
+    }
+
+    /**
+     * Returns the catalogue entries for the saved games, newest first.
+     * The catalogue is rebuilt from the game saves if it is missing or if
+     * game saves have been added, renamed or deleted outside the game. The
+     * save folder is only listed when its modified time has changed.
+     *
+     * @return the List of catalogue entries for the saved games.
+     */
+    public List<SaveCatalogue.Entry> savedGameEntries() {
+        synchronized (FileAccess.class) {
+            try {
+                if (!catalogue().isValid()) rebuildCatalogue();
+                List<SaveCatalogue.Entry> entries = catalogue().list();
+                long modified = saveFile("").lastModified();
+                if (modified != checkedModified || System.currentTimeMillis() - modified < kModifiedResolution) {
+                    checkedModified = modified;
+                    Set<String> catalogued = new HashSet<String>(unreadableSaves);
+                    for (SaveCatalogue.Entry entry : entries) catalogued.add(entry.getFilename());
+                    if (!catalogued.equals(saveFilenames())) {
+                        rebuildCatalogue();
+                        entries = catalogue().list();
+                    }
+                }
+                return entries;
+            } catch (IOException e) {
+                e.printStackTrace();
             }
+            return new ArrayList<SaveCatalogue.Entry>();
         }
-        return games;
     }
 
     /**
@@ -424,45 +388,135 @@ public class FileAccess {
     }
 
     /**
-     * Creates a new save game.
+     * Saves a game.
+     * If the game has a journal open the appended Moves are forced to disk,
+     * otherwise the whole game is written to a new journal.
      *
-     * @param game the name of the game to be saved.
+     * @param game the SaveGame to be saved.
      */
     public void saveGame(SaveGame game) {
-        try {
-            String filename = game.getFilename();
-            FileOutputStream file = new FileOutputStream(jarPath() + "/SavedGames/" + filename);
-            BufferedOutputStream buffer = new BufferedOutputStream(file);
-            ObjectOutputStream save = new ObjectOutputStream(buffer);
-            save.writeObject(game);
-            save.close();
+        if (game.hasJournal()) {
+            game.syncJournal();
+        } else {
+            try {
+                GameJournal.write(saveFile(game.getFilename()), game);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        updateCatalogue(game);
+    }
 
+    /**
+     * Opens the journal for a game so each Move is saved as it is played.
+     * The journal is created if the game has not been saved before.
+     *
+     * @param game the SaveGame to open the journal for.
+     */
+    public void openJournal(SaveGame game) {
+        try {
+            File file = saveFile(game.getFilename());
+            GameJournal journal;
+            if (GameJournal.isJournal(file)) {
+                journal = GameJournal.open(file, kJournalSyncInterval);
+            } else {
+                journal = GameJournal.create(file, game, kJournalSyncInterval);
+            }
+            game.attachJournal(journal);
         } catch (IOException e) {
             e.printStackTrace();
         }
+        updateCatalogue(game);
     }
 
     /**
      * Returns a save game.
+     * Games saved in the old serialized format are converted to a journal.
      *
      * @param filename the name of the game to be loaded.
-     * @return the SaveGame object of the game.
+     * @return the SaveGame object of the game, or null if it cannot be loaded.
      */
     public SaveGame loadGame(String filename) {
+        File file = saveFile(filename);
+        if (!file.isFile()) return null;
         try {
-            InputStream file = new FileInputStream(jarPath() + "/SavedGames/" + filename);
-            InputStream buffer = new BufferedInputStream(file);
-            ObjectInput input = new ObjectInputStream(buffer);
-            try {
-                SaveGame game = (SaveGame) input.readObject();
-                return game;
-            } catch (ClassNotFoundException e) {
-                System.err.println(e);
-            }
+            if (GameJournal.isJournal(file)) return GameJournal.read(file);
+            SaveGame game = SaveGame.readSerialized(file);
+            if (game != null) GameJournal.write(file, game);
+            return game;
         } catch (IOException e){
             e.printStackTrace();
         }
         return null;
     }
 
+    // Returns the catalogue of saved games, which is shared by every FileAccess
+    // so that all updates go through the same record count.
+    // Must be called while synchronized on FileAccess.class.
+    // @return the catalogue of saved games.
+    private SaveCatalogue catalogue() {
+        if (catalogue == null) catalogue = new SaveCatalogue(saveFile(""));
+        return catalogue;
+    }
+
+    // Adds or updates the catalogue entry for a game save.
+    // @param game the SaveGame that has been saved.
+    private void updateCatalogue(SaveGame game) {
+        synchronized (FileAccess.class) {
+            try {
+                if (catalogue().isValid()) catalogue().update(catalogueEntry(game, saveFile(game.getFilename())));
+                else rebuildCatalogue();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    // Replaces the catalogue with one built from every game save. Game saves
+    // that cannot be read are remembered so they do not cause another rebuild.
+    // Must be called while synchronized on FileAccess.class.
+    private void rebuildCatalogue() throws IOException {
+        List<SaveCatalogue.Entry> entries = new ArrayList<SaveCatalogue.Entry>();
+        unreadableSaves.clear();
+        for (String filename : saveFilenames()) {
+            SaveGame game = loadGame(filename);
+            if (game != null) entries.add(catalogueEntry(game, saveFile(filename)));
+            else unreadableSaves.add(filename);
+        }
+        catalogue().rebuild(entries);
+        // Rebuilding the catalogue changes the save folder, so the change is
+        // taken as already checked.
+        checkedModified = saveFile("").lastModified();
+    }
+
+    // Returns the file names of the game saves in the save folder.
+    // @return the Set of file names of the game saves.
+    private Set<String> saveFilenames() {
+        Set<String> filenames = new HashSet<String>();
+        File[] files = saveFile("").listFiles();
+        if (files == null) return filenames;
+        for (File file : files) {
+            if (!file.isDirectory() && file.getName().endsWith(".syg")) filenames.add(file.getName());
+        }
+        return filenames;
+    }
+
+    // Returns the catalogue entry for a game save.
+    // @param game the SaveGame.
+    // @param file the file containing the game save.
+    // @return the catalogue entry for the game save.
+    private SaveCatalogue.Entry catalogueEntry(SaveGame game, File file) {
+        long timestamp = SaveCatalogue.Entry.timestamp(file.getName());
+        if (timestamp == 0) timestamp = file.lastModified();
+        return new SaveCatalogue.Entry(file.getName(), timestamp, game.getNumberOfPlayers(),
+                                       game.getRounds(), game.getWinner(), file.length());
+    }
+
+    // Returns the file for a game save.
+    // @param filename the name of the game save.
+    // @return the file for the game save.
+    private File saveFile(String filename) {
+        return new File(jarPath() + "/SavedGames/" + filename);
+    }
+
 }
@@ -0,0 +1,328 @@
+package client.application;
+
+import scotlandyard.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A class to export games as one row per Move for offline analysis,
+ * either as JSON lines or CSV. Saved games can be exported in bulk:
+ * <pre>
+ *   java client.application.GameExporter SavedGames games.jsonl [jsonl|csv] [threads]
+ * </pre>
+ * and games can be recorded as they are played with a Recorder.
+ * The columns are the game, the index of the Move, the part of a double
+ * Move (0 for a single Move), the colour, ticket and target, the round,
+ * the winner, and the score and depth of the AI's search if there was one.
+ */
+
+public class GameExporter implements Closeable {
+
+    private static final String[] kColumns = {"game", "move", "part", "colour", "ticket", "target",
+                                               "round", "winner", "score", "depth"};
+
+    /**
+     * The line format of an export.
+     */
+    public enum Format {
+        JSONL, CSV
+    }
+
+    private final Writer out;
+    private final Format format;
+
+    /**
+     * Constructs a new GameExporter object, writing the CSV header if necessary.
+     *
+     * @param out the Writer to write rows to.
+     * @param format the line format of the rows.
+     * @throws IOException if the header cannot be written.
+     */
+    public GameExporter(Writer out, Format format) throws IOException {
+        this.out = out;
+        this.format = format;
+        if (format == Format.CSV) out.write(String.join(",", kColumns) + "\n");
+    }
+
+    /**
+     * Exports every game save in a directory in parallel.
+     * At most twice as many games as there are threads are held in memory at once.
+     *
+     * @param args the directory of game saves, the output file, and optionally
+     * the format (jsonl or csv) and number of threads.
+     */
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Usage: GameExporter savedGamesDir outputFile [jsonl|csv] [threads]");
+            System.exit(1);
+        }
+        Format format = Format.JSONL;
+        if (args.length > 2) format = Format.valueOf(args[2].toUpperCase());
+        int threads = Runtime.getRuntime().availableProcessors();
+        if (args.length > 3) threads = Integer.parseInt(args[3]);
+        try {
+            long start = System.currentTimeMillis();
+            int games = exportDirectory(Paths.get(args[0]), Paths.get(args[1]), format, threads);
+            System.out.println("Exported " + games + " games in " + (System.currentTimeMillis() - start) + "ms");
+        } catch (Exception e) {
+            System.err.println("Error exporting games :" + e);
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Exports every game save in a directory in parallel.
+     * The rows of each game are written together.
+     *
+     * @param directory the directory containing the game saves.
+     * @param output the file to write the rows to.
+     * @param format the line format of the rows.
+     * @param threads the number of games to convert at once.
+     * @return the number of games exported.
+     * @throws Exception if the directory cannot be read or the output written.
+     */
+    public static int exportDirectory(Path directory, Path output, final Format format, int threads) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final Semaphore inFlight = new Semaphore(threads * 2);
+        final AtomicInteger exported = new AtomicInteger();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.syg");
+             final GameExporter exporter = new GameExporter(Files.newBufferedWriter(output, StandardCharsets.UTF_8), format)) {
+            for (final Path file : files) {
+                inFlight.acquire();
+                executor.execute(() -> {
+                    try {
+                        SaveGame game = read(file.toFile());
+                        exporter.append(rows(file.getFileName().toString(), game, format));
+                        exported.incrementAndGet();
+                    } catch (IOException e) {
+                        System.err.println("Error exporting " + file + " :" + e);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+            executor.shutdown();
+            // The writer is closed when this block ends, so every task must
+            // finish first, however long the export takes.
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                System.err.println("Still exporting game saves, " + exported.get() + " done");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return exported.get();
+    }
+
+    /**
+     * Reads a game save in either the journal or the old serialized format.
+     *
+     * @param file the file containing the game save.
+     * @return the SaveGame read from the file.
+     * @throws IOException if the file cannot be read.
+     */
+    public static SaveGame read(File file) throws IOException {
+        if (GameJournal.isJournal(file)) return GameJournal.read(file);
+        SaveGame game = SaveGame.readSerialized(file);
+        if (game == null) throw new IOException(file.getName() + " is not a game save");
+        return game;
+    }
+
+    /**
+     * Returns the rows for every Move in a saved game.
+     *
+     * @param gameId the identifier of the game in the export.
+     * @param game the SaveGame to export.
+     * @param format the line format of the rows.
+     * @return the rows for the game.
+     */
+    public static String rows(String gameId, SaveGame game, Format format) {
+        StringBuilder builder = new StringBuilder();
+        String winner = game.getWinner().toString();
+        int round = 0;
+        int index = 0;
+        for (Move move : game.getMoves()) {
+            if (move instanceof MoveDouble) {
+                MoveDouble moveDouble = (MoveDouble) move;
+                round++;
+                appendRow(builder, format, gameId, index, 1, moveDouble.move1, round, winner, null, null);
+                round++;
+                appendRow(builder, format, gameId, index, 2, moveDouble.move2, round, winner, null, null);
+            } else {
+                if (move.colour.equals(Colour.Black)) round++;
+                appendRow(builder, format, gameId, index, 0, move, round, winner, null, null);
+            }
+            index++;
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Writes the rows for every Move in a saved game.
+     *
+     * @param gameId the identifier of the game in the export.
+     * @param game the SaveGame to export.
+     * @throws IOException if the rows cannot be written.
+     */
+    public void export(String gameId, SaveGame game) throws IOException {
+        append(rows(gameId, game, format));
+    }
+
+    /**
+     * Returns a Recorder that writes a row for each Move of a game as it is played.
+     *
+     * @param gameId the identifier of the game in the export.
+     * @return the Recorder for the game.
+     */
+    public Recorder record(String gameId) {
+        return new Recorder(gameId);
+    }
+
+    /**
+     * Writes rows to the export.
+     *
+     * @param rows the rows to write.
+     * @throws IOException if the rows cannot be written.
+     */
+    public synchronized void append(String rows) throws IOException {
+        out.write(rows);
+    }
+
+    /**
+     * Flushes and closes the export.
+     *
+     * @throws IOException if the export cannot be closed.
+     */
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+
+    // Appends a row for a Move.
+    // @param builder the StringBuilder to append to.
+    // @param format the line format of the row.
+    // @param gameId the identifier of the game.
+    // @param index the index of the Move in the game.
+    // @param part the part of a double Move, or 0 for a single Move.
+    // @param move the MoveTicket or MovePass.
+    // @param round the round after the Move.
+    // @param winner the side that won the game.
+    // @param score the score of the AI's search, or null.
+    // @param depth the depth of the AI's search, or null.
+    private static void appendRow(StringBuilder builder, Format format, String gameId, int index, int part,
+                                  Move move, int round, String winner, Double score, Integer depth) {
+        String ticket = "Pass";
+        Integer target = null;
+        if (move instanceof MoveTicket) {
+            ticket = ((MoveTicket) move).ticket.toString();
+            target = ((MoveTicket) move).target;
+        }
+        Object[] values = {gameId, index, part, move.colour.toString(), ticket, target, round, winner, score, depth};
+        if (format == Format.CSV) {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) builder.append(',');
+                if (values[i] instanceof String) appendCsv(builder, (String) values[i]);
+                else if (values[i] != null) builder.append(values[i]);
+            }
+        } else {
+            builder.append('{');
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) builder.append(',');
+                builder.append('"').append(kColumns[i]).append("\":");
+                if (values[i] instanceof String) appendJson(builder, (String) values[i]);
+                else if (values[i] instanceof Double && ((Double) values[i]).isInfinite()) builder.append(((Double) values[i]) > 0 ? "1e308" : "-1e308");
+                else builder.append(values[i]);
+            }
+            builder.append('}');
+        }
+        builder.append('\n');
+    }
+
+    // Appends a string as a JSON string.
+    // @param builder the StringBuilder to append to.
+    // @param value the string to append.
+    private static void appendJson(StringBuilder builder, String value) {
+        builder.append('"');
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') builder.append('\\').append(c);
+            else if (c < 0x20) builder.append(String.format("\\u%04x", (int) c));
+            else builder.append(c);
+        }
+        builder.append('"');
+    }
+
+    // Appends a string as a CSV field, quoting it if necessary.
+    // @param builder the StringBuilder to append to.
+    // @param value the string to append.
+    private static void appendCsv(StringBuilder builder, String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            builder.append(value);
+        } else {
+            builder.append('"').append(value.replace("\"", "\"\"")).append('"');
+        }
+    }
+
+    /**
+     * A class to write a row for each Move of a game as it is played.
+     * Moves are given to it as the players choose them, so Mr X's real
+     * locations are recorded and a double Move is recorded as its two parts.
+     */
+    public class Recorder {
+
+        private final String gameId;
+        private int index = 0;
+        private Double score = null;
+        private Integer depth = null;
+
+        // Constructs a new Recorder object.
+        // @param gameId the identifier of the game.
+        private Recorder(String gameId) {
+            this.gameId = gameId;
+        }
+
+        /**
+         * Sets the result of the AI's search for the next Move.
+         *
+         * @param score the score of the AI's search.
+         * @param depth the depth of the AI's search.
+         */
+        public synchronized void evaluation(double score, int depth) {
+            this.score = score;
+            this.depth = depth;
+        }
+
+        /**
+         * Writes the rows for a Move that has been chosen by a player.
+         *
+         * @param move the Move that has been chosen.
+         * @param round the round before the Move is played.
+         */
+        public synchronized void move(Move move, int round) {
+            StringBuilder builder = new StringBuilder();
+            String winner = SaveGame.Winner.None.toString();
+            if (move instanceof MoveDouble) {
+                MoveDouble moveDouble = (MoveDouble) move;
+                appendRow(builder, format, gameId, index, 1, moveDouble.move1, round + 1, winner, score, depth);
+                appendRow(builder, format, gameId, index, 2, moveDouble.move2, round + 2, winner, score, depth);
+            } else {
+                if (move.colour.equals(Colour.Black)) round++;
+                appendRow(builder, format, gameId, index, 0, move, round, winner, score, depth);
+            }
+            try {
+                append(builder.toString());
+                out.flush();
+            } catch (IOException e) {
+                System.err.println("Error recording move :" + e);
+            }
+            index++;
+            score = null;
+            depth = null;
+        }
+
+    }
+
+}
@@ -0,0 +1,462 @@
+package client.application;
+
+import scotlandyard.*;
+import client.model.ModelSnapshot;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * A class to save a game as a compact binary journal.
+ * The file starts with a fixed size header holding the set up and winner of the game,
+ * followed by one record per Move which is appended as soon as it is played:
+ * <pre>
+ *   MoveTicket  3 bytes  [kind|colour|ticket] [target]
+ *   MovePass    1 byte   [kind|colour]
+ *   MoveDouble  7 bytes  [kind|colour] followed by two MoveTicket records
+ *   Snapshot    7 bytes  [kind|players] [move index] [round] [current player] [Mr X seen at]
+ *               followed by 8 bytes per player [colour] [location] [tickets x5]
+ * </pre>
+ * A snapshot of the model is written every few Moves so a replay can
+ * start from any Move without playing every Move before it.
+ * If the application stops part way through writing a record, the
+ * incomplete record is ignored when the game is loaded and overwritten
+ * by the next Move.
+ */
+
+public class GameJournal implements Closeable {
+
+    public static final int kMagic = 0x53594A4C; // "SYJL"
+    public static final short kVersion = 2;
+    public static final int kHeaderSize = 128;
+
+    private static final int kMaxDetectives = 5;
+    private static final int kNameLength = 47;
+    private static final int kWinnerOffset = 118;
+
+    private static final int kTicket = 0;
+    private static final int kDouble = 1;
+    private static final int kPass = 2;
+    private static final int kSnapshot = 3;
+
+    private final FileChannel channel;
+    private final int syncInterval;
+    private final ByteBuffer buffer;
+    private int moveCount;
+    private int unsynced = 0;
+
+    // Constructs a new GameJournal object.
+    // @param channel the FileChannel positioned at the end of the last complete record.
+    // @param moveCount the number of Moves already in the journal.
+    // @param syncInterval the number of Moves between forcing the journal to disk.
+    private GameJournal(FileChannel channel, int moveCount, int syncInterval) {
+        this.channel = channel;
+        this.moveCount = moveCount;
+        this.syncInterval = Math.max(1, syncInterval);
+        this.buffer = ByteBuffer.allocate(64);
+    }
+
+    /**
+     * Creates a new journal containing the set up and Moves of a game,
+     * replacing any existing file, and opens it for appending.
+     *
+     * @param file the file to write the journal to.
+     * @param game the SaveGame to write.
+     * @param syncInterval the number of Moves between forcing the journal to disk.
+     * @return the GameJournal opened for appending.
+     * @throws IOException if the journal cannot be written.
+     */
+    public static GameJournal create(File file, SaveGame game, int syncInterval) throws IOException {
+        write(file, game);
+        return open(file, syncInterval);
+    }
+
+    /**
+     * Opens an existing journal for appending.
+     * Any incomplete record at the end of the file is discarded.
+     *
+     * @param file the file containing the journal.
+     * @param syncInterval the number of Moves between forcing the journal to disk.
+     * @return the GameJournal opened for appending.
+     * @throws IOException if the file cannot be opened or is not a journal.
+     */
+    public static GameJournal open(File file, int syncInterval) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            ByteBuffer data = readAll(channel);
+            SaveGame game = readHeader(data, file.getName());
+            int moveCount = readMoves(data, game);
+            channel.truncate(data.position());
+            channel.position(data.position());
+            return new GameJournal(channel, moveCount, syncInterval);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes the set up and Moves of a game to a new journal.
+     * The journal is written to a temporary file which then replaces
+     * the existing file, so a failed write never damages a saved game.
+     *
+     * @param file the file to write the journal to.
+     * @param game the SaveGame to write.
+     * @throws IOException if the journal cannot be written.
+     */
+    public static void write(File file, SaveGame game) throws IOException {
+        List<Move> moves = game.getMoves();
+        NavigableMap<Integer, ModelSnapshot> snapshots = game.getSnapshots();
+        ByteBuffer data = ByteBuffer.allocate(kHeaderSize + 7 * moves.size() + 64 * snapshots.size());
+        writeHeader(data, game);
+        for (int i = 0; i <= moves.size(); i++) {
+            ModelSnapshot snapshot = snapshots.get(i);
+            if (snapshot != null) writeSnapshot(data, i, snapshot);
+            if (i < moves.size()) writeMove(data, moves.get(i));
+        }
+        data.flip();
+
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE,
+                                                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (data.hasRemaining()) channel.write(data);
+            channel.force(true);
+        }
+        try {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Reads a game from a journal.
+     * Any incomplete record at the end of the file is ignored.
+     *
+     * @param file the file containing the journal.
+     * @return the SaveGame read from the journal.
+     * @throws IOException if the file cannot be read or is not a journal.
+     */
+    public static SaveGame read(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer data = readAll(channel);
+            SaveGame game = readHeader(data, file.getName());
+            readMoves(data, game);
+            return game;
+        }
+    }
+
+    /**
+     * Returns true if the file starts with a journal header.
+     *
+     * @param file the file to check.
+     * @return true if the file starts with a journal header.
+     */
+    public static boolean isJournal(File file) {
+        try (DataInputStream input = new DataInputStream(new FileInputStream(file))) {
+            return input.readInt() == kMagic;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Appends a Move to the journal, forcing it to disk if the
+     * sync interval has been reached.
+     *
+     * @param move the Move to append.
+     */
+    public synchronized void append(Move move) {
+        try {
+            buffer.clear();
+            writeMove(buffer, move);
+            buffer.flip();
+            while (buffer.hasRemaining()) channel.write(buffer);
+            moveCount++;
+            if (++unsynced >= syncInterval) sync();
+        } catch (IOException e) {
+            System.err.println("Error appending to the game save :" + e);
+        }
+    }
+
+    /**
+     * Appends a snapshot of the model to the journal. Snapshots are
+     * forced to disk along with the next Move.
+     *
+     * @param index the index of the next Move to be played.
+     * @param snapshot the ModelSnapshot to append.
+     */
+    public synchronized void append(int index, ModelSnapshot snapshot) {
+        try {
+            buffer.clear();
+            writeSnapshot(buffer, index, snapshot);
+            buffer.flip();
+            while (buffer.hasRemaining()) channel.write(buffer);
+        } catch (IOException e) {
+            System.err.println("Error appending to the game save :" + e);
+        }
+    }
+
+    /**
+     * Records the side that won the game in the header of the journal.
+     *
+     * @param winner the side that won the game.
+     */
+    public synchronized void writeWinner(SaveGame.Winner winner) {
+        try {
+            channel.write(ByteBuffer.wrap(new byte[] {(byte) winner.ordinal()}), kWinnerOffset);
+            unsynced++;
+            sync();
+        } catch (IOException e) {
+            System.err.println("Error writing to the game save :" + e);
+        }
+    }
+
+    /**
+     * Forces all appended Moves to disk.
+     */
+    public synchronized void sync() {
+        if (unsynced == 0 || !channel.isOpen()) return;
+        try {
+            channel.force(false);
+            unsynced = 0;
+        } catch (IOException e) {
+            System.err.println("Error syncing the game save :" + e);
+        }
+    }
+
+    /**
+     * Returns the number of Moves in the journal.
+     *
+     * @return the number of Moves in the journal.
+     */
+    public synchronized int getMoveCount() {
+        return moveCount;
+    }
+
+    /**
+     * Forces all appended Moves to disk and closes the journal.
+     */
+    public synchronized void close() {
+        if (!channel.isOpen()) return;
+        sync();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Error closing the game save :" + e);
+        }
+    }
+
+    // Reads the whole of a file into a buffer.
+    // @param channel the FileChannel to read.
+    // @return the buffer holding the contents of the file, positioned at the start.
+    private static ByteBuffer readAll(FileChannel channel) throws IOException {
+        ByteBuffer data = ByteBuffer.allocate((int) channel.size());
+        channel.position(0);
+        while (data.hasRemaining() && channel.read(data) >= 0);
+        data.flip();
+        return data;
+    }
+
+    // Writes the header of a game.
+    // @param data the buffer to write to.
+    // @param game the SaveGame to write the header for.
+    private static void writeHeader(ByteBuffer data, SaveGame game) {
+        int start = data.position();
+        int[] detectives = game.getDetectiveLocations();
+        data.putInt(kMagic);
+        data.putShort(kVersion);
+        data.putShort((short) kHeaderSize);
+        data.put((byte) game.getNumberOfPlayers());
+        data.put((byte) detectives.length);
+        data.putShort((short) game.getMrXLocation());
+        for (int i = 0; i < kMaxDetectives; i++) {
+            data.putShort((short) (i < detectives.length ? detectives[i] : 0));
+        }
+        putString(data, game.getGameName());
+        putString(data, game.getGraphFileName());
+        data.put(start + kWinnerOffset, (byte) game.getWinner().ordinal());
+        data.position(start + kHeaderSize);
+    }
+
+    // Reads the header of a game.
+    // @param data the buffer to read from.
+    // @param filename the file name of the game save.
+    // @return the SaveGame described by the header, without any Moves.
+    private static SaveGame readHeader(ByteBuffer data, String filename) throws IOException {
+        if (data.remaining() < kHeaderSize || data.getInt() != kMagic) {
+            throw new IOException(filename + " is not a game save");
+        }
+        short version = data.getShort();
+        if (version > kVersion) throw new IOException(filename + " was saved by a newer version (" + version + ")");
+        int headerSize = data.getShort() & 0xFFFF;
+        int numberOfPlayers = data.get();
+        int[] detectives = new int[data.get()];
+        int mrX = data.getShort() & 0xFFFF;
+        for (int i = 0; i < kMaxDetectives; i++) {
+            int location = data.getShort() & 0xFFFF;
+            if (i < detectives.length) detectives[i] = location;
+        }
+        String gameName = getString(data);
+        String graphName = getString(data);
+        int winner = data.get(kWinnerOffset);
+        data.position(headerSize);
+
+        SaveGame game = new SaveGame(numberOfPlayers, graphName, gameName, filename);
+        if (winner > 0 && winner < SaveGame.Winner.values().length) game.setWinner(SaveGame.Winner.values()[winner]);
+        game.setMrXLocation(mrX);
+        game.setDetectiveLocations(detectives);
+        return game;
+    }
+
+    // Reads the complete Move and snapshot records from the buffer into a game.
+    // The game is left ready to replay from the first Move.
+    // @param data the buffer to read from, positioned after the header.
+    // It is left positioned after the last complete record.
+    // @param game the SaveGame to add the Moves to.
+    // @return the number of Moves read.
+    private static int readMoves(ByteBuffer data, SaveGame game) {
+        int count = 0;
+        while (data.hasRemaining()) {
+            int start = data.position();
+            if ((data.get(start) & 0xFF) >> 6 == kSnapshot) {
+                if (!readSnapshot(data, game)) {
+                    data.position(start);
+                    break;
+                }
+                continue;
+            }
+            Move move = readMove(data);
+            if (move == null) {
+                data.position(start);
+                break;
+            }
+            game.addMove(move);
+            count++;
+        }
+        game.seek(0);
+        return count;
+    }
+
+    // Writes a snapshot record.
+    // @param data the buffer to write to.
+    // @param index the index of the next Move to be played.
+    // @param snapshot the ModelSnapshot to write.
+    private static void writeSnapshot(ByteBuffer data, int index, ModelSnapshot snapshot) {
+        int players = snapshot.getNumberOfPlayers();
+        data.put((byte) ((kSnapshot << 6) | players));
+        data.putShort((short) index);
+        data.put((byte) snapshot.getRound());
+        data.put((byte) snapshot.getCurrentPlayer().ordinal());
+        data.putShort((short) snapshot.getMrXLocation());
+        for (int i = 0; i < players; i++) {
+            data.put((byte) snapshot.getColour(i).ordinal());
+            data.putShort((short) snapshot.getLocation(i));
+            for (Ticket ticket : Ticket.values()) data.put((byte) snapshot.getTickets(i, ticket));
+        }
+    }
+
+    // Reads a snapshot record into a game.
+    // @param data the buffer to read from.
+    // @param game the SaveGame to add the snapshot to.
+    // @return false if the record is incomplete or damaged.
+    private static boolean readSnapshot(ByteBuffer data, SaveGame game) {
+        int players = data.get() & 0x3F;
+        if (data.remaining() < 6 + 8 * players) return false;
+        int index = data.getShort() & 0xFFFF;
+        int round = data.get();
+        int current = data.get();
+        int mrX = data.getShort() & 0xFFFF;
+        Colour[] colours = new Colour[players];
+        int[] locations = new int[players];
+        int[][] tickets = new int[players][Ticket.values().length];
+        for (int i = 0; i < players; i++) {
+            int colour = data.get();
+            if (colour < 0 || colour >= Colour.values().length) return false;
+            colours[i] = Colour.values()[colour];
+            locations[i] = data.getShort() & 0xFFFF;
+            for (int t = 0; t < tickets[i].length; t++) tickets[i][t] = data.get();
+        }
+        if (current < 0 || current >= Colour.values().length) return false;
+        game.addSnapshot(index, new ModelSnapshot(round, Colour.values()[current], mrX, colours, locations, tickets));
+        return true;
+    }
+
+    // Writes a Move record.
+    // @param data the buffer to write to.
+    // @param move the Move to write.
+    private static void writeMove(ByteBuffer data, Move move) {
+        if (move instanceof MoveDouble) {
+            MoveDouble moveDouble = (MoveDouble) move;
+            data.put(tag(kDouble, move.colour, 0));
+            writeMove(data, moveDouble.move1);
+            writeMove(data, moveDouble.move2);
+        } else if (move instanceof MovePass) {
+            data.put(tag(kPass, move.colour, 0));
+        } else if (move instanceof MoveTicket) {
+            MoveTicket moveTicket = (MoveTicket) move;
+            data.put(tag(kTicket, move.colour, moveTicket.ticket.ordinal()));
+            data.putShort((short) moveTicket.target);
+        }
+    }
+
+    // Reads a Move record.
+    // @param data the buffer to read from.
+    // @return the Move, or null if the record is incomplete or damaged.
+    private static Move readMove(ByteBuffer data) {
+        if (!data.hasRemaining()) return null;
+        int tag = data.get() & 0xFF;
+        int kind = tag >> 6;
+        int colourIndex = (tag >> 3) & 0x7;
+        int ticketIndex = tag & 0x7;
+        if (colourIndex >= Colour.values().length) return null;
+        Colour colour = Colour.values()[colourIndex];
+        if (kind == kPass) {
+            return MovePass.instance(colour);
+        } else if (kind == kTicket) {
+            if (data.remaining() < 2 || ticketIndex >= Ticket.values().length) return null;
+            return MoveTicket.instance(colour, Ticket.values()[ticketIndex], data.getShort() & 0xFFFF);
+        } else if (kind == kDouble) {
+            Move move1 = readMove(data);
+            Move move2 = readMove(data);
+            if (!(move1 instanceof MoveTicket) || !(move2 instanceof MoveTicket)) return null;
+            return MoveDouble.instance(colour, (MoveTicket) move1, (MoveTicket) move2);
+        }
+        return null;
+    }
+
+    // Returns the first byte of a Move record.
+    // @param kind the kind of Move.
+    // @param colour the colour of the player making the Move.
+    // @param ticket the ordinal of the Ticket used.
+    // @return the first byte of the record.
+    private static byte tag(int kind, Colour colour, int ticket) {
+        return (byte) ((kind << 6) | (colour.ordinal() << 3) | ticket);
+    }
+
+    // Writes a length prefixed string, truncated to fit in the header.
+    // @param data the buffer to write to.
+    // @param string the string to write.
+    private static void putString(ByteBuffer data, String string) {
+        byte[] bytes = (string == null ? "" : string).getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, kNameLength);
+        data.put((byte) length);
+        data.put(bytes, 0, length);
+        data.position(data.position() + kNameLength - length);
+    }
+
+    // Reads a length prefixed string.
+    // @param data the buffer to read from.
+    // @return the string.
+    private static String getString(ByteBuffer data) {
+        int length = Math.min(data.get() & 0xFF, kNameLength);
+        byte[] bytes = new byte[kNameLength];
+        data.get(bytes);
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+}
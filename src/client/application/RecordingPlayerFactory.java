@@ -0,0 +1,116 @@
+package client.application;
+
+import net.PlayerFactory;
+import scotlandyard.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A PlayerFactory that records the Moves chosen by the Players made by
+ * another PlayerFactory, so headless games can be exported like the ones
+ * played in the application. Each game is recorded as JSON lines in its
+ * own file in the directory given.
+ */
+
+public class RecordingPlayerFactory implements PlayerFactory {
+
+    private static final AtomicInteger games = new AtomicInteger();
+
+    private final PlayerFactory factory;
+    private final File directory;
+    private GameExporter recording = null;
+    private GameExporter.Recorder recorder = null;
+
+    /**
+     * Constructs a new RecordingPlayerFactory object.
+     *
+     * @param factory the PlayerFactory that makes the Players.
+     * @param directory the directory to record the game in.
+     */
+    public RecordingPlayerFactory(PlayerFactory factory, File directory) {
+        this.factory = factory;
+        this.directory = directory;
+    }
+
+    /**
+     * Returns a PlayerFactory that records its games in the directory named
+     * by the scotlandyard.record property, or the PlayerFactory itself if
+     * the property is not set.
+     *
+     * @param factory the PlayerFactory that makes the Players.
+     * @return the PlayerFactory to play with.
+     */
+    public static PlayerFactory wrap(PlayerFactory factory) {
+        String directory = System.getProperty("scotlandyard.record");
+        if (directory == null) return factory;
+        return new RecordingPlayerFactory(factory, new File(directory));
+    }
+
+    /**
+     * Returns a Player whose chosen Moves are recorded.
+     *
+     * @param colour the Colour of the player in the game.
+     * @param view the ScotlandYardView containing information about the game.
+     * @param graphFilename the path to the file containing the Graph.
+     * @return the Player.
+     */
+    @Override
+    public Player player(Colour colour, ScotlandYardView view, String graphFilename) {
+        final Player player = factory.player(colour, view, graphFilename);
+        final GameExporter.Recorder recorder = recorder();
+        return (location, moves) -> {
+            int round = view.getRound();
+            Move move = player.notify(location, moves);
+            if (recorder != null && move != null) recorder.move(move, round);
+            return move;
+        };
+    }
+
+    @Override
+    public List<Spectator> getSpectators(ScotlandYardView view) {
+        return factory.getSpectators(view);
+    }
+
+    @Override
+    public void ready() {
+        factory.ready();
+    }
+
+    /**
+     * Called when the game ends.
+     * Closes the recording of the game.
+     */
+    @Override
+    public void finish() {
+        synchronized (this) {
+            if (recording != null) {
+                try {
+                    recording.close();
+                } catch (IOException e) {
+                    System.err.println("Error stopping recording the game :" + e);
+                }
+            }
+        }
+        factory.finish();
+    }
+
+    // Returns the Recorder for the game, starting the recording the first
+    // time it is asked for.
+    // @return the Recorder for the game, or null if it cannot be started.
+    private synchronized GameExporter.Recorder recorder() {
+        if (recorder != null || recording != null) return recorder;
+        try {
+            String name = "headless#" + System.currentTimeMillis() / 1000L + "-" + games.incrementAndGet();
+            directory.mkdirs();
+            recording = new GameExporter(new BufferedWriter(new FileWriter(new File(directory, name + ".jsonl"))),
+                                         GameExporter.Format.JSONL);
+            recorder = recording.record(name);
+        } catch (IOException e) {
+            System.err.println("Error starting to record the game :" + e);
+        }
+        return recorder;
+    }
+
+}
@@ -0,0 +1,349 @@
+package client.application;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * A class to keep an index of the saved games so they can be listed
+ * without opening every game save.
+ * The catalogue is a file of fixed size records which is memory-mapped
+ * for reading. An update appends a new record for the game and then
+ * increases the record count in the header, so a partly written record
+ * is never seen. The latest record for each game save is the one used,
+ * and the catalogue is compacted to one record per game save once most of
+ * its records are out of date.
+ */
+
+public class SaveCatalogue {
+
+    public static final String kFileName = "catalogue.idx";
+
+    private static final int kMagic = 0x53594743; // "SYGC"
+    private static final short kVersion = 1;
+    private static final int kHeaderSize = 16;
+    private static final int kCountOffset = 8;
+    private static final int kRecordSize = 256;
+    private static final int kMaxFilename = kRecordSize - 22;
+    // The least number of records before the catalogue is compacted.
+    private static final int kCompactRecords = 64;
+
+    private final File file;
+    private FileChannel channel = null;
+    private MappedByteBuffer map = null;
+    private int count = 0;
+    private int compactAt = kCompactRecords;
+
+    /**
+     * Constructs a new SaveCatalogue object.
+     *
+     * @param directory the directory containing the game saves.
+     */
+    public SaveCatalogue(File directory) {
+        this.file = new File(directory, kFileName);
+    }
+
+    /**
+     * Returns true if the catalogue exists and is valid.
+     *
+     * @return true if the catalogue exists and is valid.
+     */
+    public synchronized boolean isValid() {
+        try {
+            open();
+            return true;
+        } catch (IOException e) {
+            close();
+            return false;
+        }
+    }
+
+    /**
+     * Replaces the catalogue with one containing the specified entries.
+     *
+     * @param entries the entries for every game save.
+     * @throws IOException if the catalogue cannot be written.
+     */
+    public synchronized void rebuild(List<Entry> entries) throws IOException {
+        close();
+        ByteBuffer data = ByteBuffer.allocate(kHeaderSize + kRecordSize * entries.size());
+        data.putInt(kMagic);
+        data.putShort(kVersion);
+        data.putShort((short) 0);
+        data.putInt(kCountOffset, entries.size());
+        data.position(kHeaderSize);
+        for (Entry entry : entries) putEntry(data, entry);
+        data.flip();
+        compactAt = Math.max(kCompactRecords, entries.size() * 2);
+
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE,
+                                                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (data.hasRemaining()) out.write(data);
+            out.force(true);
+        }
+        try {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Adds or updates the entry for a game save.
+     *
+     * @param entry the new entry for the game save.
+     * @throws IOException if the catalogue cannot be updated.
+     */
+    public synchronized void update(Entry entry) throws IOException {
+        open();
+        ByteBuffer data = ByteBuffer.allocate(kRecordSize);
+        putEntry(data, entry);
+        data.flip();
+        long position = kHeaderSize + (long) count * kRecordSize;
+        while (data.hasRemaining()) position += channel.write(data, position);
+        channel.force(false);
+
+        ByteBuffer header = ByteBuffer.allocate(4);
+        header.putInt(0, count + 1);
+        channel.write(header, kCountOffset);
+        channel.force(false);
+        count++;
+        map = null;
+        if (count >= compactAt) compact();
+    }
+
+    /**
+     * Replaces the catalogue with one containing only the latest entry
+     * for each game save.
+     *
+     * @throws IOException if the catalogue cannot be read or written.
+     */
+    public synchronized void compact() throws IOException {
+        rebuild(list());
+    }
+
+    /**
+     * Returns the latest entry for every game save, newest first.
+     *
+     * @return the List of entries.
+     * @throws IOException if the catalogue cannot be read.
+     */
+    public List<Entry> list() throws IOException {
+        return find(entry -> true);
+    }
+
+    /**
+     * Returns the latest entry for every game save that matches a filter, newest first.
+     *
+     * @param filter the Predicate the entries must match.
+     * @return the List of matching entries.
+     * @throws IOException if the catalogue cannot be read.
+     */
+    public synchronized List<Entry> find(Predicate<Entry> filter) throws IOException {
+        open();
+        if (map == null) map = channel.map(FileChannel.MapMode.READ_ONLY, 0, kHeaderSize + (long) count * kRecordSize);
+        Map<String, Entry> latest = new HashMap<String, Entry>();
+        for (int i = 0; i < count; i++) {
+            Entry entry = getEntry(map, kHeaderSize + i * kRecordSize);
+            if (entry != null) latest.put(entry.getFilename(), entry);
+        }
+        List<Entry> entries = new ArrayList<Entry>();
+        for (Entry entry : latest.values()) {
+            if (filter.test(entry)) entries.add(entry);
+        }
+        entries.sort((a, b) -> Long.compare(b.getTimestamp(), a.getTimestamp()));
+        return entries;
+    }
+
+    /**
+     * Closes the catalogue.
+     */
+    public synchronized void close() {
+        map = null;
+        count = 0;
+        if (channel == null) return;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println(e);
+        }
+        channel = null;
+    }
+
+    // Opens the catalogue and reads its header if it is not already open.
+    private void open() throws IOException {
+        if (channel != null) return;
+        if (!file.exists()) throw new FileNotFoundException(file.getPath());
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(kHeaderSize);
+        while (header.hasRemaining() && channel.read(header, header.position()) > 0);
+        header.flip();
+        if (header.remaining() < kHeaderSize || header.getInt(0) != kMagic || header.getShort(4) > kVersion) {
+            close();
+            throw new IOException(file.getPath() + " is not a saved game catalogue");
+        }
+        // Ignore any record written after the count was last updated.
+        long records = (channel.size() - kHeaderSize) / kRecordSize;
+        count = (int) Math.min(header.getInt(kCountOffset), records);
+        map = null;
+    }
+
+    // Writes an entry as a record.
+    // @param data the buffer to write to.
+    // @param entry the Entry to write.
+    private static void putEntry(ByteBuffer data, Entry entry) {
+        int start = data.position();
+        byte[] name = entry.getFilename().getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(name.length, kMaxFilename);
+        data.put((byte) 1);
+        data.put((byte) entry.getNumberOfPlayers());
+        data.put((byte) entry.getRounds());
+        data.put((byte) entry.getWinner().ordinal());
+        data.putLong(entry.getTimestamp());
+        data.putLong(entry.getOffset());
+        data.putShort((short) length);
+        data.put(name, 0, length);
+        data.position(start + kRecordSize);
+    }
+
+    // Reads an entry from a record.
+    // @param data the buffer to read from.
+    // @param start the position of the record.
+    // @return the Entry, or null if the record is not in use.
+    private static Entry getEntry(ByteBuffer data, int start) {
+        if (data.get(start) != 1) return null;
+        int winner = data.get(start + 3);
+        if (winner < 0 || winner >= SaveGame.Winner.values().length) winner = 0;
+        int length = Math.max(0, Math.min(data.getShort(start + 20), kMaxFilename));
+        byte[] name = new byte[length];
+        for (int i = 0; i < length; i++) name[i] = data.get(start + 22 + i);
+        return new Entry(new String(name, StandardCharsets.UTF_8), data.getLong(start + 4),
+                         data.get(start + 1), data.get(start + 2) & 0xFF,
+                         SaveGame.Winner.values()[winner], data.getLong(start + 12));
+    }
+
+    /**
+     * The catalogue entry for a single game save.
+     */
+    public static class Entry {
+
+        private final String filename;
+        private final long timestamp;
+        private final int numberOfPlayers;
+        private final int rounds;
+        private final SaveGame.Winner winner;
+        private final long offset;
+
+        /**
+         * Constructs a new Entry object.
+         *
+         * @param filename the file name of the game save.
+         * @param timestamp the time the game was started in milliseconds.
+         * @param numberOfPlayers the number of players in the game.
+         * @param rounds the number of rounds that have been played.
+         * @param winner the side that won the game.
+         * @param offset the length of the game save when it was catalogued.
+         */
+        public Entry(String filename, long timestamp, int numberOfPlayers, int rounds,
+                     SaveGame.Winner winner, long offset) {
+            this.filename = filename;
+            this.timestamp = timestamp;
+            this.numberOfPlayers = numberOfPlayers;
+            this.rounds = rounds;
+            this.winner = winner;
+            this.offset = offset;
+        }
+
+        /**
+         * Returns the file name of the game save.
+         *
+         * @return the file name of the game save.
+         */
+        public String getFilename() {
+            return filename;
+        }
+
+        /**
+         * Returns the name of the game, taken from the file name.
+         *
+         * @return the name of the game.
+         */
+        public String getGameName() {
+            int hash = filename.lastIndexOf('#');
+            if (hash >= 0) return filename.substring(0, hash);
+            if (filename.endsWith(".syg")) return filename.substring(0, filename.length() - 4);
+            return filename;
+        }
+
+        /**
+         * Returns the time the game was started in milliseconds.
+         *
+         * @return the time the game was started in milliseconds.
+         */
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        /**
+         * Returns the number of players in the game.
+         *
+         * @return the number of players in the game.
+         */
+        public int getNumberOfPlayers() {
+            return numberOfPlayers;
+        }
+
+        /**
+         * Returns the number of rounds that have been played.
+         *
+         * @return the number of rounds that have been played.
+         */
+        public int getRounds() {
+            return rounds;
+        }
+
+        /**
+         * Returns the side that won the game.
+         *
+         * @return the side that won the game.
+         */
+        public SaveGame.Winner getWinner() {
+            return winner;
+        }
+
+        /**
+         * Returns the length of the game save when it was catalogued.
+         *
+         * @return the length of the game save when it was catalogued.
+         */
+        public long getOffset() {
+            return offset;
+        }
+
+        /**
+         * Returns the time a game was started, taken from the file name
+         * of its game save.
+         *
+         * @param filename the file name of the game save.
+         * @return the time the game was started in milliseconds, or 0
+         * if the file name does not contain it.
+         */
+        public static long timestamp(String filename) {
+            int hash = filename.lastIndexOf('#');
+            int dot = filename.lastIndexOf('.');
+            if (hash < 0 || dot < hash) return 0;
+            try {
+                return Long.parseLong(filename.substring(hash + 1, dot)) * 1000L;
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+
+    }
+
+}
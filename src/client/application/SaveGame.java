@@ -1,13 +1,15 @@
 package client.application;
 
 import scotlandyard.*;
+import client.model.ModelSnapshot;
 
 import java.util.*;
-import java.io.Serializable;
+import java.io.*;
 
 /**
  * A class that represents the state of a game at any point in time.
- * Implements Serializable for easy game saving.
+ * Games are saved by a GameJournal; Serializable is kept so that
+ * games saved in the old format can still be loaded.
  */
 
 public class SaveGame implements Serializable {
@@ -19,9 +21,19 @@ public class SaveGame implements Serializable {
     private String filename;
     private String gameName;
     private List<SaveMove> moves;
-    private transient List<SaveMove> savedMoves;
+    private transient NavigableMap<Integer, ModelSnapshot> snapshots;
+    private transient int playedMoves = 0;
     private int[] detectiveLocations;
     private int mrXLocation;
+    private transient GameJournal journal = null;
+    private transient Winner winner = null;
+    
+    /**
+     * The side that won a saved game.
+     */
+    public enum Winner {
+        None, MrX, Detectives
+    }
     
     /**
      * Blank constructor for the implementation of Serializable.
@@ -46,6 +58,40 @@ public class SaveGame implements Serializable {
         this.filename = savePath;
     }
     
+    /**
+     * Constructs a SaveGame object for a game that has already been saved.
+     *
+     * @param numberOfPlayers the number of players in the game.
+     * @param graphFileName the path to the graph file used in the game.
+     * @param gameName the name of the game.
+     * @param filename the file name of the game save.
+     */
+    public SaveGame(int numberOfPlayers, String graphFileName, String gameName, String filename) {
+        this.numberOfPlayers = numberOfPlayers;
+        this.graphFileName = graphFileName;
+        this.gameName = gameName;
+        this.filename = filename;
+        moves = new ArrayList<SaveMove>();
+    }
+    
+    /**
+     * Reads a game saved in the old serialized format.
+     *
+     * @param file the file containing the game.
+     * @return the SaveGame object of the game, or null if the file
+     * does not contain one.
+     * @throws IOException if the file cannot be read.
+     */
+    public static SaveGame readSerialized(File file) throws IOException {
+        InputStream buffer = new BufferedInputStream(new FileInputStream(file));
+        try (ObjectInput input = new ObjectInputStream(buffer)) {
+            return (SaveGame) input.readObject();
+        } catch (ClassNotFoundException | ClassCastException e) {
+            System.err.println(e);
+        }
+        return null;
+    }
+    
     /**
      * Sets the initial locations of the detectives.
      *
@@ -126,24 +172,162 @@ public class SaveGame implements Serializable {
      * false otherwise.
      */
     public boolean hasSavedMove() {
-        if (savedMoves == null) {
-            savedMoves = moves;
-            moves = new ArrayList<SaveMove>();
-        }
-        if (savedMoves.size() > 0) return true;
-        return false;
+        return playedMoves < moves.size();
     }
     
     /**
      * Returns the next saved move in the game.
+     * The move is marked as played when it is passed to addMove.
      *
      * @return the next saved move in the game.
      */
     public Move getSavedMove() {
-        SaveMove sMove = savedMoves.get(0);
-        Move move = sMove.move();
-        savedMoves.remove(0);
-        return move;
+        return moves.get(playedMoves).move();
+    }
+    
+    /**
+     * Returns the number of moves that have been played so far.
+     *
+     * @return the number of moves that have been played so far.
+     */
+    public int getPlayedMoves() {
+        return playedMoves;
+    }
+    
+    /**
+     * Returns the number of moves in the save game.
+     *
+     * @return the number of moves in the save game.
+     */
+    public int getMoveCount() {
+        return moves.size();
+    }
+    
+    /**
+     * Moves the replay to the specified move, so the next saved
+     * move returned is the one at that index.
+     *
+     * @param index the index of the next move to replay.
+     */
+    public void seek(int index) {
+        playedMoves = Math.max(0, Math.min(index, moves.size()));
+    }
+    
+    /**
+     * Returns the number of rounds Mr X has played.
+     *
+     * @return the number of rounds Mr X has played.
+     */
+    public int getRounds() {
+        int rounds = 0;
+        for (SaveMove sMove : moves) {
+            if (!sMove.colour.equals(Colour.Black.toString())) continue;
+            rounds += (sMove instanceof SaveMoveDouble) ? 2 : 1;
+        }
+        return rounds;
+    }
+    
+    /**
+     * Sets the side that won the game.
+     *
+     * @param winner the side that won the game.
+     */
+    public void setWinner(Winner winner) {
+        this.winner = winner;
+        if (journal != null) journal.writeWinner(getWinner());
+    }
+    
+    /**
+     * Returns the side that won the game.
+     *
+     * @return the side that won the game, or Winner.None if
+     * the game has not finished.
+     */
+    public Winner getWinner() {
+        if (winner == null) return Winner.None;
+        return winner;
+    }
+    
+    /**
+     * Returns all of the Moves in the save game, in the order they were played.
+     *
+     * @return the List of Moves in the save game.
+     */
+    public List<Move> getMoves() {
+        List<Move> list = new ArrayList<Move>();
+        for (SaveMove sMove : moves) list.add(sMove.move());
+        return list;
+    }
+    
+    /**
+     * Adds a snapshot of the game taken before the specified move was played.
+     * Snapshots that are already in the save game are ignored.
+     *
+     * @param index the index of the next move to be played.
+     * @param snapshot the ModelSnapshot of the game.
+     */
+    public void addSnapshot(int index, ModelSnapshot snapshot) {
+        if (getSnapshots().containsKey(index)) return;
+        snapshots.put(index, snapshot);
+        if (journal != null) journal.append(index, snapshot);
+    }
+    
+    /**
+     * Returns the latest snapshot taken at or before the specified move.
+     *
+     * @param index the index of the move.
+     * @return the entry mapping the index of the move to the snapshot,
+     * or null if there is no such snapshot.
+     */
+    public Map.Entry<Integer, ModelSnapshot> nearestSnapshot(int index) {
+        return getSnapshots().floorEntry(index);
+    }
+    
+    /**
+     * Returns the snapshots in the save game, keyed by the index of the
+     * next move to be played.
+     *
+     * @return the NavigableMap of move indices to snapshots.
+     */
+    public NavigableMap<Integer, ModelSnapshot> getSnapshots() {
+        // Snapshots are not serialized, so may be missing from old game saves.
+        if (snapshots == null) snapshots = new TreeMap<Integer, ModelSnapshot>();
+        return snapshots;
+    }
+    
+    /**
+     * Attaches a GameJournal so that every new Move is appended to the
+     * game save as soon as it is played.
+     *
+     * @param journal the GameJournal to append Moves to.
+     */
+    public void attachJournal(GameJournal journal) {
+        closeJournal();
+        this.journal = journal;
+    }
+    
+    /**
+     * Returns true if a GameJournal is attached to the save game.
+     *
+     * @return true if a GameJournal is attached to the save game.
+     */
+    public boolean hasJournal() {
+        return journal != null;
+    }
+    
+    /**
+     * Forces any Moves appended to the GameJournal to disk.
+     */
+    public void syncJournal() {
+        if (journal != null) journal.sync();
+    }
+    
+    /**
+     * Forces the GameJournal to disk and detaches it.
+     */
+    public void closeJournal() {
+        if (journal != null) journal.close();
+        journal = null;
     }
     
     /**
@@ -152,6 +336,11 @@ public class SaveGame implements Serializable {
      * @param move the Move to be added to the save game.
      */
     public void addMove(Move move) {
+        if (playedMoves < moves.size()) {
+            // Replayed moves are already in the save game.
+            playedMoves++;
+            return;
+        }
         SaveMove saveMove = null;
         if (move instanceof MoveDouble) {
             saveMove = new SaveMoveDouble((MoveDouble)move);
@@ -160,7 +349,10 @@ public class SaveGame implements Serializable {
         } else if (move instanceof MoveTicket) {
             saveMove = new SaveMoveTicket((MoveTicket)move);
         }
-        if (saveMove != null) moves.add(saveMove);
+        if (saveMove == null) return;
+        moves.add(saveMove);
+        playedMoves++;
+        if (journal != null) journal.append(move);
     }
     
     // Base class to make Moves serializable.
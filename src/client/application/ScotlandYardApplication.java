@@ -13,12 +13,13 @@ import java.awt.event.*;
 import java.util.List;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.function.Consumer;
 
 /**
  * A class to start the application.
  */
 
-public class ScotlandYardApplication implements WindowListener, ActionListener, Runnable {
+public class ScotlandYardApplication implements WindowListener, ActionListener {
 
     public boolean DEBUG = true;
     private boolean demo = false;
@@ -29,6 +30,9 @@ public class ScotlandYardApplication implements WindowListener, ActionListener,
     private FileAccess fileAccess;
     private ThreadCommunicator threadCom;
     private JPanel container;
+    private UpdatePipeline pipeline = null;
+    private final Map<Update, Consumer<Object>> handlers = new EnumMap<Update, Consumer<Object>>(Update.class);
+    private final Map<Update, Consumer<Object>> backgroundHandlers = new EnumMap<Update, Consumer<Object>>(Update.class);
 
     private final int kNormalTimer = 260;
     private final int kDemoTime = 20;
@@ -50,6 +54,7 @@ public class ScotlandYardApplication implements WindowListener, ActionListener,
     public ScotlandYardApplication() {
         this.fileAccess = new FileAccess();
         this.aiView = new AIView(fileAccess);
+        registerHandlers();
     }
 
     /**
@@ -78,6 +83,13 @@ public class ScotlandYardApplication implements WindowListener, ActionListener,
         };
         gameView.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke("F10"), "menu");
         gameView.getActionMap().put("menu", menu);
+        Action fastForward = new AbstractAction() {
+            public void actionPerformed(ActionEvent e) {
+                if (game != null) game.setFastForward(!game.isFastForward());
+            }
+        };
+        gameView.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke("F9"), "fastForward");
+        gameView.getActionMap().put("fastForward", fastForward);
         window.addComponentListener(gameView);
         container.add(gameView);
         JPanel panel = new JPanel(new GridBagLayout());
@@ -152,9 +164,16 @@ public class ScotlandYardApplication implements WindowListener, ActionListener,
             }
         } else if (e.getActionCommand().equals("loadGame")) {
             if (setUpView.loadFilePath() != null) {
-                threadCom = new ThreadCommunicator();
-                beginGame(kNormalTimer);
-                loadGame();
+                SaveGame saveGame = fileAccess.loadGame(setUpView.loadFilePath());
+                if (saveGame != null) {
+                    threadCom = new ThreadCommunicator();
+                    beginGame(kNormalTimer);
+                    loadGame(saveGame);
+                } else {
+                    JOptionPane.showMessageDialog(null, "The game " + setUpView.loadFilePath() + " could not be loaded.",
+                            "Invalid Game", JOptionPane.WARNING_MESSAGE, fileAccess.getWarningIcon());
+                    setUpView.refreshSaves();
+                }
             }
         } else if (e.getActionCommand().equals("joinGame")) {
             try {
@@ -196,7 +215,9 @@ public class ScotlandYardApplication implements WindowListener, ActionListener,
         aiView.setThreadCom(threadCom);
         CardLayout cl = (CardLayout) container.getLayout();
         cl.next(container);
-        new Thread(this).start();
+        if (pipeline != null) pipeline.stop();
+        pipeline = new UpdatePipeline(threadCom, handlers, backgroundHandlers);
+        new Thread(pipeline).start();
     }
 
     /**
@@ -219,60 +240,68 @@ public class ScotlandYardApplication implements WindowListener, ActionListener,
         new Thread(game).start();
     }
 
-    // Loads a previously played ScotlandYardGame in a new Thread.
-    private void loadGame() {
-        game = new ScotlandYardGame(setUpView.loadFilePath(), threadCom);
+    // Loads a previously played ScotlandYardGame in a new Thread, starting
+    // the replay at the move the user entered.
+    // @param saveGame the SaveGame of the game.
+    private void loadGame(SaveGame saveGame) {
+        game = new ScotlandYardGame(saveGame, threadCom, setUpView.loadStartMove());
         new Thread(game).start();
     }
 
-    // Removes the GameView and shows the SetUpView view
+    // Removes the GameView and shows the SetUpView view.
+    // Waits for the game to finish on the calling Thread, and changes the
+    // views on the Event Dispatch Thread.
     public void endGame() {
-        game.endGame();//?Sometimes null
-        gameView.setThreadCom(null);
-        game = null;
-        CardLayout cl = (CardLayout) container.getLayout();
-        cl.next(container);
-        setUpView.refreshSaves();
+        if (game != null) game.endGame();
+        onEventDispatchThread(() -> {
+            gameView.setThreadCom(null);
+            game = null;
+            CardLayout cl = (CardLayout) container.getLayout();
+            cl.next(container);
+            setUpView.refreshSaves();
+        });
         threadCom.clearEvents();
         threadCom.clearUpdates();
         if (demo) {
-            threadCom = new ThreadCommunicator();
-            demo = true;
-            beginGame(kDemoTime);
-            newGame();
+            onEventDispatchThread(() -> {
+                threadCom = new ThreadCommunicator();
+                demo = true;
+                beginGame(kDemoTime);
+                newGame();
+            });
         }
     }
 
-    /**
-     * Takes items off the queue and updates the views appropriately.
-     */
-    public void run() {
-        while (true) {
-            try {
-                ThreadCommunicator.Packet packet = threadCom.takeUpdate();
-                decodeUpdate(packet.getId(), packet.getObject());
-            } catch (Exception e) {
-                System.err.println("Error taking items from the queue :" + e);
-                e.printStackTrace();
-            }
+    // Runs a task on the Event Dispatch Thread and waits for it to finish.
+    // @param task the task to run.
+    private void onEventDispatchThread(Runnable task) {
+        if (SwingUtilities.isEventDispatchThread()) {
+            task.run();
+            return;
+        }
+        try {
+            SwingUtilities.invokeAndWait(task);
+        } catch (Exception e) {
+            System.err.println("Error updating the views :" + e);
+            e.printStackTrace();
         }
     }
 
-    // Decodes the id of the update and acts accordingly.
+    // Registers the handler for each type of update.
+    // Updates are applied on the Event Dispatch Thread by the UpdatePipeline,
+    // apart from ending the game which waits for the final notification on
+    // the pipeline Thread before changing the views.
     // The 'empty loop technique' is used so that if the List does not only
     // contain GamePlayer objects an exception will be thrown near to the cause.
-    // @param id the id of the update.
-    // @param object the object associated with the id.
-    private void decodeUpdate(String id, Object object) {
-        if (id.equals("init_views")) {
+    private void registerHandlers() {
+        handlers.put(Update.INIT_VIEWS, object -> {
             @SuppressWarnings("unchecked")
             List<GamePlayer> players = (List<GamePlayer>) object;
             for (GamePlayer player : players);
             gameView.initialise(players);
-        } else if (id.equals("update_board")) {
-            Move move = (Move) object;
-            gameView.updateBoard(move);
-        } else if (id.equals("update_tickets")) {
+        });
+        handlers.put(Update.UPDATE_BOARD, object -> gameView.updateBoard((Move) object));
+        handlers.put(Update.UPDATE_TICKETS, object -> {
             @SuppressWarnings("unchecked")
             List<Object> list = (List<Object>) object;
             Colour colour = (Colour) list.get(0);
@@ -280,70 +309,40 @@ public class ScotlandYardApplication implements WindowListener, ActionListener,
             Map<Ticket, Integer> tickets = (Map<Ticket, Integer>) list.get(1);
             for (Map.Entry<Ticket, Integer> e : tickets.entrySet());
             gameView.updateTickets(colour, tickets);
-        } else if (id.equals("send_notification")) {
-            String message = (String) object;
-            gameView.setNotification(message);
-        } else if (id.equals("zoom_in")) {
-            if(!aiView.onTreeView()) {
-                Integer location = (Integer) object;
-                gameView.zoomToNode(location);
-            }
-        } else if (id.equals("zoom_out")) {
-            gameView.zoomOut();
-        } else if (id.equals("reset_timer")) {
-            gameView.resetTimer();
-        } else if (id.equals("stop_timer")) {
-            gameView.stopTimer();
-        } else if (id.equals("show_route")) {
+        });
+        handlers.put(Update.SEND_NOTIFICATION, object -> gameView.setNotification((String) object));
+        handlers.put(Update.ZOOM_IN, object -> {
+            if (!aiView.onTreeView()) gameView.zoomToNode((Integer) object);
+        });
+        handlers.put(Update.ZOOM_OUT, object -> gameView.zoomOut());
+        handlers.put(Update.RESET_TIMER, object -> gameView.resetTimer());
+        handlers.put(Update.STOP_TIMER, object -> gameView.stopTimer());
+        Consumer<Object> routeHint = object -> {
             @SuppressWarnings("unchecked")
             List<RouteHint> list = (List<RouteHint>) object;
             for (RouteHint item : list);
             gameView.setRouteHint(list);
-        } else if (id.equals("select_ticket")) {
-            @SuppressWarnings("unchecked")
-            List<RouteHint> list = (List<RouteHint>) object;
-            for (RouteHint item : list);
-            gameView.setRouteHint(list);
-        } else if (id.equals("end_game")) {
-            endGame();
-        } else if (id.equals("highlight_node")) {
-            Integer location = (Integer) object;
-            gameView.highlightNode(location);
-        } else if (id.equals("valid_moves")) {
+        };
+        handlers.put(Update.SHOW_ROUTE, routeHint);
+        handlers.put(Update.SELECT_TICKET, routeHint);
+        backgroundHandlers.put(Update.END_GAME, object -> endGame());
+        handlers.put(Update.HIGHLIGHT_NODE, object -> gameView.highlightNode((Integer) object));
+        handlers.put(Update.VALID_MOVES, object -> {
             @SuppressWarnings("unchecked")
             Set<Move> moves = (Set<Move>) object;
             for (Move move : moves);
             gameView.updateRoutes(moves);
-        } else if (id.equals("update_log")) {
-            Move move = (Move) object;
-            gameView.updateLog(move);
-        } else if (id.equals("update_log_message")) {
-            String string = (String) object;
-            gameView.updateLog(string);
-        } else if (id.equals("clear_log")) {
-            gameView.clearLog();
-        } else if (id.equals("update_round")) {
-            Integer roundNo = (Integer) object;
-            gameView.updateRoundCounter(roundNo);
-        } else if (id.equals("ai_set_rep")) {
-            TreeNode rep = (TreeNode) object;
-            aiView.setRep(rep);
-        } else if (id.equals("link_tree")) {
-            GameTree gameTree = (GameTree) object;
-            aiView.setGameTree(gameTree);
-        }  else if (id.equals("ai_end")) {
-            aiView.stop();
-        } else if (id.equals("get_move")) {
-            Move move = (Move) object;
-            //For rating player moves
-        } else if (id.equals("clear_notificaton")) {
-            gameView.clearNotification();
-        } else if (id.equals("current_player")) {
-            Colour colour = (Colour) object;
-            gameView.setCurrentPlayer(colour);
-        } else if (id.equals("ai_thought")) {
-            aiView.setTitle("The AI has finished thinking");
-        }
+        });
+        handlers.put(Update.UPDATE_LOG, object -> gameView.updateLog((Move) object));
+        handlers.put(Update.UPDATE_LOG_MESSAGE, object -> gameView.updateLog((String) object));
+        handlers.put(Update.CLEAR_LOG, object -> gameView.clearLog());
+        handlers.put(Update.UPDATE_ROUND, object -> gameView.updateRoundCounter((Integer) object));
+        handlers.put(Update.AI_SET_REP, object -> aiView.setRep((TreeNode) object));
+        handlers.put(Update.LINK_TREE, object -> aiView.setGameTree((GameTree) object));
+        handlers.put(Update.AI_END, object -> aiView.stop());
+        handlers.put(Update.CLEAR_NOTIFICATION, object -> gameView.clearNotification());
+        handlers.put(Update.CURRENT_PLAYER, object -> gameView.setCurrentPlayer((Colour) object));
+        handlers.put(Update.AI_THOUGHT, object -> aiView.setTitle("The AI has finished thinking"));
     }
 
     /**
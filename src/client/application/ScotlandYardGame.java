@@ -5,6 +5,7 @@ import client.model.*;
 import client.algorithms.*;
 import player.*;
 
+import java.io.*;
 import java.util.*;
 import java.util.concurrent.*;
 import javax.swing.JLabel;
@@ -31,11 +32,16 @@ public class ScotlandYardGame implements Player, Spectator, Runnable {
     private final boolean aiGame;
     private boolean demo = false;
     private Move aiMove = null;
+    private volatile boolean fastForward = false;
+    private int fastForwardTo = 0;
+    private GameExporter.Recorder recorder = null;
+    private GameExporter recording = null;
 
     private final int kDetectiveWait = 3000;
     private final int kMoveWait = 2000;
     private final int kAnimationWait = 500;
     private final int kRateMoveWait = 10000;
+    private final int kSnapshotInterval = 10;
 
     private int[] detectiveLocations = {26, 29, 50, 53, 91, 94, 103, 112, 117, 123, 138, 141, 155, 174};
     private int[] mrXLocations = {35, 45, 51, 71, 78, 104, 106, 127, 132, 166, 170, 172};
@@ -82,11 +88,38 @@ public class ScotlandYardGame implements Player, Spectator, Runnable {
      * communicate between Threads.
      */
     public ScotlandYardGame(String gameName, ThreadCommunicator threadCom) {
+        this(gameName, threadCom, 0);
+    }
+
+    /**
+     * Constructs a ScotlandYardGame from a game save, starting the replay
+     * at the specified move. The game is restored from the nearest snapshot
+     * and the moves after it are fast-forwarded.
+     *
+     * @param gameName the name of the game to load.
+     * @param threadCom the TreadCommunicator object to
+     * communicate between Threads.
+     * @param startMove the index of the move to start the replay from.
+     */
+    public ScotlandYardGame(String gameName, ThreadCommunicator threadCom, int startMove) {
+        this(new FileAccess().loadGame(gameName), threadCom, startMove);
+    }
+
+    /**
+     * Constructs a ScotlandYardGame from a game save that has been loaded,
+     * starting the replay at the specified move.
+     *
+     * @param saveGame the SaveGame to replay and continue.
+     * @param threadCom the TreadCommunicator object to
+     * communicate between Threads.
+     * @param startMove the index of the move to start the replay from.
+     */
+    public ScotlandYardGame(SaveGame saveGame, ThreadCommunicator threadCom, int startMove) {
         aiGame = false;
         try {
             this.threadCom = threadCom;
             fileAccess = new FileAccess();
-            saveGame = fileAccess.loadGame(gameName);
+            this.saveGame = saveGame;
             this.numPlayers = saveGame.getNumberOfPlayers();
             this.gameName = saveGame.getGameName();
             this.graphName = saveGame.getGraphFileName();
@@ -96,6 +129,7 @@ public class ScotlandYardGame implements Player, Spectator, Runnable {
             model.spectate(this);
             players = initialiseGame(saveGame.getMrXLocation(), saveGame.getDetectiveLocations(), false);
             replaying = true;
+            seek(startMove);
         } catch (Exception e) {
             System.err.println("Error loading game :" + e);
             e.printStackTrace();
@@ -156,7 +190,8 @@ public class ScotlandYardGame implements Player, Spectator, Runnable {
         try {
             pda = new InputPDA();
             initialiseViews(getPlayers());
-            if (saveGame != null) fileAccess.saveGame(saveGame);
+            if (saveGame != null) fileAccess.openJournal(saveGame);
+            startRecording();
             if (!aiGame) {
                 model.start();
                 endGame();
@@ -173,14 +208,19 @@ public class ScotlandYardGame implements Player, Spectator, Runnable {
      * Updates the views and then returns to the SetUpView.
      */
     public void endGame() {
-        if (saveGame != null) fileAccess.saveGame(saveGame);
-        threadCom.putUpdate("stop_timer", true);
+        if (saveGame != null) {
+            saveGame.setWinner(getWinner());
+            fileAccess.saveGame(saveGame);
+            saveGame.closeJournal();
+        }
+        stopRecording();
+        threadCom.putUpdate(Update.STOP_TIMER, true);
         Set<Colour> winningPlayers = model.getWinningPlayers();
         sendNotification(getWinningMessage(winningPlayers));
         wait(5000);
-        if (!aiGame) threadCom.putUpdate("end_game", true);
-        threadCom.putUpdate("clear_log", true);
-        threadCom.putUpdate("clear_notificaton", true);
+        if (!aiGame) threadCom.putUpdate(Update.END_GAME, true);
+        threadCom.putUpdate(Update.CLEAR_LOG, true);
+        threadCom.putUpdate(Update.CLEAR_NOTIFICATION, true);
     }
 
     // Returns the List of GamePlayer objects that contain all
@@ -268,7 +308,8 @@ public class ScotlandYardGame implements Player, Spectator, Runnable {
      * @return the Move chosen by the player.
      */
     public Move notify(int location, Set<Move> moves) {
-        threadCom.putUpdate("current_player", model.getCurrentPlayer());
+        takeSnapshot();
+        threadCom.putUpdate(Update.CURRENT_PLAYER, model.getCurrentPlayer());
         updateUI(location, model.getCurrentPlayer(), moves);
         outOfTime = false;
         pda.reset();
@@ -276,7 +317,7 @@ public class ScotlandYardGame implements Player, Spectator, Runnable {
         while (true) {
             if (saveGame != null && saveGame.hasSavedMove()) {
                 move = saveGame.getSavedMove();
-                wait(kMoveWait);
+                if (!fastForwarding()) wait(kMoveWait);
                 break;
             } else {
                 replaying = false;
@@ -287,7 +328,7 @@ public class ScotlandYardGame implements Player, Spectator, Runnable {
             if (pda.isAccepted()) {
                 move = pda.createMove(model.getCurrentPlayer());
                 if (moves.contains(move)) {
-                    threadCom.putUpdate("highlight_node", 0);
+                    threadCom.putUpdate(Update.HIGHLIGHT_NODE, 0);
                     break;
                 } else {
                     pda.reset();
@@ -305,6 +346,7 @@ public class ScotlandYardGame implements Player, Spectator, Runnable {
             }
         }
         if (saveGame != null) saveGame.addMove(move);
+        recordMove(move);
         return move;
     }
 
@@ -314,11 +356,11 @@ public class ScotlandYardGame implements Player, Spectator, Runnable {
      * @param move the Move that has been made.
      */
     public void notify(Move move) {
-        threadCom.putUpdate("stop_timer", true);
+        threadCom.putUpdate(Update.STOP_TIMER, true);
         if (move instanceof MoveTicket) {
             updateUI(move);
         } else if (move instanceof MoveDouble) {
-            threadCom.putUpdate("update_log", move);
+            threadCom.putUpdate(Update.UPDATE_LOG, move);
         }
     }
 
@@ -328,13 +370,13 @@ public class ScotlandYardGame implements Player, Spectator, Runnable {
     private void decodeEvents(String id, Object object) {
         if (id.equals("node_clicked")) {
             Integer location = (Integer) object;
-            threadCom.putUpdate("highlight_node", location);
+            threadCom.putUpdate(Update.HIGHLIGHT_NODE, location);
             pda.transition(location);
         } else if (id.equals("timer_fired")) {
             outOfTime = true;
         } else if (id.equals("ticket_clicked")) {
             Ticket ticket = (Ticket) object;
-            threadCom.putUpdate("highlight_node", 0);
+            threadCom.putUpdate(Update.HIGHLIGHT_NODE, 0);
             pda.transition(ticket);
         } else if (id.equals("timer_warning")) {
             sendNotification("Hurry up, 30 seconds left!");
@@ -349,14 +391,14 @@ public class ScotlandYardGame implements Player, Spectator, Runnable {
     // Initialises the views at the start of a game.
     // @param players the List of players in the game.
     private void initialiseViews(List<GamePlayer> players) {
-        threadCom.putUpdate("init_views", players);
-        threadCom.putUpdate("update_round", 1);
+        threadCom.putUpdate(Update.INIT_VIEWS, players);
+        threadCom.putUpdate(Update.UPDATE_ROUND, 1);
     }
 
     // Shows a message to the users.
     // @param message the message to be shown to the users.
     private void sendNotification(String message) {
-        threadCom.putUpdate("send_notification", message);
+        threadCom.putUpdate(Update.SEND_NOTIFICATION, message);
     }
 
     // Updates the UI at the start of a turn.
@@ -366,36 +408,84 @@ public class ScotlandYardGame implements Player, Spectator, Runnable {
     private void updateUI(Integer location, Colour player, Set<Move> moves) {
         updateTickets(player);
         if (player.equals(Colour.Black) && !replaying && !aiGame && !demo) {
-            threadCom.putUpdate("send_notification", "Detectives, Please look away.");
+            threadCom.putUpdate(Update.SEND_NOTIFICATION, "Detectives, Please look away.");
             wait(kDetectiveWait);
         }
-        threadCom.putUpdate("reset_timer", true);
-        threadCom.putUpdate("valid_moves", moves);
-        threadCom.putUpdate("zoom_in", location);
-        if (!replaying) threadCom.putUpdate("send_notification", getMessage(player));
+        threadCom.putUpdate(Update.RESET_TIMER, true);
+        threadCom.putUpdate(Update.VALID_MOVES, moves);
+        threadCom.putUpdate(Update.ZOOM_IN, location);
+        if (!replaying) threadCom.putUpdate(Update.SEND_NOTIFICATION, getMessage(player));
     }
 
     // Updates the UI at the end of a turn.
     // @param move the Move that has been played.
     private void updateUI(Move move) {
-        threadCom.putUpdate("stop_timer", true);
-        threadCom.putUpdate("update_log", move);
-        if (model.getRounds().get(model.getRound()) && move.colour.equals(Colour.Black)) threadCom.putUpdate("update_log_message", "Mr X has been spotted at location " + model.getPlayerLocation(Colour.Black));
-        threadCom.putUpdate("update_round", model.getRound());
+        threadCom.putUpdate(Update.STOP_TIMER, true);
+        threadCom.putUpdate(Update.UPDATE_LOG, move);
+        if (model.getRounds().get(model.getRound()) && move.colour.equals(Colour.Black)) threadCom.putUpdate(Update.UPDATE_LOG_MESSAGE, "Mr X has been spotted at location " + model.getPlayerLocation(Colour.Black));
+        threadCom.putUpdate(Update.UPDATE_ROUND, model.getRound());
         updateTickets(move.colour);
-        threadCom.putUpdate("update_board", move);
+        threadCom.putUpdate(Update.UPDATE_BOARD, move);
+        if (fastForwarding()) return;
         if (!aiGame) {
             wait(kAnimationWait);
             Integer target = getTarget(move);
             if (!move.colour.equals(Colour.Black)) {
-                threadCom.putUpdate("zoom_in", target);
+                threadCom.putUpdate(Update.ZOOM_IN, target);
                 wait(kMoveWait);
             }
         }
-        threadCom.putUpdate("zoom_out", true);
+        threadCom.putUpdate(Update.ZOOM_OUT, true);
         if (!aiGame) wait(kMoveWait);
     }
 
+    // Restores the game to the nearest snapshot before the specified move
+    // and fast-forwards the replay from there to the move.
+    // @param index the index of the move to start the replay from.
+    private void seek(int index) {
+        fastForwardTo = index;
+        Map.Entry<Integer, ModelSnapshot> entry = saveGame.nearestSnapshot(index);
+        if (entry == null || !(model instanceof ScotlandYardModel)) return;
+        ((ScotlandYardModel) model).restore(entry.getValue());
+        saveGame.seek(entry.getKey());
+        // The views are initialised from the restored model.
+        players = null;
+    }
+
+    // Adds a snapshot of the model to the save game every few moves.
+    private void takeSnapshot() {
+        if (saveGame == null || !(model instanceof ScotlandYardModel)) return;
+        int played = saveGame.getPlayedMoves();
+        if (played > 0 && played % kSnapshotInterval == 0) {
+            saveGame.addSnapshot(played, ((ScotlandYardModel) model).snapshot());
+        }
+    }
+
+    // Returns true if replayed moves should be shown without waiting.
+    // @return true if replayed moves should be shown without waiting.
+    private boolean fastForwarding() {
+        if (!replaying || saveGame == null) return false;
+        return fastForward || saveGame.getPlayedMoves() < fastForwardTo;
+    }
+
+    /**
+     * Turns fast-forwarding of the replay of a saved game on or off.
+     *
+     * @param fastForward true if replayed moves should be shown without waiting.
+     */
+    public void setFastForward(boolean fastForward) {
+        this.fastForward = fastForward;
+    }
+
+    /**
+     * Returns true if the replay of a saved game is being fast-forwarded.
+     *
+     * @return true if the replay of a saved game is being fast-forwarded.
+     */
+    public boolean isFastForward() {
+        return fastForward;
+    }
+
     // Returns the target of a Move.
     // @param move the Move for which to return the target.
     // @return the target of a Move.
@@ -412,7 +502,7 @@ public class ScotlandYardGame implements Player, Spectator, Runnable {
         newTickets.add(player);
         Map<Ticket, Integer> tickets = ModelHelper.getTickets(player, model);
         newTickets.add(tickets);
-        threadCom.putUpdate("update_tickets", newTickets);
+        threadCom.putUpdate(Update.UPDATE_TICKETS, newTickets);
     }
 
     // Pauses the game thread for the specified time in milliseconds.
@@ -436,6 +526,14 @@ public class ScotlandYardGame implements Player, Spectator, Runnable {
         }
     }
 
+    // Returns the side that won the game.
+    // @return the side that won the game, or Winner.None if it is not over.
+    private SaveGame.Winner getWinner() {
+        if (!model.isGameOver()) return SaveGame.Winner.None;
+        if (model.getWinningPlayers().contains(Colour.Black)) return SaveGame.Winner.MrX;
+        return SaveGame.Winner.Detectives;
+    }
+
     // Returns the message at the end of a game.
     // @param players the Set of winning players.
     // @return the message at the end of a game.
@@ -468,4 +566,53 @@ public class ScotlandYardGame implements Player, Spectator, Runnable {
         aiMove = m;
     }
 
+    /**
+     * Records the result of the AI's search for the next Move
+     * if the game is being recorded.
+     *
+     * @param score the score of the AI's search.
+     * @param depth the depth of the AI's search.
+     */
+    public void setAiEvaluation(double score, int depth) {
+        if (recorder != null) recorder.evaluation(score, depth);
+    }
+
+    /**
+     * Records a Move chosen by a player of the game if the game is being
+     * recorded. It must be called before the Move is played.
+     *
+     * @param move the Move chosen by the player.
+     */
+    public void recordMove(Move move) {
+        if (recorder != null) recorder.move(move, model.getRound());
+    }
+
+    // Starts recording the Moves of the game if the scotlandyard.record
+    // property names a directory to record them in.
+    private void startRecording() {
+        String directory = System.getProperty("scotlandyard.record");
+        if (directory == null || recorder != null) return;
+        try {
+            String name = (gameName == null ? (aiGame ? "live" : "demo") : gameName) + "#" + System.currentTimeMillis() / 1000L;
+            File file = new File(directory, name + ".jsonl");
+            file.getParentFile().mkdirs();
+            recording = new GameExporter(new BufferedWriter(new FileWriter(file)), GameExporter.Format.JSONL);
+            recorder = recording.record(name);
+        } catch (IOException e) {
+            System.err.println("Error starting to record the game :" + e);
+        }
+    }
+
+    // Stops recording the Moves of the game.
+    private void stopRecording() {
+        if (recording == null) return;
+        try {
+            recording.close();
+        } catch (IOException e) {
+            System.err.println("Error stopping recording the game :" + e);
+        }
+        recording = null;
+        recorder = null;
+    }
+
 }
@@ -0,0 +1,88 @@
+package client.application;
+
+import java.awt.*;
+import java.awt.image.*;
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * A class to look up images packed into a single sprite sheet by the AtlasPacker.
+ * The sheet is read once and each image is returned as a view onto it,
+ * so no pixels are copied.
+ */
+
+public class SpriteAtlas {
+
+    private final Map<String, Rectangle> index;
+    private final Map<String, BufferedImage> images;
+    private final Future<BufferedImage> sheet;
+
+    /**
+     * Returns the SpriteAtlas packaged with the application, or null if
+     * the application was built without one.
+     *
+     * @param assets the AssetManager used to load the sheet.
+     * @return the SpriteAtlas, or null if there is none.
+     */
+    public static SpriteAtlas load(AssetManager assets) {
+        InputStream stream = SpriteAtlas.class.getResourceAsStream("/resources/" + AtlasPacker.kIndexName);
+        if (stream == null) return null;
+        Map<String, Rectangle> index = new HashMap<String, Rectangle>();
+        Scanner scanner = new Scanner(stream);
+        while (scanner.hasNextLine()) {
+            String[] parts = scanner.nextLine().trim().split(" ");
+            if (parts.length != 5) continue;
+            index.put(parts[0], new Rectangle(Integer.parseInt(parts[1]), Integer.parseInt(parts[2]),
+                                              Integer.parseInt(parts[3]), Integer.parseInt(parts[4])));
+        }
+        scanner.close();
+        return new SpriteAtlas(index, assets.request("/resources/" + AtlasPacker.kSheetName));
+    }
+
+    // Constructs a new SpriteAtlas object.
+    // @param index the Map of resource paths to their bounds in the sheet.
+    // @param sheet the Future for the sheet image.
+    private SpriteAtlas(Map<String, Rectangle> index, Future<BufferedImage> sheet) {
+        this.index = index;
+        this.images = new ConcurrentHashMap<String, BufferedImage>();
+        this.sheet = sheet;
+    }
+
+    /**
+     * Returns true if the atlas contains the specified image.
+     *
+     * @param path the resource path of the image.
+     * @return true if the atlas contains the specified image.
+     */
+    public boolean contains(String path) {
+        return index.containsKey(path);
+    }
+
+    /**
+     * Returns the specified image, waiting for the sheet to load if necessary.
+     *
+     * @param path the resource path of the image.
+     * @return the image, or null if it is not in the atlas or the sheet
+     * could not be loaded.
+     */
+    public BufferedImage get(String path) {
+        BufferedImage image = images.get(path);
+        if (image != null) return image;
+        Rectangle r = index.get(path);
+        if (r == null) return null;
+        try {
+            BufferedImage sheetImage = sheet.get();
+            if (sheetImage == null) return null;
+            image = sheetImage.getSubimage(r.x, r.y, r.width, r.height);
+            images.put(path, image);
+            return image;
+        } catch (InterruptedException e) {
+            System.err.println(e);
+        } catch (ExecutionException e) {
+            System.err.println("Error retrieving the sprite sheet :" + e.getCause());
+        }
+        return null;
+    }
+
+}
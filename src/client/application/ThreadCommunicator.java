@@ -11,14 +11,14 @@ import java.util.concurrent.*;
 public class ThreadCommunicator {
 
     private BlockingQueue<Packet> eventQueue;
-    private BlockingQueue<Packet> updateQueue;
+    private UpdateBus updateBus;
 
     /**
-     * Constructor for ThreadCommunicator, creates BlockingQueues.
+     * Constructor for ThreadCommunicator, creates the event queue and update bus.
      */
     public ThreadCommunicator() {
         eventQueue = new ArrayBlockingQueue<Packet>(1024);
-        updateQueue = new ArrayBlockingQueue<Packet>(1024);
+        updateBus = new UpdateBus(1024);
     }
 
     public Packet takeEvent() {
@@ -30,15 +30,33 @@ public class ThreadCommunicator {
         return null;
     }
 
-    public Packet takeUpdate() {
+    public UpdateBus.Slot takeUpdate() {
         try {
-            return updateQueue.take();
+            return updateBus.take();
         } catch (InterruptedException e) {
             System.err.println(e);
         }
         return null;
     }
 
+    /**
+     * Returns the next update without waiting, or null if there are none.
+     *
+     * @return the next update, or null if there are none.
+     */
+    public UpdateBus.Slot pollUpdate() {
+        return updateBus.poll();
+    }
+
+    /**
+     * Returns the UpdateBus, so its queue depth can be monitored.
+     *
+     * @return the UpdateBus used for updates.
+     */
+    public UpdateBus getUpdateBus() {
+        return updateBus;
+    }
+
     /**
      * Puts an event id and object onto the event queue
      * in accordance with our protocol.
@@ -55,18 +73,15 @@ public class ThreadCommunicator {
     }
 
     /**
-     * Puts an update id and object onto the update queue
-     * in accordance with our protocol.
+     * Publishes an update onto the update bus without blocking.
+     * Superseded updates are merged and droppable updates are
+     * discarded if the bus is full.
      *
-     * @param id the String id of this update
+     * @param type the type of this update
      * @param object the object for this update
      */
-    public void putUpdate(String id, Object object) {
-        try {
-            updateQueue.put(new Packet(id, object));
-        } catch (InterruptedException e) {
-            System.err.println(e);
-        }
+    public void putUpdate(Update type, Object object) {
+        updateBus.publish(type, object);
     }
 
     /**
@@ -77,10 +92,10 @@ public class ThreadCommunicator {
     }
 
     /**
-     * Clears the update queue
+     * Clears the update bus
      */
     public void clearUpdates() {
-        updateQueue.clear();
+        updateBus.clear();
     }
 
     class Packet {
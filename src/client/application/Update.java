@@ -0,0 +1,72 @@
+package client.application;
+
+import scotlandyard.*;
+
+import java.util.List;
+
+/**
+ * The types of update that can be sent from the game threads to the GUI thread.
+ * Each type declares how a pending update of that type is treated when a newer one arrives.
+ */
+
+public enum Update {
+
+    INIT_VIEWS(Policy.QUEUE),
+    UPDATE_BOARD(Policy.QUEUE),
+    UPDATE_TICKETS(Policy.MERGE),
+    SEND_NOTIFICATION(Policy.QUEUE),
+    CLEAR_NOTIFICATION(Policy.QUEUE),
+    ZOOM_IN(Policy.DROP),
+    ZOOM_OUT(Policy.DROP),
+    RESET_TIMER(Policy.QUEUE),
+    STOP_TIMER(Policy.QUEUE),
+    SHOW_ROUTE(Policy.DROP),
+    SELECT_TICKET(Policy.DROP),
+    HIGHLIGHT_NODE(Policy.DROP),
+    VALID_MOVES(Policy.MERGE),
+    UPDATE_LOG(Policy.QUEUE),
+    UPDATE_LOG_MESSAGE(Policy.QUEUE),
+    CLEAR_LOG(Policy.QUEUE),
+    UPDATE_ROUND(Policy.MERGE),
+    CURRENT_PLAYER(Policy.MERGE),
+    END_GAME(Policy.QUEUE),
+    LINK_TREE(Policy.QUEUE),
+    AI_SET_REP(Policy.QUEUE),
+    AI_THOUGHT(Policy.QUEUE),
+    AI_END(Policy.QUEUE),
+    AI_RESET_PRUNE(Policy.DROP),
+    GET_MOVE(Policy.DROP),
+    DETECTIVE_BEST_MOVE(Policy.DROP);
+
+    /**
+     * How a pending update is treated when a newer update of the same type arrives.
+     * QUEUE updates are always delivered in order.
+     * MERGE updates replace any pending update with the same key.
+     * DROP updates are merged like MERGE updates, and are discarded when the bus is full.
+     */
+    public enum Policy {
+        QUEUE, MERGE, DROP
+    }
+
+    public final Policy policy;
+
+    private Update(Policy policy) {
+        this.policy = policy;
+    }
+
+    /**
+     * Returns the key used to decide whether two pending updates
+     * of this type refer to the same target.
+     *
+     * @param object the object for the update.
+     * @return the key for the update.
+     */
+    public Object coalesceKey(Object object) {
+        if (this == UPDATE_TICKETS && object instanceof List) {
+            List<?> list = (List<?>) object;
+            if (list.size() > 0 && list.get(0) instanceof Colour) return list.get(0);
+        }
+        return null;
+    }
+
+}
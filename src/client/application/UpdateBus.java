@@ -0,0 +1,195 @@
+package client.application;
+
+import java.util.*;
+
+/**
+ * A queue of typed updates which never blocks the publishing thread.
+ * Superseded updates are merged, and droppable updates are discarded
+ * once the bus reaches its capacity.
+ */
+
+public class UpdateBus {
+
+    private final int capacity;
+    private final Deque<Slot> slots;
+    private final Map<List<Object>, Slot> pending;
+    private int depth = 0;
+    private int maxDepth = 0;
+    private long published = 0;
+    private long merged = 0;
+    private long dropped = 0;
+
+    /**
+     * Constructs a new UpdateBus object.
+     *
+     * @param capacity the number of pending updates above which
+     * droppable updates are discarded.
+     */
+    public UpdateBus(int capacity) {
+        this.capacity = capacity;
+        this.slots = new ArrayDeque<Slot>();
+        this.pending = new HashMap<List<Object>, Slot>();
+    }
+
+    /**
+     * Publishes an update without blocking.
+     *
+     * @param type the type of the update.
+     * @param object the object for the update.
+     * @return false if the update was dropped.
+     */
+    public synchronized boolean publish(Update type, Object object) {
+        published++;
+        List<Object> key = null;
+        if (type.policy != Update.Policy.QUEUE) {
+            key = Arrays.asList(type, type.coalesceKey(object));
+            Slot old = pending.remove(key);
+            if (old != null) {
+                // The newer update goes to the back so it is applied after
+                // everything that was published before it.
+                old.live = false;
+                depth--;
+                merged++;
+            } else if (type.policy == Update.Policy.DROP && depth >= capacity) {
+                dropped++;
+                return false;
+            }
+        }
+        Slot slot = new Slot(type, object, key);
+        slots.addLast(slot);
+        if (key != null) pending.put(key, slot);
+        depth++;
+        if (depth > maxDepth) maxDepth = depth;
+        notifyAll();
+        return true;
+    }
+
+    /**
+     * Returns the next update, waiting until one is available.
+     *
+     * @return the next update.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    public synchronized Slot take() throws InterruptedException {
+        while (depth == 0) wait();
+        return poll();
+    }
+
+    /**
+     * Returns the next update, waiting up to the specified time for one to be available.
+     *
+     * @param timeout the maximum time to wait in milliseconds.
+     * @return the next update, or null if none arrived in time.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    public synchronized Slot take(long timeout) throws InterruptedException {
+        long end = System.currentTimeMillis() + timeout;
+        long remaining = timeout;
+        while (depth == 0 && remaining > 0) {
+            wait(remaining);
+            remaining = end - System.currentTimeMillis();
+        }
+        return poll();
+    }
+
+    /**
+     * Returns the next update, or null if there are none pending.
+     *
+     * @return the next update, or null if there are none pending.
+     */
+    public synchronized Slot poll() {
+        Slot slot = slots.pollFirst();
+        while (slot != null && !slot.live) slot = slots.pollFirst();
+        if (slot == null) return null;
+        if (slot.key != null) pending.remove(slot.key);
+        depth--;
+        return slot;
+    }
+
+    /**
+     * Removes all pending updates.
+     */
+    public synchronized void clear() {
+        slots.clear();
+        pending.clear();
+        depth = 0;
+    }
+
+    /**
+     * Returns the number of updates waiting to be taken.
+     *
+     * @return the number of updates waiting to be taken.
+     */
+    public synchronized int depth() {
+        return depth;
+    }
+
+    /**
+     * Returns the largest number of updates that have been waiting at once.
+     *
+     * @return the largest number of updates that have been waiting at once.
+     */
+    public synchronized int maxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Returns the number of updates that have been published.
+     *
+     * @return the number of updates that have been published.
+     */
+    public synchronized long published() {
+        return published;
+    }
+
+    /**
+     * Returns the number of updates that were replaced by a newer one.
+     *
+     * @return the number of updates that were replaced by a newer one.
+     */
+    public synchronized long merged() {
+        return merged;
+    }
+
+    /**
+     * Returns the number of updates that were dropped because the bus was full.
+     *
+     * @return the number of updates that were dropped.
+     */
+    public synchronized long dropped() {
+        return dropped;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "UpdateBus[depth=" + depth + ", maxDepth=" + maxDepth + ", published=" + published
+            + ", merged=" + merged + ", dropped=" + dropped + "]";
+    }
+
+    /**
+     * A single update on the bus.
+     */
+    public static class Slot {
+
+        private final Update type;
+        private final Object object;
+        private final List<Object> key;
+        private boolean live = true;
+
+        private Slot(Update type, Object object, List<Object> key) {
+            this.type = type;
+            this.object = object;
+            this.key = key;
+        }
+
+        public Update getType() {
+            return type;
+        }
+
+        public Object getObject() {
+            return object;
+        }
+
+    }
+
+}
@@ -0,0 +1,133 @@
+package client.application;
+
+import javax.swing.*;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * A class to deliver updates to the views in batches.
+ * Every pending update is drained from the UpdateBus and applied in a
+ * single pass on the Event Dispatch Thread, at most once per frame,
+ * so a burst of updates costs one layout and paint pass.
+ */
+
+public class UpdatePipeline implements Runnable {
+
+    private final ThreadCommunicator threadCom;
+    private final Map<Update, Consumer<Object>> handlers;
+    private final Map<Update, Consumer<Object>> backgroundHandlers;
+    private volatile boolean running = true;
+    private long frames = 0;
+    private long updates = 0;
+
+    private final int kFrameTime = 16;
+    private final int kIdleWait = 100;
+
+    /**
+     * Constructs a new UpdatePipeline object.
+     *
+     * @param threadCom the ThreadCommunicator whose updates are to be delivered.
+     * @param handlers the handlers to run on the Event Dispatch Thread.
+     * @param backgroundHandlers the handlers to run on the pipeline Thread,
+     * for updates that block.
+     */
+    public UpdatePipeline(ThreadCommunicator threadCom, Map<Update, Consumer<Object>> handlers,
+                          Map<Update, Consumer<Object>> backgroundHandlers) {
+        this.threadCom = threadCom;
+        this.handlers = handlers;
+        this.backgroundHandlers = backgroundHandlers;
+    }
+
+    /**
+     * Takes batches of updates off the bus until the pipeline is stopped.
+     */
+    public void run() {
+        UpdateBus bus = threadCom.getUpdateBus();
+        while (running) {
+            try {
+                UpdateBus.Slot first = bus.take(kIdleWait);
+                if (first == null) continue;
+                long frameStart = System.currentTimeMillis();
+                List<UpdateBus.Slot> batch = new ArrayList<UpdateBus.Slot>();
+                batch.add(first);
+                UpdateBus.Slot next;
+                while ((next = bus.poll()) != null) batch.add(next);
+                deliver(batch);
+                long elapsed = System.currentTimeMillis() - frameStart;
+                // Updates published while waiting for the next frame are merged on the bus.
+                if (elapsed < kFrameTime) Thread.sleep(kFrameTime - elapsed);
+            } catch (InterruptedException e) {
+                System.err.println(e);
+            } catch (Exception e) {
+                System.err.println("Error taking items from the queue :" + e);
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Stops the pipeline once it has delivered the current batch.
+     */
+    public void stop() {
+        running = false;
+    }
+
+    /**
+     * Returns the number of batches that have been delivered.
+     *
+     * @return the number of batches that have been delivered.
+     */
+    public long frames() {
+        return frames;
+    }
+
+    /**
+     * Returns the number of updates that have been delivered.
+     *
+     * @return the number of updates that have been delivered.
+     */
+    public long updates() {
+        return updates;
+    }
+
+    // Delivers a batch of updates, keeping the order in which they were taken.
+    // Updates with a background handler split the batch, so the updates before
+    // them have been applied when they run.
+    // @param batch the List of updates to deliver.
+    private void deliver(List<UpdateBus.Slot> batch) throws Exception {
+        List<UpdateBus.Slot> edtBatch = new ArrayList<UpdateBus.Slot>();
+        for (UpdateBus.Slot slot : batch) {
+            Consumer<Object> handler = backgroundHandlers.get(slot.getType());
+            if (handler == null) {
+                edtBatch.add(slot);
+            } else {
+                apply(edtBatch);
+                edtBatch = new ArrayList<UpdateBus.Slot>();
+                handler.accept(slot.getObject());
+                updates++;
+            }
+        }
+        apply(edtBatch);
+    }
+
+    // Applies a batch of updates in a single pass on the Event Dispatch Thread
+    // and waits for it to finish.
+    // @param batch the List of updates to apply.
+    private void apply(final List<UpdateBus.Slot> batch) throws Exception {
+        if (batch.isEmpty()) return;
+        SwingUtilities.invokeAndWait(() -> {
+            for (UpdateBus.Slot slot : batch) {
+                try {
+                    Consumer<Object> handler = handlers.get(slot.getType());
+                    if (handler != null) handler.accept(slot.getObject());
+                } catch (Exception e) {
+                    System.err.println("Error applying update " + slot.getType() + " :" + e);
+                    e.printStackTrace();
+                }
+            }
+        });
+        frames++;
+        updates += batch.size();
+    }
+
+}
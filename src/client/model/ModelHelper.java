@@ -25,6 +25,40 @@ public class ModelHelper {
                              false, false, false, false, true);
     }
 
+    /**
+     * Makes every MoveTicket, MovePass and MoveDouble for a Graph up front.
+     * The library keeps its Moves in HashMaps that are not safe to add to
+     * from more than one thread, so this must be called before searching on
+     * many threads.
+     *
+     * @param graph the Graph associated with the game.
+     */
+    public static synchronized void internMoves(Graph<Integer, Route> graph) {
+        for (Colour colour : Colour.values()) {
+            MovePass.instance(colour);
+            for (Node<Integer> node : graph.getNodes()) {
+                for (Ticket ticket : Ticket.values()) MoveTicket.instance(colour, ticket, node.data());
+            }
+        }
+        Ticket[] firstTickets = new Ticket[2];
+        Ticket[] secondTickets = new Ticket[2];
+        for (Node<Integer> node : graph.getNodes()) {
+            for (Edge<Integer, Route> first : graph.getEdges(node.data())) {
+                int middle = first.source().equals(node.data()) ? first.target() : first.source();
+                firstTickets[0] = Ticket.fromRoute(first.data());
+                firstTickets[1] = Ticket.Secret;
+                for (Edge<Integer, Route> second : graph.getEdges(middle)) {
+                    int target = second.source().equals(middle) ? second.target() : second.source();
+                    secondTickets[0] = Ticket.fromRoute(second.data());
+                    secondTickets[1] = Ticket.Secret;
+                    for (Ticket ticket1 : firstTickets) {
+                        for (Ticket ticket2 : secondTickets) MoveDouble.instance(Colour.Black, ticket1, middle, ticket2, target);
+                    }
+                }
+            }
+        }
+    }
+
     /**
      * Returns the GamePlayer object of the specified player from a List.
      *
@@ -148,6 +182,38 @@ public class ModelHelper {
         return allMoves;
     }
 
+    /**
+     * Returns a Set of Moves with the double Moves that leave Mr X in the
+     * same state merged into one. Double Moves that end at the same location
+     * having used the same two Tickets lead to the same state, whatever order
+     * the Tickets were used in and whichever location was passed through, so
+     * only one of them needs to be searched. The one kept is the one through
+     * the lowest numbered location, so the same Move is always played.
+     *
+     * @param moves the Set of Moves to merge.
+     * @return a Set of the Moves with equivalent double Moves merged.
+     */
+    public static Set<Move> mergeDoubleMoves(Set<Move> moves) {
+        Set<Move> merged = new HashSet<Move>();
+        Map<Integer, MoveDouble> representatives = new HashMap<Integer, MoveDouble>();
+        for (Move move : moves) {
+            if (!(move instanceof MoveDouble)) {
+                merged.add(move);
+                continue;
+            }
+            MoveDouble moveDouble = (MoveDouble) move;
+            int first = moveDouble.move1.ticket.ordinal();
+            int second = moveDouble.move2.ticket.ordinal();
+            int key = moveDouble.move2.target * 64 + Math.min(first, second) * 8 + Math.max(first, second);
+            MoveDouble representative = representatives.get(key);
+            if (representative == null || moveDouble.move1.target < representative.move1.target) {
+                representatives.put(key, moveDouble);
+            }
+        }
+        merged.addAll(representatives.values());
+        return merged;
+    }
+
     // Returns a Set of valid MoveTickets for a specified player.
     // @param gamePlayer the player for whom to generate the Set of valid MoveTickets.
     // @param players the List of players in the game.
@@ -0,0 +1,123 @@
+package client.model;
+
+import scotlandyard.*;
+
+import java.util.*;
+
+/**
+ * A class that holds a compact copy of the state of a ScotlandYardModel,
+ * so a game can be restored to that point without replaying every Move.
+ */
+
+public class ModelSnapshot {
+
+    private final int round;
+    private final Colour currentPlayer;
+    private final int mrXLocation;
+    private final Colour[] colours;
+    private final int[] locations;
+    private final int[][] tickets;
+
+    /**
+     * Constructs a new ModelSnapshot object.
+     *
+     * @param round the current round.
+     * @param currentPlayer the colour of the player whose turn it is.
+     * @param mrXLocation the last location at which Mr X was seen.
+     * @param colours the colours of the players, in the order they play.
+     * @param locations the actual location of each player.
+     * @param tickets the number of each Ticket each player has,
+     * indexed by the ordinal of the Ticket.
+     */
+    public ModelSnapshot(int round, Colour currentPlayer, int mrXLocation,
+                         Colour[] colours, int[] locations, int[][] tickets) {
+        this.round = round;
+        this.currentPlayer = currentPlayer;
+        this.mrXLocation = mrXLocation;
+        this.colours = colours;
+        this.locations = locations;
+        this.tickets = tickets;
+    }
+
+    /**
+     * Returns the current round.
+     *
+     * @return the current round.
+     */
+    public int getRound() {
+        return round;
+    }
+
+    /**
+     * Returns the colour of the player whose turn it is.
+     *
+     * @return the colour of the player whose turn it is.
+     */
+    public Colour getCurrentPlayer() {
+        return currentPlayer;
+    }
+
+    /**
+     * Returns the last location at which Mr X was seen.
+     *
+     * @return the last location at which Mr X was seen.
+     */
+    public int getMrXLocation() {
+        return mrXLocation;
+    }
+
+    /**
+     * Returns the number of players in the snapshot.
+     *
+     * @return the number of players in the snapshot.
+     */
+    public int getNumberOfPlayers() {
+        return colours.length;
+    }
+
+    /**
+     * Returns the colour of a player.
+     *
+     * @param player the index of the player.
+     * @return the colour of the player.
+     */
+    public Colour getColour(int player) {
+        return colours[player];
+    }
+
+    /**
+     * Returns the actual location of a player.
+     *
+     * @param player the index of the player.
+     * @return the actual location of the player.
+     */
+    public int getLocation(int player) {
+        return locations[player];
+    }
+
+    /**
+     * Returns the number of a Ticket a player has.
+     *
+     * @param player the index of the player.
+     * @param ticket the Ticket.
+     * @return the number of the Ticket the player has.
+     */
+    public int getTickets(int player, Ticket ticket) {
+        return tickets[player][ticket.ordinal()];
+    }
+
+    /**
+     * Returns a new Map of the Tickets a player has.
+     *
+     * @param player the index of the player.
+     * @return the Map of Tickets to the number the player has.
+     */
+    public Map<Ticket, Integer> getTicketMap(int player) {
+        Map<Ticket, Integer> map = new HashMap<Ticket, Integer>();
+        for (Ticket ticket : Ticket.values()) {
+            map.put(ticket, tickets[player][ticket.ordinal()]);
+        }
+        return map;
+    }
+
+}
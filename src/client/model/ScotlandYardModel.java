@@ -211,4 +211,44 @@ public class ScotlandYardModel extends ScotlandYard {
         return rounds;
     }
 
+    /**
+     * Returns a snapshot of the current state of the game.
+     *
+     * @return a ModelSnapshot of the current state of the game.
+     */
+    public ModelSnapshot snapshot() {
+        int size = players.size();
+        Colour[] colours = new Colour[size];
+        int[] locations = new int[size];
+        int[][] tickets = new int[size][Ticket.values().length];
+        for (int i = 0; i < size; i++) {
+            GamePlayer player = players.get(i);
+            colours[i] = player.colour();
+            locations[i] = player.location();
+            for (Ticket ticket : Ticket.values()) {
+                Integer count = player.tickets().get(ticket);
+                tickets[i][ticket.ordinal()] = (count == null ? 0 : count);
+            }
+        }
+        return new ModelSnapshot(roundCounter, currentPlayer.colour(), mrXLocation, colours, locations, tickets);
+    }
+
+    /**
+     * Restores the game to the state in a snapshot.
+     * The players must already have joined the game.
+     *
+     * @param snapshot the ModelSnapshot to restore.
+     */
+    public void restore(ModelSnapshot snapshot) {
+        for (int i = 0; i < snapshot.getNumberOfPlayers(); i++) {
+            GamePlayer player = getPlayer(snapshot.getColour(i));
+            if (player == null) continue;
+            player.setLocation(snapshot.getLocation(i));
+            player.setTickets(snapshot.getTicketMap(i));
+        }
+        roundCounter = snapshot.getRound();
+        mrXLocation = snapshot.getMrXLocation();
+        currentPlayer = getPlayer(snapshot.getCurrentPlayer());
+    }
+
 }
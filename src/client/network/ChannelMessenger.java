@@ -0,0 +1,158 @@
+package client.network;
+
+import com.google.gson.stream.JsonReader;
+import messages.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+
+/**
+ * A Messenger for a non-blocking SocketChannel that is serviced by a
+ * PlayerClientHost I/O thread. Received bytes are passed on in pooled
+ * buffers and parsed by the MessageCodec on the thread that reads the
+ * messages, and outgoing messages are encoded into pooled buffers and
+ * queued until the channel can be written.
+ */
+
+public class ChannelMessenger implements Messenger {
+
+    private final SocketChannel channel;
+    private final PlayerClientHost.IoLoop loop;
+    private final ChunkReader in;
+    private final Deque<ByteBuffer> writes;
+    private JsonReader reader = null;
+    private SelectionKey key = null;
+    private volatile boolean closed = false;
+
+    /**
+     * Constructs a new ChannelMessenger object.
+     *
+     * @param channel the non-blocking SocketChannel of the connection.
+     * @param loop the I/O loop that services the channel.
+     */
+    ChannelMessenger(SocketChannel channel, PlayerClientHost.IoLoop loop) {
+        this.channel = channel;
+        this.loop = loop;
+        this.in = new ChunkReader();
+        this.writes = new ArrayDeque<ByteBuffer>();
+    }
+
+    /**
+     * Returns the next message, waiting until one arrives.
+     *
+     * @return the next message, or a MessageStop if the connection has closed.
+     */
+    public Message read() {
+        if (reader == null) reader = MessageCodec.reader(in);
+        try {
+            Message message = MessageCodec.read(reader);
+            if (message != null) return message;
+        } catch (InterruptedIOException e) {
+            System.err.println(e);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error reading message :" + e);
+            close();
+        }
+        return new MessageStop();
+    }
+
+    /**
+     * Queues a message to be sent without blocking.
+     *
+     * @param message the message to send.
+     */
+    public void write(Message message) {
+        if (closed) return;
+        ByteBuffer buffer = MessageCodec.encode(message);
+        synchronized (writes) {
+            writes.addLast(buffer);
+        }
+        loop.execute(this::updateInterest);
+    }
+
+    /**
+     * Closes the connection.
+     */
+    public void close() {
+        if (closed) return;
+        closed = true;
+        in.end();
+        loop.execute(() -> {
+            if (key != null) key.cancel();
+            synchronized (writes) {
+                for (ByteBuffer buffer : writes) MessageCodec.release(buffer);
+                writes.clear();
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println(e);
+            }
+        });
+    }
+
+    // Returns true if the connection has been closed.
+    // @return true if the connection has been closed.
+    boolean isClosed() {
+        return closed;
+    }
+
+    // Called on the I/O thread once the channel has been registered.
+    // @param key the SelectionKey of the channel.
+    void registered(SelectionKey key) {
+        this.key = key;
+        updateInterest();
+    }
+
+    // Called on the I/O thread when the connection has been established.
+    void connectable() throws IOException {
+        channel.finishConnect();
+        updateInterest();
+    }
+
+    // Called on the I/O thread when there are bytes to read.
+    // The bytes are passed on as they are; the MessageCodec finds where
+    // each message ends.
+    void readable() throws IOException {
+        ByteBuffer chunk = MessageCodec.acquire();
+        int read = channel.read(chunk);
+        if (read <= 0) {
+            MessageCodec.release(chunk);
+            if (read < 0) close();
+            return;
+        }
+        chunk.flip();
+        in.offer(chunk);
+    }
+
+    // Called on the I/O thread when the channel can be written.
+    void writable() throws IOException {
+        synchronized (writes) {
+            while (!writes.isEmpty()) {
+                ByteBuffer buffer = writes.peekFirst();
+                channel.write(buffer);
+                if (buffer.hasRemaining()) break;
+                MessageCodec.release(writes.pollFirst());
+            }
+        }
+        updateInterest();
+    }
+
+    // Sets the operations the I/O thread should wait for.
+    // Must be called on the I/O thread.
+    private void updateInterest() {
+        if (key == null || !key.isValid()) return;
+        if (channel.isConnectionPending()) {
+            key.interestOps(SelectionKey.OP_CONNECT);
+            return;
+        }
+        int ops = SelectionKey.OP_READ;
+        synchronized (writes) {
+            if (!writes.isEmpty()) ops |= SelectionKey.OP_WRITE;
+        }
+        key.interestOps(ops);
+    }
+
+}
@@ -0,0 +1,137 @@
+package client.network;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.charset.*;
+import java.util.concurrent.*;
+
+/**
+ * A Reader over the chunks of bytes received on a connection, so that a
+ * JsonReader can read messages straight out of the received buffers.
+ * Chunks are added by the thread receiving them and read by the thread
+ * reading messages, which waits until a chunk arrives. Each chunk is given
+ * back to the MessageCodec pool once it has been read.
+ */
+
+public class ChunkReader extends Reader {
+
+    // Added once the connection has ended.
+    private static final ByteBuffer kEnd = ByteBuffer.allocate(0);
+
+    private final BlockingQueue<ByteBuffer> chunks;
+    private final CharsetDecoder decoder;
+    private ByteBuffer current = null;
+    private ByteBuffer carry = null;
+    private boolean ended = false;
+
+    /**
+     * Constructs a new ChunkReader object.
+     */
+    public ChunkReader() {
+        chunks = new LinkedBlockingQueue<ByteBuffer>();
+        decoder = StandardCharsets.UTF_8.newDecoder()
+                                        .onMalformedInput(CodingErrorAction.REPLACE)
+                                        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    /**
+     * Adds a chunk of received bytes.
+     *
+     * @param chunk the ByteBuffer, ready to be read.
+     */
+    public void offer(ByteBuffer chunk) {
+        chunks.offer(chunk);
+    }
+
+    /**
+     * Marks the end of the connection, after any chunks already added.
+     */
+    public void end() {
+        chunks.offer(kEnd);
+    }
+
+    /**
+     * Reads characters, waiting until some have been received.
+     *
+     * @param buffer the array to read into.
+     * @param offset the index to start reading into.
+     * @param length the largest number of characters to read.
+     * @return the number of characters read, or -1 if the connection has ended.
+     * @throws IOException if the thread is interrupted while waiting.
+     */
+    @Override
+    public int read(char[] buffer, int offset, int length) throws IOException {
+        if (length == 0) return 0;
+        while (true) {
+            if (ended) return -1;
+            if (current == null) next();
+            if (current == null) continue;
+            int read = decode(buffer, offset, length);
+            if (!current.hasRemaining()) {
+                MessageCodec.release(current);
+                current = null;
+            }
+            if (read > 0) return read;
+        }
+    }
+
+    /**
+     * Ends the connection, so any waiting read returns -1.
+     */
+    @Override
+    public void close() {
+        end();
+    }
+
+    // Takes the next chunk, joining it to the end of a character that
+    // was split across the last chunk.
+    private void next() throws IOException {
+        ByteBuffer chunk;
+        try {
+            chunk = chunks.take();
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException();
+        }
+        if (chunk == kEnd) {
+            ended = true;
+            chunks.offer(kEnd);
+            return;
+        }
+        if (carry != null) {
+            ByteBuffer joined = ByteBuffer.allocate(carry.remaining() + chunk.remaining());
+            joined.put(carry).put(chunk).flip();
+            MessageCodec.release(chunk);
+            carry = null;
+            chunk = joined;
+        }
+        current = chunk;
+    }
+
+    // Decodes bytes from the current chunk, copying ASCII directly.
+    // @param buffer the array to read into.
+    // @param offset the index to start reading into.
+    // @param length the largest number of characters to read.
+    // @return the number of characters read.
+    private int decode(char[] buffer, int offset, int length) {
+        int read = 0;
+        while (read < length && current.hasRemaining()) {
+            byte b = current.get(current.position());
+            if (b < 0) break;
+            buffer[offset + read++] = (char) b;
+            current.position(current.position() + 1);
+        }
+        if (read == length || !current.hasRemaining()) return read;
+
+        CharBuffer out = CharBuffer.wrap(buffer, offset + read, length - read);
+        decoder.decode(current, out, false);
+        read = out.position() - offset;
+        // Whatever is left when there is still room is part of a character
+        // that continues in the next chunk.
+        if (current.hasRemaining() && out.hasRemaining()) {
+            carry = ByteBuffer.allocate(current.remaining());
+            carry.put(current).flip();
+        }
+        return read;
+    }
+
+}
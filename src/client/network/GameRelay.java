@@ -0,0 +1,274 @@
+package client.network;
+
+import messages.*;
+import scotlandyard.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A class to pass messages between judges and players in the same way as
+ * the game server in server/lib, but for many games at once.
+ * A judge creates a game by sending INITIALISE. Each player connection
+ * joins the game with a free colour that has the fewest connections, and
+ * every player it registers is given the next colour of that game, so each
+ * connection should register the same number of players and that number
+ * should divide six. NOTIFY_TURN messages
+ * are sent to the player of the colour, and NOTIFY, READY and GAME_OVER
+ * messages to every player connection of the game.
+ */
+
+public class GameRelay {
+
+    private static final Colour[] kColours = {Colour.Black, Colour.Blue, Colour.Green,
+                                              Colour.Red, Colour.White, Colour.Yellow};
+
+    private final ExecutorService readers;
+    private final Deque<Game> waiting;
+    private final AtomicLong moves = new AtomicLong();
+    private int gamesInitialised = 0;
+    private int gamesFinished = 0;
+
+    /**
+     * Constructs a new GameRelay object.
+     */
+    public GameRelay() {
+        readers = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "GameRelay-reader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        waiting = new ArrayDeque<Game>();
+    }
+
+    /**
+     * Starts relaying the messages of a judge.
+     *
+     * @param judge the Messenger connected to the judge.
+     */
+    public void addJudge(final Messenger judge) {
+        readers.execute(() -> readJudge(judge));
+    }
+
+    /**
+     * Starts relaying the messages of a player connection.
+     *
+     * @param player the Messenger connected to the player client.
+     */
+    public void addPlayer(final Messenger player) {
+        readers.execute(() -> readPlayer(player));
+    }
+
+    /**
+     * Returns the number of Moves that have been sent to judges.
+     *
+     * @return the number of Moves that have been sent to judges.
+     */
+    public long getMoves() {
+        return moves.get();
+    }
+
+    /**
+     * Returns the number of games that have finished.
+     *
+     * @return the number of games that have finished.
+     */
+    public synchronized int getGamesFinished() {
+        return gamesFinished;
+    }
+
+    /**
+     * Waits until a number of judges have created their games.
+     *
+     * @param games the number of games to wait for.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    public synchronized void awaitInitialised(int games) throws InterruptedException {
+        while (gamesInitialised < games) wait();
+    }
+
+    /**
+     * Waits until a number of games have finished.
+     *
+     * @param games the number of games to wait for.
+     * @param timeout the longest time to wait in milliseconds.
+     * @return true if the games finished in time.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    public synchronized boolean awaitGames(int games, long timeout) throws InterruptedException {
+        long end = System.currentTimeMillis() + timeout;
+        while (gamesFinished < games) {
+            long remaining = end - System.currentTimeMillis();
+            if (remaining <= 0) return false;
+            wait(remaining);
+        }
+        return true;
+    }
+
+    /**
+     * Stops relaying messages.
+     */
+    public void close() {
+        readers.shutdownNow();
+    }
+
+    // Relays the messages of a judge until it disconnects.
+    // @param judge the Messenger connected to the judge.
+    private void readJudge(Messenger judge) {
+        Game game = null;
+        while (true) {
+            Message message = judge.read();
+            if (message instanceof MessageStop) break;
+            if (message instanceof MessageInitialise) {
+                game = new Game(((MessageInitialise) message).gameId, judge);
+                synchronized (this) {
+                    waiting.addLast(game);
+                    gamesInitialised++;
+                    notifyAll();
+                }
+                judge.write(new MessageInitialised());
+            } else if (game == null) {
+                System.err.println("Message from a judge without a game :" + message);
+            } else if (message instanceof MessageNotifyTurn) {
+                game.send(((MessageNotifyTurn) message).colour, message);
+            } else if (message instanceof MessageNotify || message instanceof MessageReady) {
+                game.broadcast(message);
+            } else if (message instanceof MessageGameOver) {
+                game.broadcast(message);
+                gameOver(game);
+                break;
+            }
+        }
+        judge.close();
+    }
+
+    // Relays the messages of a player connection until it disconnects.
+    // @param player the Messenger connected to the player client.
+    private void readPlayer(Messenger player) {
+        Game game = null;
+        while (true) {
+            Message message = player.read();
+            if (message instanceof MessageStop) break;
+            if (message instanceof MessageRegister) {
+                Colour colour;
+                if (game == null) {
+                    // Choosing a game and taking its colour must happen together.
+                    synchronized (this) {
+                        game = nextGame();
+                        if (game == null) break;
+                        colour = game.join(player);
+                    }
+                } else {
+                    colour = game.join(player);
+                }
+                if (colour == null) {
+                    System.err.println("No colours left in game " + game.gameId);
+                    continue;
+                }
+                player.write(new MessageRegistered(colour));
+                game.judge.write(new MessageJoin(colour));
+            } else if (message instanceof MessageMove && game != null) {
+                moves.incrementAndGet();
+                game.judge.write(message);
+            }
+        }
+        player.close();
+    }
+
+    // Returns the oldest of the games with a free colour that have the fewest
+    // connections, waiting for a judge to create one if necessary.
+    // Connections register their players concurrently, so a game that is
+    // not yet full may already have all of the connections it needs.
+    // @return the game, or null if the relay has been closed.
+    private synchronized Game nextGame() {
+        try {
+            while (true) {
+                waiting.removeIf(Game::isFull);
+                Game next = null;
+                for (Game game : waiting) {
+                    if (next == null || game.getConnections() < next.getConnections()) next = game;
+                }
+                if (next != null) return next;
+                wait();
+            }
+        } catch (InterruptedException e) {
+            return null;
+        }
+    }
+
+    // Records that a game has finished.
+    // @param game the game that has finished.
+    private synchronized void gameOver(Game game) {
+        waiting.remove(game);
+        gamesFinished++;
+        notifyAll();
+    }
+
+    /**
+     * A game being relayed, with its judge and player connections.
+     */
+    private static class Game {
+
+        private final int gameId;
+        private final Messenger judge;
+        private final Map<Colour, Messenger> players;
+        private final Set<Messenger> spectators;
+
+        // Constructs a new Game object.
+        // @param gameId the id sent by the judge.
+        // @param judge the Messenger connected to the judge.
+        Game(int gameId, Messenger judge) {
+            this.gameId = gameId;
+            this.judge = judge;
+            this.players = new EnumMap<Colour, Messenger>(Colour.class);
+            this.spectators = new LinkedHashSet<Messenger>();
+        }
+
+        // Gives the next free colour to a player connection.
+        // @param player the Messenger connected to the player client.
+        // @return the Colour, or null if every colour has been taken.
+        synchronized Colour join(Messenger player) {
+            if (isFull()) return null;
+            Colour colour = kColours[players.size()];
+            players.put(colour, player);
+            spectators.add(player);
+            return colour;
+        }
+
+        // Returns the number of player connections that have joined.
+        // @return the number of player connections that have joined.
+        synchronized int getConnections() {
+            return spectators.size();
+        }
+
+        // Returns true if every colour has been taken.
+        // @return true if every colour has been taken.
+        synchronized boolean isFull() {
+            return players.size() == kColours.length;
+        }
+
+        // Sends a message to the player connection of a colour.
+        // @param colour the Colour of the player.
+        // @param message the message to send.
+        void send(Colour colour, Message message) {
+            Messenger player;
+            synchronized (this) {
+                player = players.get(colour);
+            }
+            if (player != null) player.write(message);
+        }
+
+        // Sends a message to every player connection.
+        // @param message the message to send.
+        void broadcast(Message message) {
+            List<Messenger> targets;
+            synchronized (this) {
+                targets = new ArrayList<Messenger>(spectators);
+            }
+            for (Messenger spectator : targets) spectator.write(message);
+        }
+
+    }
+
+}
@@ -0,0 +1,79 @@
+package client.network;
+
+import com.google.gson.stream.JsonReader;
+import messages.*;
+
+import java.io.*;
+
+/**
+ * A Messenger that passes messages to another LocalMessenger in the same
+ * process. Messages are still encoded and parsed by the MessageCodec, so the
+ * same work is done as over a socket.
+ */
+
+public class LocalMessenger implements Messenger {
+
+    private final ChunkReader in;
+    private final ChunkReader out;
+    private JsonReader reader = null;
+    private volatile boolean closed = false;
+
+    // Constructs a new LocalMessenger object.
+    // @param in the ChunkReader of messages to read.
+    // @param out the ChunkReader of the other end.
+    private LocalMessenger(ChunkReader in, ChunkReader out) {
+        this.in = in;
+        this.out = out;
+    }
+
+    /**
+     * Returns two LocalMessengers connected to each other.
+     *
+     * @return the two ends of the connection.
+     */
+    public static LocalMessenger[] pair() {
+        ChunkReader first = new ChunkReader();
+        ChunkReader second = new ChunkReader();
+        return new LocalMessenger[] {new LocalMessenger(first, second), new LocalMessenger(second, first)};
+    }
+
+    /**
+     * Returns the next message, waiting until one arrives.
+     *
+     * @return the next message, or a MessageStop if the connection has closed.
+     */
+    public Message read() {
+        if (reader == null) reader = MessageCodec.reader(in);
+        try {
+            Message message = MessageCodec.read(reader);
+            if (message != null) return message;
+        } catch (InterruptedIOException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error reading message :" + e);
+            close();
+        }
+        return new MessageStop();
+    }
+
+    /**
+     * Sends a message to the other end.
+     *
+     * @param message the message to send.
+     */
+    public void write(Message message) {
+        if (closed) return;
+        out.offer(MessageCodec.encode(message));
+    }
+
+    /**
+     * Closes both ends of the connection.
+     */
+    public void close() {
+        if (closed) return;
+        closed = true;
+        out.end();
+        in.end();
+    }
+
+}
@@ -0,0 +1,265 @@
+package client.network;
+
+import judge.*;
+import messages.*;
+import net.PlayerFactory;
+import scotlandyard.*;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * A class to run judges and a GameRelay in one process so the player
+ * clients can be load tested without the Node server or a JudgeService
+ * for each game. By default the players are played in the same process
+ * over LocalMessengers by players that choose a random Move:
+ * <pre>
+ *   java -Dgames=64 -DturnLimit=1000 -DthinkTime=0 client.network.LocalServer
+ * </pre>
+ * If a port is given the relay instead listens for player clients on it,
+ * so a PlayerService can be run against it:
+ * <pre>
+ *   java -Dgames=32 -Dport=8122 client.network.LocalServer
+ *   java -Dgames=32 PlayerService localhost 8122 ab1234 cd5678 ef4321
+ * </pre>
+ * The games are set up in the same way as by JudgeService.
+ */
+
+public class LocalServer {
+
+    private static final String kGraphFilename = "resources/graph.txt";
+
+    private static final List<Boolean> kRounds = Arrays.asList(
+            false,
+            false, false,
+            true,
+            false, false, false, false,
+            true,
+            false, false, false, false,
+            true,
+            false, false, false, false,
+            true,
+            false, false, false, false, false,
+            true);
+    private static final List<Integer> kMrXStart = Arrays.asList(35, 45, 51, 71, 78, 104, 106, 132, 127, 146, 166, 170, 172);
+    private static final List<Integer> kDetectiveStart = Arrays.asList(26, 34, 50, 53, 91, 94, 103, 112, 117, 13, 123, 138, 141, 155, 174, 29);
+    private static final int[] kMrXTickets = {4, 3, 3, 2, 5};
+    private static final int[] kDetectiveTickets = {8, 11, 4, 0, 0};
+
+    private final GameRelay relay;
+    private final long turnLimit;
+    private final ExecutorService judges;
+    private int nextGameId = 0;
+
+    /**
+     * Constructs a new LocalServer object.
+     *
+     * @param turnLimit the time each player has to make a Move in milliseconds.
+     */
+    public LocalServer(long turnLimit) {
+        this.relay = new GameRelay();
+        this.turnLimit = turnLimit;
+        this.judges = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "LocalServer-judge");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Runs the load test.
+     *
+     * @param args unused; the test is configured with system properties.
+     */
+    public static void main(String[] args) {
+        int games = Integer.getInteger("games", 1);
+        long turnLimit = Long.getLong("turnLimit", 15000);
+        long thinkTime = Long.getLong("thinkTime", 0);
+        int port = Integer.getInteger("port", 0);
+        int aiThreads = Integer.getInteger("aiThreads", Runtime.getRuntime().availableProcessors());
+        LocalServer server = new LocalServer(turnLimit);
+        PlayerClientHost clientHost = null;
+        try {
+            long start = System.currentTimeMillis();
+            for (int i = 0; i < games; i++) server.startGame();
+            server.getRelay().awaitInitialised(games);
+            if (port > 0) {
+                server.listen(port);
+                System.out.println("Waiting for players on port " + port);
+            } else {
+                clientHost = new PlayerClientHost(0, aiThreads);
+                List<String> studentIds = Arrays.asList("local1", "local2", "local3", "local4", "local5", "local6");
+                for (int i = 0; i < games; i++) {
+                    clientHost.play(server.connectPlayer(), studentIds, new RandomMoveFactory(thinkTime));
+                }
+            }
+            if (!server.getRelay().awaitGames(games, TimeUnit.HOURS.toMillis(1))) {
+                System.err.println("Timed out waiting for the games to finish");
+            }
+            long time = Math.max(1, System.currentTimeMillis() - start);
+            long moves = server.getRelay().getMoves();
+            System.out.println("Played " + server.getRelay().getGamesFinished() + " games and " + moves
+                               + " moves in " + time + "ms (" + (moves * 1000 / time) + " moves/s)");
+        } catch (Exception e) {
+            System.err.println("Error running games :" + e);
+            e.printStackTrace();
+        } finally {
+            if (clientHost != null) clientHost.close();
+            server.close();
+        }
+    }
+
+    /**
+     * Returns the GameRelay that passes messages between the judges and players.
+     *
+     * @return the GameRelay.
+     */
+    public GameRelay getRelay() {
+        return relay;
+    }
+
+    /**
+     * Starts a judge for a new game, which waits for six players to join.
+     */
+    public void startGame() {
+        LocalMessenger[] connection = LocalMessenger.pair();
+        relay.addJudge(connection[1]);
+        final ScotlandYardJudge judge = newJudge(nextGameId++, connection[0]);
+        judges.execute(() -> {
+            judge.initialiseGame();
+            judge.interpretMessages();
+        });
+    }
+
+    /**
+     * Returns a Messenger for a player client connected to the relay.
+     *
+     * @return the Messenger for the player client.
+     */
+    public Messenger connectPlayer() {
+        LocalMessenger[] connection = LocalMessenger.pair();
+        relay.addPlayer(connection[1]);
+        return connection[0];
+    }
+
+    /**
+     * Accepts player clients on a loopback port.
+     *
+     * @param port the port to listen on.
+     * @throws IOException if the port cannot be opened.
+     */
+    public void listen(int port) throws IOException {
+        final ServerSocketChannel server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(port));
+        final PlayerClientHost.IoLoop loop = new PlayerClientHost.IoLoop();
+        Thread ioThread = new Thread(loop, "LocalServer-io");
+        ioThread.setDaemon(true);
+        ioThread.start();
+        judges.execute(() -> {
+            try {
+                while (server.isOpen()) {
+                    SocketChannel channel = server.accept();
+                    channel.configureBlocking(false);
+                    ChannelMessenger messenger = new ChannelMessenger(channel, loop);
+                    loop.register(channel, messenger);
+                    relay.addPlayer(messenger);
+                }
+            } catch (ClosedByInterruptException e) {
+                // The server has been closed.
+            } catch (IOException e) {
+                System.err.println("Error accepting players :" + e);
+            }
+        });
+    }
+
+    /**
+     * Stops the judges and the relay.
+     */
+    public void close() {
+        judges.shutdownNow();
+        relay.close();
+    }
+
+    // Returns a judge for a game set up in the same way as by JudgeService.
+    // @param gameId the id of the game.
+    // @param messenger the Messenger connected to the relay.
+    // @return the judge for the game.
+    private ScotlandYardJudge newJudge(int gameId, Messenger messenger) {
+        List<Integer> mrXStart = new ArrayList<Integer>(kMrXStart);
+        Collections.shuffle(mrXStart);
+        List<Integer> detectiveStart = new ArrayList<Integer>(kDetectiveStart);
+        Collections.shuffle(detectiveStart);
+
+        Map<Colour, Integer> locations = new HashMap<Colour, Integer>();
+        Map<Colour, Map<Ticket, Integer>> tickets = new HashMap<Colour, Map<Ticket, Integer>>();
+        locations.put(Colour.Black, mrXStart.get(0));
+        tickets.put(Colour.Black, getTickets(kMrXTickets));
+        int i = 0;
+        for (Colour colour : Arrays.asList(Colour.Red, Colour.Blue, Colour.Green, Colour.White, Colour.Yellow)) {
+            locations.put(colour, detectiveStart.get(i++));
+            tickets.put(colour, getTickets(kDetectiveTickets));
+        }
+
+        JudgedScotlandYard game = new JudgedScotlandYard(5, kRounds, kGraphFilename);
+        return new ScotlandYardJudge(gameId, turnLimit, messenger, game, kGraphFilename, locations, tickets);
+    }
+
+    // Returns a Map of Ticket numbers.
+    // @param numbers the number of each Ticket in the order of Ticket.values().
+    // @return the Map of Ticket numbers.
+    private static Map<Ticket, Integer> getTickets(int[] numbers) {
+        Map<Ticket, Integer> tickets = new HashMap<Ticket, Integer>();
+        Ticket[] values = Ticket.values();
+        for (int i = 0; i < values.length; i++) tickets.put(values[i], numbers[i]);
+        return tickets;
+    }
+
+    /**
+     * A PlayerFactory for players that choose a random Move,
+     * optionally after waiting to simulate an AI's search.
+     */
+    public static class RandomMoveFactory implements PlayerFactory {
+
+        private final long thinkTime;
+
+        /**
+         * Constructs a new RandomMoveFactory object.
+         *
+         * @param thinkTime the time each player waits before choosing a Move in milliseconds.
+         */
+        public RandomMoveFactory(long thinkTime) {
+            this.thinkTime = thinkTime;
+        }
+
+        @Override
+        public Player player(Colour colour, ScotlandYardView view, String graphFilename) {
+            return (location, moves) -> {
+                if (thinkTime > 0) {
+                    try {
+                        Thread.sleep(thinkTime);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                List<Move> choices = new ArrayList<Move>(moves);
+                return choices.get(ThreadLocalRandom.current().nextInt(choices.size()));
+            };
+        }
+
+        @Override
+        public List<Spectator> getSpectators(ScotlandYardView view) {
+            return new ArrayList<Spectator>();
+        }
+
+        @Override
+        public void ready() {}
+
+        @Override
+        public void finish() {}
+
+    }
+
+}
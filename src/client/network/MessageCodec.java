@@ -0,0 +1,399 @@
+package client.network;
+
+import com.google.gson.stream.*;
+import messages.*;
+import scotlandyard.*;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A class to read and write messages in the JSON format used by
+ * Message.toJSON and Message.fromJSON, without building the intermediate
+ * Maps and Strings that they do.
+ * Messages are read one at a time from a lenient JsonReader over the whole
+ * connection, and written into pooled ByteBuffers. Moves are interned through
+ * the MoveTicket, MoveDouble and MovePass instance caches, as the Sets of
+ * valid Moves compare them by identity.
+ */
+
+public class MessageCodec {
+
+    public static final int kBufferSize = 4096;
+    private static final int kPoolSize = 1024;
+    private static final int kMaxTarget = 256;
+
+    private static final Colour[] kColours = Colour.values();
+    private static final Ticket[] kTickets = Ticket.values();
+
+    private static final BlockingQueue<ByteBuffer> pool = new ArrayBlockingQueue<ByteBuffer>(kPoolSize);
+    private static final AtomicReferenceArray<MoveTicket> moveTickets =
+            new AtomicReferenceArray<MoveTicket>(kColours.length * kTickets.length * kMaxTarget);
+    private static final AtomicReferenceArray<MovePass> movePasses = new AtomicReferenceArray<MovePass>(kColours.length);
+    private static final ThreadLocal<StringBuilder> builders = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    private MessageCodec() {}
+
+    /**
+     * Returns a new lenient JsonReader so that one message after another can
+     * be read from the same Reader.
+     *
+     * @param in the Reader of the connection.
+     * @return the JsonReader.
+     */
+    public static JsonReader reader(Reader in) {
+        JsonReader reader = new JsonReader(in);
+        reader.setLenient(true);
+        return reader;
+    }
+
+    /**
+     * Reads the next message.
+     *
+     * @param reader the JsonReader of the connection.
+     * @return the next message, or null if the connection has ended.
+     * @throws IOException if the message cannot be read.
+     */
+    public static Message read(JsonReader reader) throws IOException {
+        try {
+            if (reader.peek() == JsonToken.END_DOCUMENT) return null;
+        } catch (EOFException e) {
+            return null;
+        }
+        String type = null;
+        Colour colour = null;
+        int location = 0;
+        long timestamp = 0;
+        String studentId = null;
+        int gameId = 0;
+        int detectives = 0;
+        Set<Colour> winners = null;
+        Move move = null;
+        String mapFilename = null;
+        List<Boolean> rounds = null;
+        Map<Colour, Integer> locations = null;
+        Map<Colour, Map<Ticket, Integer>> tickets = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "type": type = reader.nextString(); break;
+                case "colour": colour = Colour.valueOf(reader.nextString()); break;
+                case "location": location = reader.nextInt(); break;
+                case "timestamp": timestamp = reader.nextLong(); break;
+                case "student_id": studentId = reader.nextString(); break;
+                case "game_id": gameId = reader.nextInt(); break;
+                case "n_detectives": detectives = reader.nextInt(); break;
+                case "winners": winners = readColours(reader); break;
+                case "move": move = readMove(reader); break;
+                case "map_filename": mapFilename = reader.nextString(); break;
+                case "rounds": rounds = readRounds(reader); break;
+                case "locations": locations = readLocations(reader); break;
+                case "tickets": tickets = readTickets(reader); break;
+                default: reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (type == null) throw new IOException("Message without a type");
+        switch (type) {
+            case "NOTIFY": return new MessageNotify(move);
+            case "MOVE": return new MessageMove(move);
+            case "NOTIFY_TURN": return new MessageNotifyTurn(colour, location, timestamp);
+            case "REGISTER": return new MessageRegister(studentId);
+            case "REGISTERED": return new MessageRegistered(colour);
+            case "JOIN": return new MessageJoin(colour);
+            case "READY": return new MessageReady(detectives, rounds, mapFilename, locations, tickets);
+            case "GAME_OVER": return new MessageGameOver(winners);
+            case "INITIALISE": return new MessageInitialise(gameId);
+            case "INITIALISED": return new MessageInitialised();
+            case "INSTANCE": return new MessageInstance(gameId, detectives);
+            case "NEW_INSTANCE": return new MessageNewInstance(gameId);
+            case "STOP": return new MessageStop();
+            default: throw new IOException("Unknown message type " + type);
+        }
+    }
+
+    /**
+     * Writes a message as a line of JSON into a ByteBuffer ready to be sent.
+     * The ByteBuffer should be given back with release once it has been sent.
+     *
+     * @param message the message to write.
+     * @return the ByteBuffer containing the message.
+     */
+    public static ByteBuffer encode(Message message) {
+        StringBuilder json = builders.get();
+        json.setLength(0);
+        write(message, json);
+        json.append('\n');
+        int length = json.length();
+        ByteBuffer buffer = length <= kBufferSize ? acquire() : ByteBuffer.allocate(length);
+        for (int i = 0; i < length; i++) {
+            char c = json.charAt(i);
+            if (c >= 0x80) {
+                release(buffer);
+                return ByteBuffer.wrap(json.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            buffer.put((byte) c);
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Writes a message as JSON.
+     * The messages sent during a game are written directly, and any others
+     * with Message.toJSON.
+     *
+     * @param message the message to write.
+     * @param json the StringBuilder to write to.
+     */
+    public static void write(Message message, StringBuilder json) {
+        if (message instanceof MessageNotify) {
+            json.append("{\"type\":\"NOTIFY\",");
+            writeMove(((MessageNotify) message).move, json);
+            json.append('}');
+        } else if (message instanceof MessageMove) {
+            json.append("{\"type\":\"MOVE\",");
+            writeMove(((MessageMove) message).move, json);
+            json.append('}');
+        } else if (message instanceof MessageNotifyTurn) {
+            MessageNotifyTurn notifyTurn = (MessageNotifyTurn) message;
+            json.append("{\"type\":\"NOTIFY_TURN\",\"colour\":\"").append(notifyTurn.colour)
+                .append("\",\"location\":").append(notifyTurn.location)
+                .append(",\"timestamp\":").append(notifyTurn.timestamp).append('}');
+        } else if (message instanceof MessageRegister) {
+            json.append("{\"type\":\"REGISTER\",\"student_id\":");
+            writeString(((MessageRegister) message).studentId, json);
+            json.append('}');
+        } else if (message instanceof MessageRegistered) {
+            json.append("{\"type\":\"REGISTERED\",\"colour\":\"").append(((MessageRegistered) message).colour).append("\"}");
+        } else if (message instanceof MessageJoin) {
+            json.append("{\"type\":\"JOIN\",\"colour\":\"").append(((MessageJoin) message).colour).append("\"}");
+        } else if (message instanceof MessageGameOver) {
+            json.append("{\"type\":\"GAME_OVER\",\"winners\":[");
+            boolean first = true;
+            for (Colour winner : ((MessageGameOver) message).winners) {
+                if (!first) json.append(',');
+                json.append('"').append(winner).append('"');
+                first = false;
+            }
+            json.append("]}");
+        } else if (message instanceof MessageInitialise) {
+            json.append("{\"type\":\"INITIALISE\",\"game_id\":").append(((MessageInitialise) message).gameId).append('}');
+        } else if (message instanceof MessageInitialised) {
+            json.append("{\"type\":\"INITIALISED\"}");
+        } else if (message instanceof MessageStop) {
+            json.append("{\"type\":\"STOP\"}");
+        } else {
+            json.append(message.toJSON());
+        }
+    }
+
+    /**
+     * Returns an empty ByteBuffer of kBufferSize bytes from the pool.
+     *
+     * @return the ByteBuffer.
+     */
+    public static ByteBuffer acquire() {
+        ByteBuffer buffer = pool.poll();
+        if (buffer == null) buffer = ByteBuffer.allocate(kBufferSize);
+        return buffer;
+    }
+
+    /**
+     * Gives a ByteBuffer back to the pool once it is no longer used.
+     *
+     * @param buffer the ByteBuffer.
+     */
+    public static void release(ByteBuffer buffer) {
+        if (buffer.capacity() != kBufferSize || !buffer.hasArray()) return;
+        buffer.clear();
+        pool.offer(buffer);
+    }
+
+    /**
+     * Returns the interned MoveTicket.
+     * The instance caches are not thread safe, so they are only used
+     * the first time each Move is seen.
+     *
+     * @param colour the Colour of the player.
+     * @param ticket the Ticket used.
+     * @param target the target location.
+     * @return the MoveTicket.
+     */
+    public static MoveTicket moveTicket(Colour colour, Ticket ticket, int target) {
+        if (target < 0 || target >= kMaxTarget) {
+            synchronized (MoveTicket.class) {
+                return MoveTicket.instance(colour, ticket, target);
+            }
+        }
+        int index = (colour.ordinal() * kTickets.length + ticket.ordinal()) * kMaxTarget + target;
+        MoveTicket move = moveTickets.get(index);
+        if (move == null) {
+            synchronized (MoveTicket.class) {
+                move = MoveTicket.instance(colour, ticket, target);
+            }
+            moveTickets.set(index, move);
+        }
+        return move;
+    }
+
+    /**
+     * Returns the interned MoveDouble.
+     *
+     * @param colour the Colour of the player.
+     * @param move1 the first MoveTicket.
+     * @param move2 the second MoveTicket.
+     * @return the MoveDouble.
+     */
+    public static MoveDouble moveDouble(Colour colour, MoveTicket move1, MoveTicket move2) {
+        synchronized (MoveDouble.class) {
+            return MoveDouble.instance(colour, move1, move2);
+        }
+    }
+
+    /**
+     * Returns the interned MovePass.
+     *
+     * @param colour the Colour of the player.
+     * @return the MovePass.
+     */
+    public static MovePass movePass(Colour colour) {
+        MovePass move = movePasses.get(colour.ordinal());
+        if (move == null) {
+            synchronized (MovePass.class) {
+                move = MovePass.instance(colour);
+            }
+            movePasses.set(colour.ordinal(), move);
+        }
+        return move;
+    }
+
+    // Reads a Move, working out its type from its fields since
+    // "move_type" may come after it.
+    // @param reader the JsonReader to read from.
+    // @return the interned Move.
+    private static Move readMove(JsonReader reader) throws IOException {
+        Colour colour = null;
+        Ticket ticket = null;
+        int target = 0;
+        Move move1 = null;
+        Move move2 = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "colour": colour = Colour.valueOf(reader.nextString()); break;
+                case "ticket": ticket = Ticket.valueOf(reader.nextString()); break;
+                case "target": target = reader.nextInt(); break;
+                case "move1": move1 = readMove(reader); break;
+                case "move2": move2 = readMove(reader); break;
+                default: reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (colour == null) throw new IOException("Move without a colour");
+        if (move1 instanceof MoveTicket && move2 instanceof MoveTicket) {
+            return moveDouble(colour, (MoveTicket) move1, (MoveTicket) move2);
+        }
+        if (ticket != null) return moveTicket(colour, ticket, target);
+        return movePass(colour);
+    }
+
+    // Reads an array of Colours.
+    // @param reader the JsonReader to read from.
+    // @return the Set of Colours.
+    private static Set<Colour> readColours(JsonReader reader) throws IOException {
+        Set<Colour> colours = new HashSet<Colour>();
+        reader.beginArray();
+        while (reader.hasNext()) colours.add(Colour.valueOf(reader.nextString()));
+        reader.endArray();
+        return colours;
+    }
+
+    // Reads the array of rounds in which Mr X is shown.
+    // @param reader the JsonReader to read from.
+    // @return the List of rounds.
+    private static List<Boolean> readRounds(JsonReader reader) throws IOException {
+        List<Boolean> rounds = new ArrayList<Boolean>();
+        reader.beginArray();
+        while (reader.hasNext()) rounds.add(reader.nextBoolean());
+        reader.endArray();
+        return rounds;
+    }
+
+    // Reads the locations of the players.
+    // @param reader the JsonReader to read from.
+    // @return the Map of locations.
+    private static Map<Colour, Integer> readLocations(JsonReader reader) throws IOException {
+        Map<Colour, Integer> locations = new HashMap<Colour, Integer>();
+        reader.beginObject();
+        while (reader.hasNext()) locations.put(Colour.valueOf(reader.nextName()), reader.nextInt());
+        reader.endObject();
+        return locations;
+    }
+
+    // Reads the tickets of the players.
+    // @param reader the JsonReader to read from.
+    // @return the Map of tickets.
+    private static Map<Colour, Map<Ticket, Integer>> readTickets(JsonReader reader) throws IOException {
+        Map<Colour, Map<Ticket, Integer>> tickets = new HashMap<Colour, Map<Ticket, Integer>>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            Colour colour = Colour.valueOf(reader.nextName());
+            Map<Ticket, Integer> numbers = new HashMap<Ticket, Integer>();
+            reader.beginObject();
+            while (reader.hasNext()) numbers.put(Ticket.valueOf(reader.nextName()), reader.nextInt());
+            reader.endObject();
+            tickets.put(colour, numbers);
+        }
+        reader.endObject();
+        return tickets;
+    }
+
+    // Writes a Move and its type.
+    // @param move the Move to write.
+    // @param json the StringBuilder to write to.
+    private static void writeMove(Move move, StringBuilder json) {
+        if (move instanceof MoveDouble) json.append("\"move_type\":\"MoveDouble\",\"move\":");
+        else if (move instanceof MoveTicket) json.append("\"move_type\":\"MoveTicket\",\"move\":");
+        else json.append("\"move_type\":\"MovePass\",\"move\":");
+        writeMoveFields(move, json);
+    }
+
+    // Writes the fields of a Move.
+    // @param move the Move to write.
+    // @param json the StringBuilder to write to.
+    private static void writeMoveFields(Move move, StringBuilder json) {
+        json.append("{\"colour\":\"").append(move.colour).append('"');
+        if (move instanceof MoveTicket) {
+            MoveTicket moveTicket = (MoveTicket) move;
+            json.append(",\"ticket\":\"").append(moveTicket.ticket).append("\",\"target\":").append(moveTicket.target);
+        } else if (move instanceof MoveDouble) {
+            json.append(",\"move1\":");
+            writeMoveFields(((MoveDouble) move).move1, json);
+            json.append(",\"move2\":");
+            writeMoveFields(((MoveDouble) move).move2, json);
+        }
+        json.append('}');
+    }
+
+    // Writes a JSON string.
+    // @param value the String to write.
+    // @param json the StringBuilder to write to.
+    private static void writeString(String value, StringBuilder json) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') json.append('\\').append(c);
+            else if (c < 0x20) json.append(String.format("\\u%04x", (int) c));
+            else json.append(c);
+        }
+        json.append('"');
+    }
+
+}
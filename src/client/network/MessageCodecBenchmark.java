@@ -0,0 +1,134 @@
+package client.network;
+
+import com.google.gson.stream.JsonReader;
+import messages.*;
+import scotlandyard.*;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * A benchmark comparing the MessageCodec with Message.toJSON and
+ * Message.fromJSON on the messages sent during a game:
+ * <pre>
+ *   java client.network.MessageCodecBenchmark [messages] [rounds]
+ * </pre>
+ * It reports the messages per second and the bytes allocated per message
+ * for encoding and for decoding.
+ */
+
+public class MessageCodecBenchmark {
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args optionally the number of messages and the number of rounds.
+     */
+    public static void main(String[] args) throws IOException {
+        int count = 200000;
+        int rounds = 5;
+        if (args.length > 0) count = Integer.parseInt(args[0]);
+        if (args.length > 1) rounds = Integer.parseInt(args[1]);
+
+        List<Message> messages = traffic(count);
+        List<String> lines = new ArrayList<String>();
+        for (Message message : messages) lines.add(message.toJSON());
+        byte[] stream = String.join("\n", lines).concat("\n").getBytes(StandardCharsets.UTF_8);
+
+        for (int round = 0; round < rounds; round++) {
+            boolean last = round == rounds - 1;
+            report(last, "library encode", count, () -> {
+                long bytes = 0;
+                for (Message message : messages) bytes += (message.toJSON() + "\n").getBytes(StandardCharsets.UTF_8).length;
+                return bytes;
+            });
+            report(last, "codec encode", count, () -> {
+                long bytes = 0;
+                for (Message message : messages) {
+                    ByteBuffer buffer = MessageCodec.encode(message);
+                    bytes += buffer.remaining();
+                    MessageCodec.release(buffer);
+                }
+                return bytes;
+            });
+            report(last, "library decode", count, () -> {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(stream), StandardCharsets.UTF_8));
+                long decoded = 0;
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (Message.fromJSON(line) != null) decoded++;
+                }
+                return decoded;
+            });
+            report(last, "codec decode", count, () -> {
+                ChunkReader in = new ChunkReader();
+                for (int offset = 0; offset < stream.length; offset += MessageCodec.kBufferSize) {
+                    ByteBuffer chunk = MessageCodec.acquire();
+                    chunk.put(stream, offset, Math.min(MessageCodec.kBufferSize, stream.length - offset)).flip();
+                    in.offer(chunk);
+                }
+                in.end();
+                JsonReader reader = MessageCodec.reader(in);
+                long decoded = 0;
+                while (MessageCodec.read(reader) != null) decoded++;
+                return decoded;
+            });
+        }
+    }
+
+    // Returns the messages of a number of game turns: a NOTIFY_TURN, a MOVE
+    // and a NOTIFY, with the odd double Move and pass.
+    // @param count the number of messages.
+    // @return the List of messages.
+    private static List<Message> traffic(int count) {
+        Random random = new Random(1);
+        Colour[] colours = Colour.values();
+        Ticket[] tickets = {Ticket.Taxi, Ticket.Bus, Ticket.Underground, Ticket.Secret};
+        List<Message> messages = new ArrayList<Message>();
+        while (messages.size() < count) {
+            Colour colour = colours[random.nextInt(colours.length)];
+            Move move;
+            int roll = random.nextInt(20);
+            if (roll == 0) {
+                move = MovePass.instance(colour);
+            } else if (roll == 1) {
+                move = MoveDouble.instance(colour, tickets[random.nextInt(4)], 1 + random.nextInt(199),
+                                           tickets[random.nextInt(4)], 1 + random.nextInt(199));
+            } else {
+                move = MoveTicket.instance(colour, tickets[random.nextInt(3)], 1 + random.nextInt(199));
+            }
+            messages.add(new MessageNotifyTurn(colour, 1 + random.nextInt(199), System.currentTimeMillis()));
+            messages.add(new MessageMove(move));
+            messages.add(new MessageNotify(move));
+        }
+        return messages.subList(0, count);
+    }
+
+    // Runs one part of the benchmark and prints its results.
+    // @param print true if the results should be printed.
+    // @param name the name of the part.
+    // @param count the number of messages.
+    // @param task the part to run.
+    private static void report(boolean print, String name, int count, Task task) throws IOException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        long allocated = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        task.run();
+        long time = Math.max(1, System.nanoTime() - start);
+        allocated = threads.getThreadAllocatedBytes(thread) - allocated;
+        if (print) {
+            System.out.println(String.format("%-16s %,12d messages/s %8d bytes/message",
+                                             name, count * 1000000000L / time, allocated / count));
+        }
+    }
+
+    // A part of the benchmark.
+    private interface Task {
+        long run() throws IOException;
+    }
+
+}
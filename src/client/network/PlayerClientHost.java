@@ -0,0 +1,184 @@
+package client.network;
+
+import messages.Messenger;
+import net.*;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A class to play many games from one process.
+ * The connections of every game share a few I/O threads, each of which
+ * services its connections with a Selector, and the notify calls of
+ * every game's Players share one pool of worker threads.
+ */
+
+public class PlayerClientHost implements Closeable {
+
+    private final List<IoLoop> loops;
+    private final ExecutorService workers;
+    private final ExecutorService games;
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * Constructs a new PlayerClientHost object.
+     *
+     * @param ioThreads the number of threads servicing the connections.
+     * @param workerThreads the number of threads running the Players' notify calls.
+     * @throws IOException if a Selector cannot be opened.
+     */
+    public PlayerClientHost(int ioThreads, int workerThreads) throws IOException {
+        loops = new ArrayList<IoLoop>();
+        for (int i = 0; i < ioThreads; i++) {
+            IoLoop loop = new IoLoop();
+            loops.add(loop);
+            Thread thread = new Thread(loop, "PlayerClientHost-io-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        workers = Executors.newFixedThreadPool(workerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "PlayerClientHost-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        games = Executors.newCachedThreadPool();
+    }
+
+    /**
+     * Connects a new game to a judge and starts playing it.
+     *
+     * @param host the host name of the judge.
+     * @param port the port of the judge.
+     * @param studentIds the List of student ids to register.
+     * @param factory the PlayerFactory to make the Players.
+     * @return a Future which completes when the game has finished.
+     * @throws IOException if the connection cannot be started.
+     */
+    public Future<?> connect(String host, int port, List<String> studentIds, PlayerFactory factory) throws IOException {
+        SocketChannel channel = SocketChannel.open();
+        channel.configureBlocking(false);
+        channel.connect(new InetSocketAddress(host, port));
+        IoLoop loop = loops.get(Math.floorMod(next.getAndIncrement(), loops.size()));
+        ChannelMessenger messenger = new ChannelMessenger(channel, loop);
+        loop.register(channel, messenger);
+        return play(messenger, studentIds, factory);
+    }
+
+    /**
+     * Starts playing a game over an existing connection.
+     *
+     * @param messenger the Messenger connected to the judge.
+     * @param studentIds the List of student ids to register.
+     * @param factory the PlayerFactory to make the Players.
+     * @return a Future which completes when the game has finished.
+     */
+    public Future<?> play(final Messenger messenger, List<String> studentIds, PlayerFactory factory) {
+        final PlayerClient client = new PlayerClient(messenger, studentIds, new ScotlandYardLocalModel(),
+                                                     new PooledPlayerFactory(factory, workers));
+        return games.submit(() -> {
+            try {
+                client.run();
+            } finally {
+                messenger.close();
+            }
+        });
+    }
+
+    /**
+     * Stops all of the threads. Games that are still being played are abandoned.
+     */
+    public void close() {
+        for (IoLoop loop : loops) loop.stop();
+        workers.shutdownNow();
+        games.shutdownNow();
+    }
+
+    /**
+     * A thread that services a set of connections with a Selector.
+     */
+    static class IoLoop implements Runnable {
+
+        private final Selector selector;
+        private final Queue<Runnable> tasks;
+        private volatile boolean running = true;
+
+        // Constructs a new IoLoop object.
+        IoLoop() throws IOException {
+            selector = Selector.open();
+            tasks = new ConcurrentLinkedQueue<Runnable>();
+        }
+
+        // Runs a task on the I/O thread.
+        // @param task the task to run.
+        void execute(Runnable task) {
+            tasks.add(task);
+            selector.wakeup();
+        }
+
+        // Registers a channel with the Selector.
+        // @param channel the SocketChannel to register.
+        // @param messenger the ChannelMessenger of the channel.
+        void register(final SocketChannel channel, final ChannelMessenger messenger) {
+            execute(() -> {
+                try {
+                    messenger.registered(channel.register(selector, SelectionKey.OP_CONNECT, messenger));
+                } catch (ClosedChannelException e) {
+                    messenger.close();
+                }
+            });
+        }
+
+        // Stops the loop and closes the Selector.
+        void stop() {
+            running = false;
+            selector.wakeup();
+        }
+
+        /**
+         * Services the connections until the loop is stopped.
+         */
+        public void run() {
+            while (running) {
+                try {
+                    selector.select();
+                    Runnable task;
+                    while ((task = tasks.poll()) != null) task.run();
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        service(key);
+                    }
+                } catch (IOException e) {
+                    System.err.println("Error servicing connections :" + e);
+                }
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                System.err.println(e);
+            }
+        }
+
+        // Services a connection that is ready.
+        // @param key the SelectionKey of the connection.
+        private void service(SelectionKey key) {
+            ChannelMessenger messenger = (ChannelMessenger) key.attachment();
+            try {
+                if (!key.isValid()) return;
+                if (key.isConnectable()) messenger.connectable();
+                if (key.isValid() && key.isReadable()) messenger.readable();
+                if (key.isValid() && key.isWritable()) messenger.writable();
+            } catch (IOException | CancelledKeyException e) {
+                System.err.println("Error servicing connection :" + e);
+                messenger.close();
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,70 @@
+package client.network;
+
+import net.PlayerFactory;
+import scotlandyard.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * A PlayerFactory that runs the notify calls of the Players made by another
+ * PlayerFactory on a shared pool of worker threads, so the number of AI
+ * searches running at once is bounded however many games are being played.
+ */
+
+public class PooledPlayerFactory implements PlayerFactory {
+
+    private final PlayerFactory factory;
+    private final ExecutorService workers;
+
+    /**
+     * Constructs a new PooledPlayerFactory object.
+     *
+     * @param factory the PlayerFactory that makes the Players.
+     * @param workers the ExecutorService to run the notify calls on.
+     */
+    public PooledPlayerFactory(PlayerFactory factory, ExecutorService workers) {
+        this.factory = factory;
+        this.workers = workers;
+    }
+
+    /**
+     * Returns a Player whose notify calls run on the worker pool.
+     *
+     * @param colour the Colour of the player in the game.
+     * @param view the ScotlandYardView containing information about the game.
+     * @param graphFilename the path to the file containing the Graph.
+     * @return the Player.
+     */
+    @Override
+    public Player player(Colour colour, ScotlandYardView view, String graphFilename) {
+        final Player player = factory.player(colour, view, graphFilename);
+        return (location, moves) -> {
+            try {
+                return workers.submit(() -> player.notify(location, moves)).get();
+            } catch (InterruptedException e) {
+                System.err.println(e);
+            } catch (ExecutionException e) {
+                System.err.println("Error choosing a move :" + e.getCause());
+                e.getCause().printStackTrace();
+            }
+            return moves.iterator().next();
+        };
+    }
+
+    @Override
+    public List<Spectator> getSpectators(ScotlandYardView view) {
+        return factory.getSpectators(view);
+    }
+
+    @Override
+    public void ready() {
+        factory.ready();
+    }
+
+    @Override
+    public void finish() {
+        factory.finish();
+    }
+
+}
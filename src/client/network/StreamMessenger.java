@@ -0,0 +1,80 @@
+package client.network;
+
+import com.google.gson.stream.JsonReader;
+import messages.*;
+
+import java.io.*;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A Messenger for a blocking Socket that does the same job as TcpMessenger,
+ * but reads messages with the MessageCodec straight from the socket's
+ * stream and writes them from pooled buffers.
+ */
+
+public class StreamMessenger implements Messenger {
+
+    private final Socket socket;
+    private final JsonReader reader;
+    private final OutputStream out;
+
+    /**
+     * Constructs a new StreamMessenger object connected to a server.
+     *
+     * @param host the host name of the server.
+     * @param port the port of the server.
+     * @throws IOException if the connection cannot be made.
+     */
+    public StreamMessenger(String host, int port) throws IOException {
+        socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);
+        reader = MessageCodec.reader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        out = socket.getOutputStream();
+    }
+
+    /**
+     * Returns the next message, waiting until one arrives.
+     *
+     * @return the next message, or a MessageStop if the connection has closed.
+     */
+    public Message read() {
+        try {
+            Message message = MessageCodec.read(reader);
+            if (message != null) return message;
+        } catch (IOException | RuntimeException e) {
+            if (!socket.isClosed()) System.err.println("Error reading message :" + e);
+        }
+        return new MessageStop();
+    }
+
+    /**
+     * Sends a message.
+     *
+     * @param message the message to send.
+     */
+    public synchronized void write(Message message) {
+        ByteBuffer buffer = MessageCodec.encode(message);
+        try {
+            out.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            out.flush();
+        } catch (IOException e) {
+            System.err.println("Error sending message :" + e);
+        } finally {
+            MessageCodec.release(buffer);
+        }
+    }
+
+    /**
+     * Closes the connection.
+     */
+    public void close() {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            System.err.println(e);
+        }
+    }
+
+}
@@ -490,7 +490,7 @@ public class BoardView extends AnimatablePanel implements MouseListener, MouseMo
             && ((d.y - offset) < yPos && yPos < (d.y + offset))) {
             cursorPos = e.getPoint();
             Set<Ticket> validTickets = getValidTickets(point);
-            cursorImage = fileAccess.getCursors().get(validTickets);
+            cursorImage = fileAccess.getCursor(validTickets);
         } else {
             cursorImage = null;
         }
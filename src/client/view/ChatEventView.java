@@ -8,6 +8,7 @@ import javax.swing.*;
 import java.awt.*;
 import java.util.*;
 import java.awt.event.*;
+import java.io.*;
 import javax.swing.plaf.basic.BasicScrollBarUI;
 
 /**
@@ -18,12 +19,16 @@ public class ChatEventView extends JPanel {
   
     private static final long serialVersionUID = 6051734428889451747L;
   
-    private GridBagConstraints constraints;
+    private static final int kLogCapacity = 200;
+    private static final int kRowHeight = 22;
+    private static final int kWrapWidth = 180;
+    private static final boolean kSpillHistory = true;
+
     private JScrollPane scrollPane;
-    private JPanel scrollContainer;
-    private JPanel spacer;
-    private int messageCount;
+    private JList<GameLog.Entry> list;
+    private GameLog log;
     private Map<Ticket, BufferedImage> images;
+    private final Font font = Formatter.defaultFontOfSize(14);
     
     /**
      * Constructs a new ChatEventView object.
@@ -32,35 +37,36 @@ public class ChatEventView extends JPanel {
      */
     public ChatEventView(FileAccess fileAccess) {
         setLayout(new BorderLayout());
-        messageCount = 0;
         setOpaque(false);
         setBorder(BorderFactory.createEmptyBorder(0, 32, 0, 20));
         
-        scrollContainer = new JPanel();
-        scrollContainer.setLayout(new GridBagLayout());
-        scrollContainer.setOpaque(false);
-        constraints = new GridBagConstraints();
-        constraints.weightx = 1;
-        constraints.weighty = 0;
-        constraints.anchor = GridBagConstraints.NORTH;
-        constraints.fill = GridBagConstraints.HORIZONTAL;
-        constraints.gridy = 0;
+        log = new GameLog(kLogCapacity);
+        if (kSpillHistory) {
+            try {
+                File historyFile = File.createTempFile("gamelog", ".dat");
+                historyFile.deleteOnExit();
+                log.spillTo(historyFile);
+            } catch (IOException e) {
+                System.err.println("Error creating the game log history :" + e);
+            }
+        }
         
-        JPanel topSpacer = new JPanel();
-        topSpacer.setOpaque(false);
-        scrollContainer.add(topSpacer, constraints);
+        // A JList with a fixed cell height only lays out and paints the visible rows.
+        list = new JList<GameLog.Entry>(log);
+        list.setOpaque(false);
+        list.setFixedCellHeight(kRowHeight);
+        list.setSelectionModel(new NoSelectionModel());
+        list.setCellRenderer(new EntryView());
         
-        scrollPane = new JScrollPane(scrollContainer);
+        scrollPane = new JScrollPane(list);
         scrollPane.setOpaque(false);
         scrollPane.getViewport().setOpaque(false);
         scrollPane. setBorder(BorderFactory.createEmptyBorder(0, 0, 0, 0));
         scrollPane.getVerticalScrollBar().setOpaque(false);
         scrollPane.getVerticalScrollBar().setUI(new ScrollBarUI());
+        scrollPane.getVerticalScrollBar().setUnitIncrement(kRowHeight);
         add(scrollPane, BorderLayout.CENTER);
         
-        spacer = new JPanel();
-        spacer.setOpaque(false);
-        
         images = fileAccess.getTicketsSmall();
     }
     
@@ -91,7 +97,7 @@ public class ChatEventView extends JPanel {
      * @param string the message to be added.
      */
     public void addMessage(String string) {
-        addMessage(new MessageView(Colour.Black, string, 180));
+        addMessage(Colour.Black, string);
     }
     
     /**
@@ -100,129 +106,156 @@ public class ChatEventView extends JPanel {
      * @param move the Move to be added.
      */
     public void addMessage(Move move) {
-        MessageView message = null;
-        if (move instanceof MoveDouble) message = new MessageView(move.colour, "Mr X played a double move:", 180);
-        else if (move instanceof MoveTicket) message = new MessageView((MoveTicket) move);
-        else if (move instanceof MovePass) message = new MessageView(move.colour, move.colour + " Detective played a MovePass", 180);
-        addMessage(message);
+        if (move instanceof MoveDouble) addMessage(move.colour, "Mr X played a double move:");
+        else if (move instanceof MoveTicket) addEntry(new GameLog.Entry(move.colour, ((MoveTicket) move).ticket, ((MoveTicket) move).target));
+        else if (move instanceof MovePass) addMessage(move.colour, move.colour + " Detective played a MovePass");
     }
     
-    /**
-     * Adds a new MessageView to the game log.
-     *
-     * @param messageView the MessageView to be added.
-     */
-    private void addMessage(MessageView messageView) {
-        constraints.gridy = messageCount + 1;
-        remove(spacer);
-        scrollContainer.add(messageView, constraints);
-        messageCount++;
-        constraints.gridy = messageCount + 1;
-        constraints.fill = GridBagConstraints.BOTH;
-        constraints.weighty = 1;
-        scrollContainer.add(spacer, constraints);
-        constraints.fill = GridBagConstraints.HORIZONTAL;
-        constraints.weighty = 0;
-        
-        scrollContainer.revalidate();
-        Dimension containerSize = scrollContainer.getSize();
-        
-        JScrollBar vBar = scrollPane.getVerticalScrollBar();
-        vBar.setValue(vBar.getMaximum());
+    // Adds a message to the game log, wrapped onto as many rows as it needs.
+    // @param colour the Colour of the player to whom this message relates.
+    // @param message the message to be added.
+    private void addMessage(final Colour colour, final String message) {
+        SwingUtilities.invokeLater(() -> {
+            boolean continued = false;
+            for (String line : wrap(message, getFontMetrics(font), kWrapWidth)) {
+                log.add(new GameLog.Entry(colour, line, continued));
+                continued = true;
+            }
+            list.ensureIndexIsVisible(log.getSize() - 1);
+        });
+    }
+    
+    // Adds a new entry to the game log and scrolls to it.
+    // @param entry the entry to be added.
+    private void addEntry(final GameLog.Entry entry) {
+        SwingUtilities.invokeLater(() -> {
+            log.add(entry);
+            list.ensureIndexIsVisible(log.getSize() - 1);
+        });
+    }
+    
+    // Splits a message into lines that fit within the specified width,
+    // breaking between words where it can.
+    // @param message the message to be split.
+    // @param metrics the FontMetrics of the font the message is drawn in.
+    // @param width the width of a line in pixels.
+    // @return the lines of the message.
+    private static java.util.List<String> wrap(String message, FontMetrics metrics, int width) {
+        java.util.List<String> lines = new ArrayList<String>();
+        if (message == null) message = "";
+        StringBuilder line = new StringBuilder();
+        for (String word : message.split(" ")) {
+            String next = line.length() == 0 ? word : line + " " + word;
+            if (metrics.stringWidth(next) <= width) {
+                line.setLength(0);
+                line.append(next);
+                continue;
+            }
+            if (line.length() > 0) lines.add(line.toString());
+            line.setLength(0);
+            // A word too long for a line of its own is broken between characters.
+            int start = 0;
+            for (int i = 0; i < word.length(); i = word.offsetByCodePoints(i, 1)) {
+                int end = word.offsetByCodePoints(i, 1);
+                if (i > start && metrics.stringWidth(word.substring(start, end)) > width) {
+                    lines.add(word.substring(start, i));
+                    start = i;
+                }
+            }
+            line.append(word.substring(start));
+        }
+        if (line.length() > 0 || lines.isEmpty()) lines.add(line.toString());
+        return lines;
     }
     
     /**
      * Clears the game log.
      */
     public void clear() {
-        scrollContainer.removeAll();
+        SwingUtilities.invokeLater(log::clear);
     }
     
-    // A view to display a message.
-    private class MessageView extends AnimatablePanel {
-      
-        private Colour player;
+    // A renderer to draw a single entry in the game log.
+    // The same view is reused to stamp every visible row.
+    private class EntryView extends JPanel implements ListCellRenderer<GameLog.Entry> {
+        
+        private static final long serialVersionUID = -2931857466205934728L;
+        
+        private GameLog.Entry entry;
+        private final Color textColor = Formatter.greyColor();
         
         /**
-         * Constructs a new MessageView object.
-         *
-         * @param player the Colour of the player to whom this message relates.
-         * @param message the message to be displayed.
-         * @param width the width of the message in pixels.
+         * Constructs a new EntryView object.
          */
-        public MessageView(Colour player, String message, int width) {
-            this.player = player;
-            setup();
-            setBorder(BorderFactory.createEmptyBorder(-1, 16, 1, 4));
-            
-            JPanel holder = new JPanel();
-            holder.setOpaque(false);
-            add(holder, BorderLayout.WEST);
-            
-            String text = String.format("<html><div WIDTH=%d>%s</div><html>", width, message);
-            JLabel label = new JLabel(text);
-            label.setFont(Formatter.defaultFontOfSize(14));
-            label.setForeground(Formatter.greyColor());
-            holder.add(label);
+        public EntryView() {
+            setOpaque(false);
         }
         
         /**
-         * Constructs a new MessageView object.
+         * Returns this view set up to draw the specified entry.
          *
-         * @param move the MoveTicket to be displayed in the message.
+         * @param list the JList being drawn.
+         * @param entry the entry to be drawn.
+         * @param index the index of the entry.
+         * @param isSelected whether the entry is selected.
+         * @param cellHasFocus whether the entry has focus.
+         * @return this view set up to draw the specified entry.
          */
-        public MessageView(MoveTicket move) {
-            
-            Integer target = move.target;
-            Ticket ticket = move.ticket;
-            this.player = move.colour;
-            setup();
-            setBorder(BorderFactory.createEmptyBorder(0, 16, 1, 4));
-            
-            JPanel holder = new JPanel();
-            holder.setOpaque(false);
-            add(holder, BorderLayout.WEST);
-            
-            JLabel colourLabel = new JLabel(player + " ");
-            colourLabel.setFont(Formatter.defaultFontOfSize(14));
-            colourLabel.setForeground(Formatter.greyColor());
-            holder.add(colourLabel);
-            
-            TicketIndicator ticketView = new TicketIndicator(images.get(ticket));
-            holder.add(ticketView);
-            
-            if (!player.equals(Colour.Black)) {
-                JLabel locationLabel = new JLabel(" " + target);
-                locationLabel.setFont(Formatter.defaultFontOfSize(14));
-                locationLabel.setForeground(Formatter.greyColor());
-                holder.add(locationLabel);
-            }
-        }
-        
-        // Sets up the view.
-        private void setup() {
-            setOpaque(false);
-            setLayout(new BorderLayout());
+        public Component getListCellRendererComponent(JList<? extends GameLog.Entry> list, GameLog.Entry entry,
+                                                      int index, boolean isSelected, boolean cellHasFocus) {
+            this.entry = entry;
+            if (entry != null) setToolTipText(entry.message);
+            return this;
         }
         
         /**
-         * Draws the circle to the left of the message.
+         * Draws the circle to the left of the entry, followed by the entry.
          *
          * @param g0 the Graphics object to draw to.
          */
         public void paintComponent(Graphics g0) {
-            super.paintComponent(g0);
+            if (entry == null) return;
             Graphics2D g = (Graphics2D) g0;
             
             g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
                                RenderingHints.VALUE_ANTIALIAS_ON);
             
+            if (!entry.continued) {
+                g.setColor(Formatter.colorForPlayer(entry.colour));
+                g.fillOval(2, 7, 8, 8);
+            }
             
-            g.setColor(Formatter.colorForPlayer(player));
-            g.fillOval(2, 10, 8, 8);
+            g.setFont(font);
+            g.setColor(textColor);
+            FontMetrics metrics = g.getFontMetrics();
+            int baseline = (getHeight() + metrics.getAscent() - metrics.getDescent()) / 2;
+            int x = 22;
+            if (entry.ticket == null) {
+                g.drawString(entry.message, x, baseline);
+                return;
+            }
+            String colour = entry.colour + " ";
+            g.drawString(colour, x, baseline);
+            x += metrics.stringWidth(colour);
+            BufferedImage image = images.get(entry.ticket);
+            if (image != null) g.drawImage(image, x, (getHeight() - 14) / 2, null);
+            x += 20;
+            if (!entry.colour.equals(Colour.Black)) g.drawString(" " + entry.target, x, baseline);
         }
     }
     
+    // A selection model that never selects anything.
+    private class NoSelectionModel extends DefaultListSelectionModel {
+        
+        private static final long serialVersionUID = 4719364012853069125L;
+        
+        @Override
+        public void setSelectionInterval(int index0, int index1) {}
+        
+        @Override
+        public void addSelectionInterval(int index0, int index1) {}
+    }
+    
     // A class to style the scroll bars.
     public class ScrollBarUI extends BasicScrollBarUI {
         
@@ -259,39 +292,4 @@ public class ChatEventView extends JPanel {
         }
     }
     
-    // A view to display a ticket image
-    private class TicketIndicator extends AnimatablePanel {
-        
-        private static final long serialVersionUID = 6013008457601185508L;
-        
-        private BufferedImage image;
-        
-        /**
-         * Constructs a new TicketIndicator object.
-         *
-         * @param image the image to be displayed.
-         */
-        public TicketIndicator(BufferedImage image) {
-            setOpaque(false);
-            setPreferredSize(new Dimension(20, 14));
-            this.image = image;
-        }
-        
-        /**
-         * Draws the image.
-         *
-         * @param g0 the Graphics object to draw to.
-         */
-        public void paintComponent(Graphics g0) {
-            super.paintComponent(g0);
-            Graphics2D g = (Graphics2D) g0;
-            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
-                               RenderingHints.VALUE_ANTIALIAS_ON);
-            
-            Dimension size = getSize();
-            if (image != null) g.drawImage(image, null, 0, 0);
-        }
-        
-    }
-    
 }
\ No newline at end of file
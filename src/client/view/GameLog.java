@@ -0,0 +1,240 @@
+package client.view;
+
+import scotlandyard.*;
+
+import javax.swing.*;
+import java.io.*;
+import java.nio.*;
+import java.nio.charset.*;
+
+/**
+ * A bounded model for the game log.
+ * The most recent entries are kept in a ring buffer, older entries are
+ * either dropped or spilled to a history file so they can still be scrolled.
+ * All methods should be called on the Event Dispatch Thread.
+ */
+
+public class GameLog extends AbstractListModel<GameLog.Entry> {
+
+    private static final long serialVersionUID = -4217638260180941452L;
+
+    private static final int kTextBytes = 96;
+    private static final int kRecordSize = 8 + kTextBytes;
+
+    private final Entry[] entries;
+    private int head;
+    private int count;
+    private int spilled;
+    private RandomAccessFile history = null;
+    private File historyFile = null;
+
+    /**
+     * Constructs a new GameLog object.
+     *
+     * @param capacity the number of entries to keep in memory.
+     */
+    public GameLog(int capacity) {
+        entries = new Entry[capacity];
+        head = 0;
+        count = 0;
+        spilled = 0;
+    }
+
+    /**
+     * Spills entries evicted from memory to the specified file,
+     * so that the full history can still be scrolled.
+     *
+     * @param file the file to write the history to.
+     */
+    public void spillTo(File file) {
+        try {
+            closeHistory();
+            history = new RandomAccessFile(file, "rw");
+            history.setLength(0);
+            historyFile = file;
+        } catch (IOException e) {
+            System.err.println("Error opening the game log history :" + e);
+            history = null;
+        }
+    }
+
+    /**
+     * Adds an entry to the end of the log, evicting the oldest
+     * entry if the log is full.
+     *
+     * @param entry the entry to be added.
+     */
+    public void add(Entry entry) {
+        if (count == entries.length) {
+            Entry oldest = entries[head];
+            entries[head] = null;
+            head = (head + 1) % entries.length;
+            count--;
+            if (history != null && writeHistory(oldest)) {
+                spilled++;
+            } else {
+                // The dropped entry comes straight after those already spilled.
+                fireIntervalRemoved(this, spilled, spilled);
+            }
+        }
+        entries[(head + count) % entries.length] = entry;
+        count++;
+        int index = getSize() - 1;
+        fireIntervalAdded(this, index, index);
+    }
+
+    /**
+     * Removes all entries from the log, including the history.
+     */
+    public void clear() {
+        int size = getSize();
+        for (int i = 0; i < entries.length; i++) entries[i] = null;
+        head = 0;
+        count = 0;
+        spilled = 0;
+        if (history != null) {
+            try {
+                history.setLength(0);
+            } catch (IOException e) {
+                System.err.println(e);
+            }
+        }
+        if (size > 0) fireIntervalRemoved(this, 0, size - 1);
+    }
+
+    /**
+     * Returns the number of entries in the log, including those in the history.
+     *
+     * @return the number of entries in the log.
+     */
+    @Override
+    public int getSize() {
+        return spilled + count;
+    }
+
+    /**
+     * Returns the entry at the specified index.
+     *
+     * @param index the index of the entry.
+     * @return the entry at the specified index.
+     */
+    @Override
+    public Entry getElementAt(int index) {
+        if (index < spilled) return readHistory(index);
+        return entries[(head + index - spilled) % entries.length];
+    }
+
+    // Closes and deletes the current history file.
+    private void closeHistory() throws IOException {
+        if (history != null) history.close();
+        if (historyFile != null) historyFile.delete();
+        history = null;
+        historyFile = null;
+    }
+
+    // Appends an entry to the history file.
+    // @param entry the entry to be written.
+    // @return true if the entry was written.
+    private boolean writeHistory(Entry entry) {
+        try {
+            byte[] record = new byte[kRecordSize];
+            int length = 0;
+            if (entry.message != null) {
+                // The encoder stops before a character that does not fit, so
+                // long messages are cut on a character boundary.
+                ByteBuffer text = ByteBuffer.wrap(record, 8, kTextBytes);
+                StandardCharsets.UTF_8.newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                    .encode(CharBuffer.wrap(entry.message), text, true);
+                length = text.position() - 8;
+            }
+            record[0] = (byte) entry.colour.ordinal();
+            record[1] = (byte) (entry.ticket == null ? 0 : entry.ticket.ordinal() + 1);
+            record[2] = (byte) (entry.target >> 8);
+            record[3] = (byte) entry.target;
+            record[4] = (byte) (length >> 8);
+            record[5] = (byte) length;
+            record[6] = (byte) (entry.continued ? 1 : 0);
+            history.seek((long) spilled * kRecordSize);
+            history.write(record);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error writing the game log history :" + e);
+            return false;
+        }
+    }
+
+    // Reads an entry from the history file.
+    // @param index the index of the entry.
+    // @return the entry at the specified index.
+    private Entry readHistory(int index) {
+        try {
+            byte[] record = new byte[kRecordSize];
+            history.seek((long) index * kRecordSize);
+            history.readFully(record);
+            Colour colour = Colour.values()[record[0]];
+            int target = ((record[2] & 0xFF) << 8) | (record[3] & 0xFF);
+            int length = ((record[4] & 0xFF) << 8) | (record[5] & 0xFF);
+            if (record[1] == 0) return new Entry(colour, new String(record, 8, length, StandardCharsets.UTF_8), record[6] != 0);
+            return new Entry(colour, Ticket.values()[record[1] - 1], target);
+        } catch (IOException e) {
+            System.err.println("Error reading the game log history :" + e);
+            return new Entry(Colour.Black, "");
+        }
+    }
+
+    /**
+     * A single row in the game log.
+     */
+    public static class Entry {
+
+        public final Colour colour;
+        public final Ticket ticket;
+        public final int target;
+        public final String message;
+        public final boolean continued;
+
+        /**
+         * Constructs a new Entry object for a message.
+         *
+         * @param colour the Colour of the player to whom this message relates.
+         * @param message the message to be displayed.
+         */
+        public Entry(Colour colour, String message) {
+            this(colour, message, false);
+        }
+
+        /**
+         * Constructs a new Entry object for a line of a message.
+         *
+         * @param colour the Colour of the player to whom this message relates.
+         * @param message the line of the message to be displayed.
+         * @param continued whether this line continues the previous entry.
+         */
+        public Entry(Colour colour, String message, boolean continued) {
+            this.colour = colour;
+            this.ticket = null;
+            this.target = 0;
+            this.message = message;
+            this.continued = continued;
+        }
+
+        /**
+         * Constructs a new Entry object for a ticket move.
+         *
+         * @param colour the Colour of the player who made the move.
+         * @param ticket the Ticket used in the move.
+         * @param target the location the player moved to.
+         */
+        public Entry(Colour colour, Ticket ticket, int target) {
+            this.colour = colour;
+            this.ticket = ticket;
+            this.target = target;
+            this.message = null;
+            this.continued = false;
+        }
+
+    }
+
+}
@@ -25,6 +25,7 @@ public class SetUpView extends JPanel implements KeyListener, ActionListener {
     private JButton start;
     private JButton join;
     private JList<String> loadList;
+    private JTextField startMoveField;
     private JTextField newGameField;
     private JTextField joinUsernameField;
     private JTextField joinIPField;
@@ -35,7 +36,7 @@ public class SetUpView extends JPanel implements KeyListener, ActionListener {
     private GridBagConstraints constraints;
     private JLabel title;
     private boolean isMultiplayer = false;
-    private List<String> savedGames;
+    private List<SaveCatalogue.Entry> savedGames;
     private BufferedImage background;
     private BufferedImage backgroundImage;
     private ActionListener listener;
@@ -163,10 +164,25 @@ public class SetUpView extends JPanel implements KeyListener, ActionListener {
      */
     public String loadFilePath() {
         int index = loadList.getSelectedIndex();
-        if (index >= 0) return savedGames.get(index);
+        if (index >= 0) return savedGames.get(index).getFilename();
         return null;
     }
     
+    /**
+     * Returns the index of the move to start the replay of a loaded game
+     * from, as entered by the user.
+     *
+     * @return the index of the move to start from, or 0 to replay
+     * the whole game.
+     */
+    public int loadStartMove() {
+        try {
+            return Math.max(0, Integer.parseInt(startMoveField.getText().trim()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+    
     /**
      * Returns the name of the selected item in the load list.
      *
@@ -238,9 +254,11 @@ public class SetUpView extends JPanel implements KeyListener, ActionListener {
      */
     public void refreshSaves() {
         newGameField.setText("");
+        startMoveField.setText("");
         
-        savedGames = fileAccess.savedGames();
-        loadList.setListData(savedGames.toArray(new String[savedGames.size()]));
+        savedGames = fileAccess.savedGameEntries();
+        List<String> labels = saveLabels();
+        loadList.setListData(labels.toArray(new String[labels.size()]));
     }
     
     /**
@@ -273,6 +291,21 @@ public class SetUpView extends JPanel implements KeyListener, ActionListener {
      */
     public void keyTyped(KeyEvent e) {}
     
+    // Returns the text shown in the load list for each saved game.
+    // @return the List of labels for the saved games.
+    private List<String> saveLabels() {
+        List<String> labels = new ArrayList<String>();
+        java.text.DateFormat format = new java.text.SimpleDateFormat("d MMM HH:mm");
+        for (SaveCatalogue.Entry entry : savedGames) {
+            String label = entry.getGameName() + " - " + format.format(new Date(entry.getTimestamp()))
+                         + ", " + entry.getNumberOfPlayers() + " players, round " + entry.getRounds();
+            if (entry.getWinner() == SaveGame.Winner.MrX) label += ", Mr X won";
+            else if (entry.getWinner() == SaveGame.Winner.Detectives) label += ", Detectives won";
+            labels.add(label);
+        }
+        return labels;
+    }
+    
     // A view to draw the load list and button.
     private class LoadPanel extends JPanel {
       
@@ -285,17 +318,29 @@ public class SetUpView extends JPanel implements KeyListener, ActionListener {
             setBorder(new EmptyBorder(15, 40, 40, 40));
             setOpaque(false);
             
-            savedGames = fileAccess.savedGames();
+            savedGames = fileAccess.savedGameEntries();
             
-            loadList = Formatter.list(savedGames);
+            loadList = Formatter.list(saveLabels());
             JScrollPane scrollPane = new JScrollPane(loadList);
-            scrollPane.setPreferredSize(new Dimension(320, 260));
+            scrollPane.setPreferredSize(new Dimension(320, 215));
             scrollPane.setBorder(BorderFactory.createLineBorder(new Color(220, 220, 220, 255), 1));
             add(scrollPane);
             
             Component spacer = Box.createRigidArea(new Dimension(400,10));
             add(spacer);
             
+            JLabel startMoveLabel = new JLabel("From move");
+            startMoveLabel.setFont(Formatter.defaultFontOfSize(18));
+            add(startMoveLabel);
+            
+            startMoveField = new JTextField(3);
+            startMoveField.setPreferredSize(new Dimension(50, 30));
+            startMoveField.setFont(Formatter.defaultFontOfSize(18));
+            Border outside = BorderFactory.createLineBorder(new Color(220, 220, 220, 255), 1);
+            Border inside = BorderFactory.createEmptyBorder(0, 5, 0, 5);
+            startMoveField.setBorder(BorderFactory.createCompoundBorder(outside, inside));
+            add(startMoveField);
+            
             load = Formatter.button("Load");
             load.setActionCommand("loadGame");
             add(load);
@@ -0,0 +1,521 @@
+package player;
+
+import scotlandyard.*;
+import client.model.*;
+
+import java.util.*;
+
+/**
+ * A class that solves the last rounds of a game exactly, so the AI can play
+ * a forced win instead of trusting the heuristic score of a GameTree.
+ * Positions are kept in arrays of locations and Tickets, and searched to the
+ * end of the game with alpha-beta over wins and losses, with a
+ * transposition table so positions reached by different orders of Moves are
+ * only solved once.
+ * Moves are played as ScotlandYardModel plays them: detectives give their
+ * Tickets to Mr X, and each of Mr X's Tickets and each pass moves the game
+ * on a round.
+ */
+
+public class EndgameSolver {
+
+    public static final int kDefaultPlies = Integer.getInteger("scotlandyard.endgame.plies", 18);
+    public static final int kDefaultNodes = Integer.getInteger("scotlandyard.endgame.nodes", 4000000);
+
+    private static final int kTableBits = 20;
+    private static final int kMaxPlayers = 6;
+    private static final int kMaxTickets = 64;
+    private static final int kTickets = Ticket.values().length;
+    private static final int kDouble = Ticket.Double.ordinal();
+    private static final int kSecret = Ticket.Secret.ordinal();
+    private static final int kNone = 7;
+
+    private static final byte kMrXWins = 1;
+    private static final byte kDetectivesWin = 2;
+
+    private final int plies;
+    private final int maxNodes;
+    private final int lastRound;
+
+    private final int[][] targets;
+    private final int[][] routes;
+    private final int[][] distances;
+
+    private final long[][] locationKeys;
+    private final long[][] ticketKeys;
+    private final long[] playerKeys;
+    private final long[] tableKeys;
+    private final byte[] tableValues;
+
+    private int count;
+    private int[] locations;
+    private int[] tickets;
+    private final int[] seen;
+    private final int maxDegree;
+    private int generation = 0;
+    private long nodes;
+    private boolean aborted;
+
+    /**
+     * Constructs a new EndgameSolver object with the default limits.
+     *
+     * @param graph the Graph associated with the game.
+     */
+    public EndgameSolver(Graph<Integer, Route> graph) {
+        this(graph, kDefaultPlies, kDefaultNodes);
+    }
+
+    /**
+     * Constructs a new EndgameSolver object.
+     *
+     * @param graph the Graph associated with the game.
+     * @param plies the most Moves left in the game for a position to be solved.
+     * @param maxNodes the most positions to search before giving up.
+     */
+    public EndgameSolver(Graph<Integer, Route> graph, int plies, int maxNodes) {
+        this.plies = plies;
+        this.maxNodes = maxNodes;
+        this.lastRound = ModelHelper.getRounds().size() - 1;
+
+        int size = 0;
+        for (Node<Integer> node : graph.getNodes()) size = Math.max(size, node.data() + 1);
+        targets = new int[size][];
+        routes = new int[size][];
+        for (Node<Integer> node : graph.getNodes()) {
+            int location = node.data();
+            Set<Edge<Integer, Route>> edges = graph.getEdges(location);
+            targets[location] = new int[edges.size()];
+            routes[location] = new int[edges.size()];
+            int i = 0;
+            for (Edge<Integer, Route> edge : edges) {
+                int target = edge.source();
+                if (target == location) target = edge.target();
+                targets[location][i] = target;
+                routes[location][i] = Ticket.fromRoute(edge.data()).ordinal();
+                i++;
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            if (targets[i] == null) {
+                targets[i] = new int[0];
+                routes[i] = new int[0];
+            }
+        }
+        int degree = 0;
+        for (int[] edges : targets) degree = Math.max(degree, edges.length);
+        maxDegree = degree;
+        distances = distances(size);
+
+        Random random = new Random(size);
+        locationKeys = new long[kMaxPlayers][size];
+        ticketKeys = new long[kMaxPlayers][kTickets * kMaxTickets];
+        playerKeys = new long[kMaxPlayers];
+        for (int p = 0; p < kMaxPlayers; p++) {
+            for (int i = 0; i < size; i++) locationKeys[p][i] = random.nextLong();
+            for (int i = 0; i < kTickets * kMaxTickets; i++) ticketKeys[p][i] = random.nextLong();
+            playerKeys[p] = random.nextLong();
+        }
+        tableKeys = new long[1 << kTableBits];
+        tableValues = new byte[1 << kTableBits];
+        seen = new int[size * 64];
+    }
+
+    /**
+     * Returns true if a position is close enough to the end of the game to solve.
+     *
+     * @param player the player to move.
+     * @param round the current round of the game.
+     * @param state the List of GamePlayer objects representing the current state of the game.
+     * @return true if a position is close enough to the end of the game to solve.
+     */
+    public boolean fits(Colour player, int round, List<GamePlayer> state) {
+        int index = state.indexOf(ModelHelper.getPlayerOfColour(state, player));
+        if (index < 0 || state.size() > kMaxPlayers) return false;
+        return pliesLeft(index, round, state.size()) <= plies;
+    }
+
+    // Returns the most Moves that can be left in the game.
+    // @param index the index of the player to move.
+    // @param round the current round of the game.
+    // @param players the number of players in the game.
+    // @return the most Moves that can be left in the game.
+    private int pliesLeft(int index, int round, int players) {
+        int left = Math.max(0, lastRound - round) * players;
+        if (index > 0) left += players - index;
+        return left;
+    }
+
+    /**
+     * Solves a position to the end of the game.
+     *
+     * @param player the player to move.
+     * @param round the current round of the game.
+     * @param state the List of GamePlayer objects representing the current state of the game.
+     * @param moves the Set of valid Moves for the player.
+     * @return the Result of the position, or null if it is too far from the
+     * end of the game, Mr X's location is not known, or it could not be
+     * solved within the limit on positions.
+     */
+    public synchronized Result solve(Colour player, int round, List<GamePlayer> state, Set<Move> moves) {
+        if (!fits(player, round, state) || state.get(0).location() <= 0) return null;
+        load(state);
+        int index = state.indexOf(ModelHelper.getPlayerOfColour(state, player));
+        boolean mrX = index == 0;
+        int left = pliesLeft(index, round, state.size());
+        nodes = 0;
+        aborted = false;
+        Move lost = null;
+        for (Move move : moves) {
+            int nextRound = round;
+            if (move instanceof MoveTicket) {
+                MoveTicket ticket = (MoveTicket) move;
+                if (mrX) nextRound++;
+                playMove(index, ticket.ticket.ordinal(), ticket.target);
+            } else if (move instanceof MoveDouble) {
+                MoveDouble moveDouble = (MoveDouble) move;
+                nextRound += 2;
+                playDouble(moveDouble.move1.ticket.ordinal(), moveDouble.move2.ticket.ordinal(), moveDouble.move2.target);
+            } else {
+                nextRound++;
+            }
+            boolean mrXWins = solve((index + 1) % count, nextRound);
+            load(state);
+            if (aborted) return null;
+            if (mrXWins == mrX) return new Result(move, true, left, nodes);
+            lost = move;
+        }
+        return new Result(lost, false, left, nodes);
+    }
+
+    // Returns true if Mr X wins from the current position with best play.
+    // @param index the index of the player to move.
+    // @param round the current round of the game.
+    // @return true if Mr X wins from the current position with best play.
+    private boolean solve(int index, int round) {
+        if (aborted) return false;
+        if (++nodes > maxNodes) {
+            aborted = true;
+            return false;
+        }
+        if (detectivesStuck() || count == 1 || (round >= lastRound && index == 0)) return true;
+        if (onMrX() || !canMove(0)) return false;
+
+        long key = key(index, round);
+        int slot = (int) (key >>> (64 - kTableBits));
+        if (tableKeys[slot] == key && tableValues[slot] != 0) return tableValues[slot] == kMrXWins;
+
+        boolean mrXWins = index == 0 ? solveMrX(round) : solveDetective(index, round);
+        if (aborted) return false;
+        tableKeys[slot] = key;
+        tableValues[slot] = mrXWins ? kMrXWins : kDetectivesWin;
+        return mrXWins;
+    }
+
+    // Returns true if Mr X has a Move that wins.
+    // @param round the current round of the game.
+    // @return true if Mr X has a Move that wins.
+    private boolean solveMrX(int round) {
+        int[] moves = mrXMoves();
+        int location = locations[0];
+        for (int order : moves) {
+            int move = order & 0xFFFFF;
+            int target = move & 0xFF;
+            int ticket1 = (move >> 8) & 7;
+            int ticket2 = (move >> 11) & 7;
+            boolean mrXWins;
+            if (ticket2 == kNone) {
+                playMove(0, ticket1, target);
+                mrXWins = solve(1, round + 1);
+                undoMove(0, ticket1, location);
+            } else {
+                playDouble(ticket1, ticket2, target);
+                mrXWins = solve(1, round + 2);
+                undoDouble(ticket1, ticket2, location);
+            }
+            if (mrXWins) return true;
+        }
+        return false;
+    }
+
+    // Returns true if Mr X wins whichever Move a detective makes.
+    // @param index the index of the detective.
+    // @param round the current round of the game.
+    // @return true if Mr X wins whichever Move a detective makes.
+    private boolean solveDetective(int index, int round) {
+        int next = (index + 1) % count;
+        int[] moves = detectiveMoves(index);
+        if (moves.length == 0) return solve(next, round + 1);
+        int location = locations[index];
+        for (int order : moves) {
+            int target = order & 0xFF;
+            int ticket = (order >> 8) & 7;
+            playMove(index, ticket, target);
+            boolean mrXWins = solve(next, round);
+            undoMove(index, ticket, location);
+            if (!mrXWins) return false;
+        }
+        return true;
+    }
+
+    // Returns Mr X's valid Moves, as ModelHelper.validMoves makes them, with
+    // Moves that leave the same position only once. The furthest Moves from
+    // the detectives come first.
+    // @return Mr X's valid Moves.
+    private int[] mrXMoves() {
+        int location = locations[0];
+        int secret = tickets[kSecret];
+        boolean doubles = tickets[kDouble] >= 1;
+        int[] moves = new int[targets[location].length * (2 + 4 * maxDegree)];
+        int size = 0;
+        generation++;
+        for (int i = 0; i < targets[location].length; i++) {
+            int first = targets[location][i];
+            int ticket1 = routes[location][i];
+            if (occupied(first) || tickets[ticket1] < 1) continue;
+            size = add(moves, size, first, ticket1, kNone);
+            if (secret >= 1) size = add(moves, size, first, kSecret, kNone);
+            if (!doubles) continue;
+            for (int j = 0; j < targets[first].length; j++) {
+                int second = targets[first][j];
+                int ticket2 = routes[first][j];
+                if (occupied(second) || tickets[ticket2] < 1) continue;
+                if (ticket1 != ticket2 || tickets[ticket1] >= 2) size = add(moves, size, second, ticket1, ticket2);
+                if (secret >= 1) {
+                    size = add(moves, size, second, kSecret, ticket2);
+                    size = add(moves, size, second, ticket1, kSecret);
+                    if (secret >= 2) size = add(moves, size, second, kSecret, kSecret);
+                }
+            }
+        }
+        for (int i = 0; i < size; i++) moves[i] |= closest(moves[i] & 0xFF) << 20;
+        Arrays.sort(moves, 0, size);
+        int[] ordered = new int[size];
+        for (int i = 0; i < size; i++) ordered[i] = moves[size - 1 - i];
+        return ordered;
+    }
+
+    // Returns a detective's valid Moves, the closest to Mr X first.
+    // @param index the index of the detective.
+    // @return a detective's valid Moves.
+    private int[] detectiveMoves(int index) {
+        int location = locations[index];
+        int[] moves = new int[targets[location].length];
+        int size = 0;
+        for (int i = 0; i < targets[location].length; i++) {
+            int target = targets[location][i];
+            int ticket = routes[location][i];
+            if (occupied(target) || tickets[index * kTickets + ticket] < 1) continue;
+            moves[size++] = (distances[target][locations[0]] << 20) | (ticket << 8) | target;
+        }
+        Arrays.sort(moves, 0, size);
+        return Arrays.copyOf(moves, size);
+    }
+
+    // Adds a Move to a List of Moves unless a Move using the same Tickets to
+    // the same location is already there, as both leave the same position.
+    // @param moves the List of Moves.
+    // @param size the number of Moves in the List.
+    // @param target the location moved to.
+    // @param ticket1 the first Ticket used.
+    // @param ticket2 the second Ticket used, or kNone for a MoveTicket.
+    // @return the new number of Moves in the List.
+    private int add(int[] moves, int size, int target, int ticket1, int ticket2) {
+        int slot = target * 64 + Math.min(ticket1, ticket2) * 8 + Math.max(ticket1, ticket2);
+        if (seen[slot] == generation) return size;
+        seen[slot] = generation;
+        moves[size] = (ticket2 << 11) | (ticket1 << 8) | target;
+        return size + 1;
+    }
+
+    // Plays a MoveTicket, giving a detective's Ticket to Mr X.
+    // @param index the index of the player.
+    // @param ticket the Ticket used.
+    // @param target the location moved to.
+    private void playMove(int index, int ticket, int target) {
+        locations[index] = target;
+        tickets[index * kTickets + ticket]--;
+        if (index != 0) tickets[ticket]++;
+    }
+
+    // Takes back a MoveTicket.
+    // @param index the index of the player.
+    // @param ticket the Ticket used.
+    // @param location the location moved from.
+    private void undoMove(int index, int ticket, int location) {
+        locations[index] = location;
+        tickets[index * kTickets + ticket]++;
+        if (index != 0) tickets[ticket]--;
+    }
+
+    // Plays Mr X's MoveDouble.
+    private void playDouble(int ticket1, int ticket2, int target) {
+        locations[0] = target;
+        tickets[ticket1]--;
+        tickets[ticket2]--;
+        tickets[kDouble]--;
+    }
+
+    // Takes back Mr X's MoveDouble.
+    private void undoDouble(int ticket1, int ticket2, int location) {
+        locations[0] = location;
+        tickets[ticket1]++;
+        tickets[ticket2]++;
+        tickets[kDouble]++;
+    }
+
+    // Returns true if a detective is at a location.
+    private boolean occupied(int location) {
+        for (int i = 1; i < count; i++) {
+            if (locations[i] == location) return true;
+        }
+        return false;
+    }
+
+    // Returns true if a detective is at Mr X's location.
+    private boolean onMrX() {
+        return occupied(locations[0]);
+    }
+
+    // Returns true if a player has a valid MoveTicket.
+    // Mr X's secret and double Moves all start with one, so this is also true
+    // if he has any valid Move.
+    private boolean canMove(int index) {
+        int location = locations[index];
+        for (int i = 0; i < targets[location].length; i++) {
+            if (!occupied(targets[location][i]) && tickets[index * kTickets + routes[location][i]] >= 1) return true;
+        }
+        return false;
+    }
+
+    // Returns true if no detective has a valid Move.
+    private boolean detectivesStuck() {
+        for (int i = 1; i < count; i++) {
+            if (canMove(i)) return false;
+        }
+        return true;
+    }
+
+    // Returns the distance from a location to the closest detective.
+    private int closest(int location) {
+        int closest = 0xFF;
+        for (int i = 1; i < count; i++) closest = Math.min(closest, distances[locations[i]][location]);
+        return closest;
+    }
+
+    // Returns the key of the current position in the transposition table.
+    // @param index the index of the player to move.
+    // @param round the current round of the game.
+    // @return the key of the current position.
+    private long key(int index, int round) {
+        long key = playerKeys[index] ^ (round * 0x9E3779B97F4A7C15L);
+        for (int p = 0; p < count; p++) {
+            key ^= locationKeys[p][locations[p]];
+            for (int t = 0; t < kTickets; t++) {
+                key ^= ticketKeys[p][t * kMaxTickets + Math.min(Math.max(tickets[p * kTickets + t], 0), kMaxTickets - 1)];
+            }
+        }
+        return key;
+    }
+
+    // Loads a List of GamePlayers into the arrays of locations and Tickets.
+    // @param state the List of GamePlayers.
+    private void load(List<GamePlayer> state) {
+        count = state.size();
+        locations = new int[count];
+        tickets = new int[count * kTickets];
+        for (int p = 0; p < count; p++) {
+            GamePlayer player = state.get(p);
+            locations[p] = player.location();
+            for (Ticket ticket : Ticket.values()) {
+                Integer number = player.tickets().get(ticket);
+                tickets[p * kTickets + ticket.ordinal()] = number == null ? 0 : number;
+            }
+        }
+    }
+
+    // Returns the number of Moves between every pair of locations, whatever
+    // the Tickets used.
+    // @param size the number of locations.
+    // @return the number of Moves between every pair of locations.
+    private int[][] distances(int size) {
+        int[][] distances = new int[size][size];
+        int[] queue = new int[size];
+        for (int source = 0; source < size; source++) {
+            Arrays.fill(distances[source], 0xFF);
+            distances[source][source] = 0;
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = source;
+            while (head < tail) {
+                int location = queue[head++];
+                for (int target : targets[location]) {
+                    if (distances[source][target] != 0xFF) continue;
+                    distances[source][target] = Math.min(0xFE, distances[source][location] + 1);
+                    queue[tail++] = target;
+                }
+            }
+        }
+        return distances;
+    }
+
+    /**
+     * The result of solving a position.
+     */
+    public static class Result {
+
+        private final Move move;
+        private final boolean win;
+        private final int plies;
+        private final long nodes;
+
+        // Constructs a new Result object.
+        // @param move the Move to play.
+        // @param win true if the player to move wins.
+        // @param plies the most Moves that were left in the game.
+        // @param nodes the number of positions searched.
+        private Result(Move move, boolean win, int plies, long nodes) {
+            this.move = move;
+            this.win = win;
+            this.plies = plies;
+            this.nodes = nodes;
+        }
+
+        /**
+         * Returns the winning Move, or any Move if the position is lost.
+         *
+         * @return the winning Move, or any Move if the position is lost.
+         */
+        public Move getMove() {
+            return move;
+        }
+
+        /**
+         * Returns true if the player to move wins with best play.
+         *
+         * @return true if the player to move wins with best play.
+         */
+        public boolean isWin() {
+            return win;
+        }
+
+        /**
+         * Returns the most Moves that were left in the game.
+         *
+         * @return the most Moves that were left in the game.
+         */
+        public int getPlies() {
+            return plies;
+        }
+
+        /**
+         * Returns the number of positions searched.
+         *
+         * @return the number of positions searched.
+         */
+        public long getNodes() {
+            return nodes;
+        }
+
+    }
+
+}
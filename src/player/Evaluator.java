@@ -0,0 +1,191 @@
+package player;
+
+import scotlandyard.*;
+import client.algorithms.*;
+import client.model.*;
+
+import java.util.*;
+
+/**
+ * A class to score the states at the nodes of a GameTree incrementally.
+ * The terms of the score (the value of each side's Tickets, their PageRanks
+ * and each detective's distance from Mr X) are kept for each node in its
+ * NodeArena. A node's terms are worked out from its parent's by changing
+ * only what its Move changed, so a detective's Move needs one route to be
+ * found instead of one for every detective. Whether a detective is next to
+ * Mr X, for the bonuses of secret and double Moves, comes from Reachability.
+ */
+
+public class Evaluator {
+
+    public static final int kTerms = 4 + Colour.values().length;
+
+    private static final int kMrXTickets = 0;
+    private static final int kDetectiveTickets = 1;
+    private static final int kMrXPageRank = 2;
+    private static final int kDetectivePageRank = 3;
+    private static final int kDistance = 4;
+
+    private final Weights weights;
+    private final PageRank pageRank;
+    private final Dijkstra dijkstra;
+    private final Reachability reachability;
+    private final NodeArena arena;
+
+    /**
+     * Constructs a new Evaluator object.
+     *
+     * @param weights the Weights used to score the states of the game.
+     * @param pageRank the PageRank object associated with the game.
+     * @param dijkstra the Dijkstra object associated with the game.
+     * @param reachability the Reachability of the Graph associated with the game.
+     * @param arena the NodeArena holding the nodes to score.
+     */
+    public Evaluator(Weights weights, PageRank pageRank, Dijkstra dijkstra, Reachability reachability, NodeArena arena) {
+        this.weights = weights;
+        this.pageRank = pageRank;
+        this.dijkstra = dijkstra;
+        this.reachability = reachability;
+        this.arena = arena;
+    }
+
+    /**
+     * Returns the score of the state at a node.
+     *
+     * @param node the index of the node, which must have a state.
+     * @return the score of the state at the node.
+     */
+    public double score(int node) {
+        evaluate(node);
+        List<GamePlayer> state = arena.getState(node);
+        double detectives = (double) (state.size() - 1);
+        double detDistance = 0.0;
+        for (GamePlayer player : state) {
+            if (!player.colour().equals(Colour.Black)) detDistance += arena.getEvaluation(node, kDistance + player.colour().ordinal());
+        }
+        detDistance /= detectives;
+        double detPageRank = arena.getEvaluation(node, kDetectivePageRank) / detectives;
+
+        double ticketRatio = arena.getEvaluation(node, kMrXTickets) / arena.getEvaluation(node, kDetectiveTickets);
+        double pageRankRatio = arena.getEvaluation(node, kMrXPageRank) / detPageRank;
+
+        double score = (weights.getDistanceScale() * Math.pow(detDistance, weights.getDistanceExponent()));
+        score += ((ticketRatio - 1) * weights.getTicketInfluence()) * score;
+        score += ((pageRankRatio - 1) * weights.getPageRankInfluence()) * score;
+
+        int move = arena.getPackedMove(node);
+        if (NodeArena.isSecret(move) && reachability.isThreatened(state, 1)) score += weights.getSecretBonus();
+        if (NodeArena.isDouble(move) && reachability.isThreatened(state, 1)) score += weights.getDoubleBonus();
+        return score;
+    }
+
+    // Works out the terms of a node's evaluation, from its parent's terms if
+    // it has a parent.
+    // @param node the node to evaluate.
+    private void evaluate(int node) {
+        if (arena.isEvaluated(node)) return;
+        int parent = arena.getParent(node);
+        if (parent < 0) {
+            evaluateState(node);
+            return;
+        }
+        evaluate(parent);
+        arena.copyEvaluation(parent, node);
+        Move move = arena.getMove(node);
+        if (move instanceof MovePass) return;
+        List<GamePlayer> state = arena.getState(node);
+        GamePlayer player = ModelHelper.getPlayerOfColour(state, move.colour);
+        double tickets = ticketValue(move);
+        if (move.colour.equals(Colour.Black)) {
+            int mrXLocation = mrXLocation(state);
+            arena.setEvaluation(node, kMrXTickets, arena.getEvaluation(node, kMrXTickets) - tickets);
+            arena.setEvaluation(node, kMrXPageRank, pageRank.getPageRank(mrXLocation));
+            for (GamePlayer detective : state) {
+                if (!detective.colour().equals(Colour.Black)) setDistance(node, detective, mrXLocation);
+            }
+        } else {
+            int previous = ModelHelper.getPlayerOfColour(arena.getState(parent), move.colour).location();
+            double detPageRank = arena.getEvaluation(node, kDetectivePageRank)
+                                 - pageRank.getPageRank(previous) + pageRank.getPageRank(player.location());
+            arena.setEvaluation(node, kDetectiveTickets, arena.getEvaluation(node, kDetectiveTickets) - tickets);
+            arena.setEvaluation(node, kDetectivePageRank, detPageRank);
+            setDistance(node, player, mrXLocation(state));
+        }
+    }
+
+    // Works out the terms of a node's evaluation from its state alone.
+    // @param node the node to evaluate.
+    private void evaluateState(int node) {
+        List<GamePlayer> state = arena.getState(node);
+        int mrXLocation = mrXLocation(state);
+        double detTickets = 0.0;
+        double detPageRank = 0.0;
+        for (GamePlayer player : state) {
+            if (player.colour().equals(Colour.Black)) {
+                arena.setEvaluation(node, kMrXPageRank, pageRank.getPageRank(mrXLocation));
+            } else {
+                detTickets += playerTicketValue(player.tickets());
+                detPageRank += pageRank.getPageRank(player.location());
+                setDistance(node, player, mrXLocation);
+            }
+        }
+        arena.setEvaluation(node, kDetectiveTickets, detTickets);
+        arena.setEvaluation(node, kDetectivePageRank, detPageRank);
+        GamePlayer mrX = ModelHelper.getPlayerOfColour(state, Colour.Black);
+        arena.setEvaluation(node, kMrXTickets, playerTicketValue(mrX.tickets()));
+    }
+
+    // Finds the length of a detective's route to Mr X and keeps it as a term.
+    // @param node the node being evaluated.
+    // @param detective the detective.
+    // @param mrXLocation the location of Mr X.
+    private void setDistance(int node, GamePlayer detective, int mrXLocation) {
+        int distance = dijkstra.getRoute(detective.location(), mrXLocation, convertDetTickets(detective.tickets())).size();
+        arena.setEvaluation(node, kDistance + detective.colour().ordinal(), distance);
+    }
+
+    // Returns the location of Mr X, or 1 if it is not known.
+    // @param state the List of GamePlayers in the game state.
+    // @return the location of Mr X.
+    private int mrXLocation(List<GamePlayer> state) {
+        int location = ModelHelper.getPlayerOfColour(state, Colour.Black).location();
+        if (location <= 0) location = 1;
+        return location;
+    }
+
+    // Returns the value of the Tickets used by a Move.
+    // @param move the Move.
+    // @return the value of the Tickets used by the Move.
+    private double ticketValue(Move move) {
+        if (move instanceof MoveTicket) return weights.getTicketValue(((MoveTicket) move).ticket);
+        if (move instanceof MoveDouble) {
+            MoveDouble moveDouble = (MoveDouble) move;
+            return ticketValue(moveDouble.move1) + ticketValue(moveDouble.move2) + weights.getTicketValue(Ticket.Double);
+        }
+        return 0.0;
+    }
+
+    // Returns the value of a players Tickets.
+    // @param tickets the Map of Tickets the player has.
+    // @return the value of a players Tickets.
+    private double playerTicketValue(Map<Ticket, Integer> tickets) {
+        double value = 0.0;
+        for (Map.Entry<Ticket, Integer> entry : tickets.entrySet()) {
+            value += weights.getTicketValue(entry.getKey()) * entry.getValue();
+        }
+        return value;
+    }
+
+    // Returns a converted Map of the Tickets for a player.
+    // @param tickets the Map of Tickets for a player.
+    // @return a converted Map of the Tickets for a player.
+    private Map<Route, Integer> convertDetTickets(Map<Ticket, Integer> tickets) {
+        Map<Route, Integer> routeMap = new HashMap<Route, Integer>();
+        routeMap.put(Route.Taxi, tickets.get(Ticket.Taxi));
+        routeMap.put(Route.Bus, tickets.get(Ticket.Bus));
+        routeMap.put(Route.Underground, tickets.get(Ticket.Underground));
+        routeMap.put(Route.Boat, tickets.get(Ticket.Secret));
+        return routeMap;
+    }
+
+}
@@ -23,8 +23,14 @@ public class GameTree implements Runnable {
     public final Graph<Integer, Route> graph;
     public final PageRank pageRank;
     public final Dijkstra dijkstra;
+    public final Weights weights;
     public final ThreadCommunicator threadCom;
-    private TreeNode root;
+    private final NodeArena arena = new NodeArena();
+    private final Evaluator evaluator;
+    private final Reachability reachability;
+    private int root = NodeArena.kNone;
+    private int nodeBudget = NodeArena.getDefaultBudget();
+    private int searches = 0;
     private ScotlandYardGame game;
 
     private final Integer round;
@@ -34,8 +40,23 @@ public class GameTree implements Runnable {
 
     private Move mrXMove;
     private Move detMove;
+    private double score = 0.0;
+    private int depth = 0;
+    private SearchOptions options = SearchOptions.getDefault();
+    private final SearchStatistics statistics = new SearchStatistics();
 
     private boolean canFinish = false;
+    private boolean bestReply = false;
+    private boolean doubleMoves = false;
+
+    private static final double kAspirationWindow = 2.0;
+    private static final double kMaxAspirationWindow = 50.0;
+
+    private static final int kEvictionShare = 4;
+
+    private static final int kStageSingles = 0;
+    private static final int kStageDoubles = 1;
+    private static final int kStages = 2;
 
     /**
      * Constructs a new GameTree object.
@@ -50,9 +71,29 @@ public class GameTree implements Runnable {
     public GameTree(Graph<Integer, Route> graph,
                     PageRank pageRank, Dijkstra dijkstra, int round, Colour initialPlayer,
                     List<GamePlayer> initialState, ThreadCommunicator threadCom, ScotlandYardGame game) {
+        this(graph, pageRank, dijkstra, Weights.getDefault(), round, initialPlayer, initialState, threadCom, game);
+    }
+
+    /**
+     * Constructs a new GameTree object that scores states with the given weights.
+     *
+     * @param graph the Graph associated with the game.
+     * @param pageRank the PageRank object associated with the game.
+     * @param dijkstra the Dijkstra object associated with the game.
+     * @param weights the Weights used to score the states of the game.
+     * @param round the current round of the game.
+     * @param initialPlayer the current player in the game.
+     * @param initialState the List of GamePlayer objects representing the current state of the game.
+     */
+    public GameTree(Graph<Integer, Route> graph, PageRank pageRank, Dijkstra dijkstra, Weights weights,
+                    int round, Colour initialPlayer, List<GamePlayer> initialState,
+                    ThreadCommunicator threadCom, ScotlandYardGame game) {
         this.graph = graph;
         this.pageRank = pageRank;
         this.dijkstra = dijkstra;
+        this.weights = weights;
+        this.reachability = Reachability.of(graph);
+        this.evaluator = new Evaluator(weights, pageRank, dijkstra, reachability, arena);
         this.round = round;
         this.initialPlayer = initialPlayer;
         this.initialState = initialState;
@@ -75,11 +116,13 @@ public class GameTree implements Runnable {
      */
     public void run() {
         paused = false;
-        root = new TreeNode(null, initialState, initialPlayer, round, null, this);
-        threadCom.putUpdate("link_tree", this);
-        threadCom.putUpdate("ai_set_rep", root);
+        arena.clear();
+        root = arena.add(NodeArena.kNone, 0, initialPlayer, round, initialState);
+        threadCom.putUpdate(Update.LINK_TREE, this);
+        threadCom.putUpdate(Update.AI_SET_REP, arena.view(root));
         for (int i = 0; i < 5; i++) {
-            Double result = alphaBeta(root, i, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+            score = aspirationSearch(i);
+            depth = i;
             game.setAiMove(getDetMove());
             try {
                 Thread.sleep(1000);
@@ -96,12 +139,12 @@ public class GameTree implements Runnable {
         if (newLoc != 0) mrX.setLocation(newLoc);
 
         initialState.add(mrX);
-        TreeNode detRoot = new TreeNode(null, initialState, initialPlayer, round, null, this);
+        int detRoot = arena.add(NodeArena.kNone, 0, initialPlayer, round, initialState);
         Double result = alphaBeta(root, 2, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
 
         getMoves(root, detRoot);
 
-        threadCom.putUpdate("ai_thought", true);
+        threadCom.putUpdate(Update.AI_THOUGHT, true);
 
         while (!canFinish) {
             try {
@@ -112,27 +155,74 @@ public class GameTree implements Runnable {
             }
         }
 
-        threadCom.putUpdate("ai_end", true);
+        threadCom.putUpdate(Update.AI_END, true);
+    }
+
+    /**
+     * Searches the tree to a fixed depth without updating the UI,
+     * so positions can be searched away from a game.
+     *
+     * @param maxDepth the depth to search to.
+     * @return the best Move for the initial player, or null if there is none.
+     */
+    public Move search(int maxDepth) {
+        arena.clear();
+        root = arena.add(NodeArena.kNone, 0, initialPlayer, round, initialState);
+        for (int i = 1; i <= maxDepth; i++) {
+            score = aspirationSearch(i);
+            depth = i;
+        }
+        int best = arena.getBestChild(root);
+        if (best == NodeArena.kNone) return null;
+        return arena.getMove(best);
+    }
+
+    /**
+     * Sets whether the tree uses Best-Reply Search, where the detectives
+     * between two of Mr X's Moves are replaced by a single Move of whichever
+     * detective has the strongest reply. Mr X's own Moves are then every
+     * other ply, so he can look several Moves ahead for the same number of
+     * nodes. It must be set before the tree is searched.
+     *
+     * @param bestReply true if the tree should use Best-Reply Search.
+     */
+    public void setBestReply(boolean bestReply) {
+        this.bestReply = bestReply;
+    }
+
+    /**
+     * Sets whether Mr X's double Moves are searched. They are generated
+     * last, only at nodes where none of his single Moves caused a cutoff,
+     * and double Moves that lead to the same state are searched once.
+     * They are not searched unless this is set, and GeneHunt sets it from
+     * SearchOptions. It must be set before the tree is searched.
+     *
+     * @param doubleMoves true if the tree should search double Moves.
+     */
+    public void setDoubleMoves(boolean doubleMoves) {
+        this.doubleMoves = doubleMoves;
     }
 
     public void setCanFinish(boolean canFinish) {
         this.canFinish = canFinish;
     }
 
-    private void getMoves(TreeNode node, TreeNode detNode) {
-        if (node.getBestChild() != null && node.getBestChild().getMove() != null) {
+    private void getMoves(int node, int detNode) {
+        int best = arena.getBestChild(node);
+        if (best != NodeArena.kNone && arena.getMove(best) != null) {
             synchronized (mrXMove) {
-                mrXMove = node.getBestChild().getMove();
+                mrXMove = arena.getMove(best);
             }
-            if (detNode.getBestChild() != null && detNode.getBestChild().getMove() != null && detNode.getBestChild().getBestChild() != null && detNode.getBestChild().getBestChild().getMove() != null) {
+            int detBest = arena.getBestChild(detNode);
+            if (detBest != NodeArena.kNone && arena.getMove(detBest) != null && arena.getBestChild(detBest) != NodeArena.kNone && arena.getMove(arena.getBestChild(detBest)) != null) {
                 synchronized (detMove) {
-                    detMove = detNode.getBestChild().getBestChild().getMove();
+                    detMove = arena.getMove(arena.getBestChild(detBest));
                 }
             }
         }
     }
 
-    private Double alphaBeta(TreeNode node, int depth, Double alpha, Double beta) {
+    private Double alphaBeta(int node, int depth, Double alpha, Double beta) {
         while(paused){
             try {
                 Thread.sleep(200);
@@ -141,21 +231,50 @@ public class GameTree implements Runnable {
                 e.printStackTrace();
             }
         }
-        if (ModelHelper.isGameOver(node.getState(), node.getPlayer(), graph, node.getRound())) {
-            if (ModelHelper.getWinningPlayers(node.getState(), node.getPlayer(), graph, node.getRound()).contains(Colour.Black)) return Double.POSITIVE_INFINITY;
+        statistics.node();
+        arena.visit(node, searches, depth);
+        List<GamePlayer> state = arena.getState(node);
+        Colour player = arena.getPlayer(node);
+        int round = arena.getRound(node);
+        if (ModelHelper.isGameOver(state, player, graph, round)) {
+            if (ModelHelper.getWinningPlayers(state, player, graph, round).contains(Colour.Black)) return Double.POSITIVE_INFINITY;
             else return Double.NEGATIVE_INFINITY;
         }
-        if (depth == 0) return node.getScore();
         boolean maximising = false;
-        if (node.getPlayer().equals(Colour.Black)) maximising = true;
-        node = addChildren(node, maximising);
+        if (player.equals(Colour.Black)) maximising = true;
+        if (depth == 0) {
+            if (maximising || !options.getCaptureExtension() || !canCapture(node)) return score(node);
+            statistics.extension();
+            depth = 1;
+        }
+        if (node != root) {
+            Double pruned = prune(node, depth, alpha, beta, maximising);
+            if (pruned != null) return pruned;
+        }
+        int bestOffset = bestOffset(node);
         if (maximising) {
             Double v = Double.NEGATIVE_INFINITY;
-            for (TreeNode child : node.getChildren()) {
-                Double result = alphaBeta(child, depth - 1, alpha, beta);
+            for (int index = 0; ; index++) {
+                int child = child(node, index, bestOffset, maximising);
+                if (child == NodeArena.kNone) break;
+                Double result;
+                if (index == 0) {
+                    result = alphaBeta(child, depth - 1, alpha, beta);
+                } else {
+                    int reduction = reduction(node, depth, index);
+                    result = alphaBeta(child, depth - 1 - reduction, alpha, Math.nextUp(alpha));
+                    if (reduction > 0 && result > alpha) {
+                        statistics.reductionResearch();
+                        result = alphaBeta(child, depth - 1, alpha, Math.nextUp(alpha));
+                    }
+                    if (result > alpha && result < beta) {
+                        statistics.research();
+                        result = alphaBeta(child, depth - 1, alpha, beta);
+                    }
+                }
                 if (result > v) {
                     v = result;
-                    node.setBestChild(child);
+                    arena.setBestChild(node, child);
                 }
                 if (v >= beta) {
                     break;
@@ -165,11 +284,27 @@ public class GameTree implements Runnable {
             return v;
         } else {
             Double v = Double.POSITIVE_INFINITY;
-            for (TreeNode child : node.getChildren()) {
-                Double result = alphaBeta(child, depth - 1, alpha, beta);
+            for (int index = 0; ; index++) {
+                int child = child(node, index, bestOffset, maximising);
+                if (child == NodeArena.kNone) break;
+                Double result;
+                if (index == 0) {
+                    result = alphaBeta(child, depth - 1, alpha, beta);
+                } else {
+                    int reduction = reduction(node, depth, index);
+                    result = alphaBeta(child, depth - 1 - reduction, Math.nextDown(beta), beta);
+                    if (reduction > 0 && result < beta) {
+                        statistics.reductionResearch();
+                        result = alphaBeta(child, depth - 1, Math.nextDown(beta), beta);
+                    }
+                    if (result < beta && result > alpha) {
+                        statistics.research();
+                        result = alphaBeta(child, depth - 1, alpha, beta);
+                    }
+                }
                 if (result < v) {
                     v = result;
-                    node.setBestChild(child);
+                    arena.setBestChild(node, child);
                 }
                 if (v <= alpha) {
                     break;
@@ -180,23 +315,226 @@ public class GameTree implements Runnable {
         }
     }
 
-    // Adds all children to a specified node.
-    // @param parent the node to add children to.
-    // @param maximising the boolean which decides whether the new nodes are maximising.
-    // @return the node with children added.
-    private TreeNode addChildren(TreeNode parent, boolean maximising) {
-        if (parent.getChildren().size() > 0) return parent;
-        int nextRound = parent.getRound();
-        if (maximising) nextRound++;
-        Colour nextPlayer = ModelHelper.getNextPlayer(parent.getState(), ModelHelper.getPlayerOfColour(parent.getState(), parent.getPlayer())).colour();
-        Set<Move> validMoves = ModelHelper.validMoves(ModelHelper.getPlayerOfColour(parent.getState(),
-                                                      parent.getPlayer()), parent.getState(), graph, false);
-        for (Move move : validMoves) {
-            List<GamePlayer> clonedState = cloneList(parent.getState());
-            playMove(clonedState, move);
-            parent.addChild(new TreeNode(parent, clonedState, nextPlayer, nextRound, move, this));
+    // Returns the score of a node near the leaves if its static score is so
+    // far outside the window that searching it is unlikely to matter.
+    // One ply from the leaves the node is pruned (futility pruning), and two
+    // plies from the leaves it is searched one ply shallower first (razoring).
+    // Nodes where a detective is next to Mr X, or where Mr X has nowhere
+    // safe to go, are never pruned, as their static scores are unreliable.
+    // @param node the node to check.
+    // @param depth the depth left to search.
+    // @param alpha the best score Mr X is sure of.
+    // @param beta the best score the detectives are sure of.
+    // @param maximising true if Mr X is to move at the node.
+    // @return the score of the node, or null if it should be searched.
+    private Double prune(int node, int depth, Double alpha, Double beta, boolean maximising) {
+        double futility = options.getFutilityMargin();
+        double razor = options.getRazorMargin();
+        if (depth > 2 || (futility <= 0 && razor <= 0)) return null;
+        List<GamePlayer> state = arena.getState(node);
+        if (reachability.isThreatened(state, 1) || !reachability.hasEscape(state)) return null;
+        if (depth == 1 && futility > 0) {
+            double score = score(node);
+            if (maximising && score + futility <= alpha) {
+                statistics.futilityPrune();
+                return score + futility;
+            }
+            if (!maximising && score - futility >= beta) {
+                statistics.futilityPrune();
+                return score - futility;
+            }
+        }
+        if (depth == 2 && razor > 0) {
+            double score = score(node);
+            if (maximising && score + razor <= alpha) {
+                statistics.razor();
+                Double result = alphaBeta(node, 1, alpha, beta);
+                if (result <= alpha) return result;
+            }
+            if (!maximising && score - razor >= beta) {
+                statistics.razor();
+                Double result = alphaBeta(node, 1, alpha, beta);
+                if (result >= beta) return result;
+            }
+        }
+        return null;
+    }
+
+    // Returns the number of plies to reduce a child by, which is more than 0
+    // only for children late in the order of a node far from the leaves.
+    // @param node the parent of the child.
+    // @param depth the depth left to search from the parent.
+    // @param index the position of the child in the order.
+    // @return the number of plies to reduce the child by.
+    private int reduction(int node, int depth, int index) {
+        if (options.getReduction() <= 0 || node == root || depth < options.getReductionDepth()
+            || index < options.getLateMoves()) return 0;
+        statistics.reduction();
+        return Math.min(options.getReduction(), depth - 1);
+    }
+
+    // Searches the root inside a window around the score of the last
+    // iteration, widening the window and searching again when the score
+    // falls outside it.
+    // @param depth the depth to search to.
+    // @return the score of the root.
+    private Double aspirationSearch(int depth) {
+        searches++;
+        if (depth < 2 || Double.isInfinite(score)) {
+            return alphaBeta(root, depth, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+        }
+        double window = kAspirationWindow;
+        double low = score - window;
+        double high = score + window;
+        while (true) {
+            Double result = alphaBeta(root, depth, low, high);
+            if (result <= low && low > Double.NEGATIVE_INFINITY) {
+                window *= 4;
+                low = window > kMaxAspirationWindow ? Double.NEGATIVE_INFINITY : result - window;
+            } else if (result >= high && high < Double.POSITIVE_INFINITY) {
+                window *= 4;
+                high = window > kMaxAspirationWindow ? Double.POSITIVE_INFINITY : result + window;
+            } else {
+                return result;
+            }
+        }
+    }
+
+    // Returns true if a detective to move at a node can move onto Mr X. In
+    // Best-Reply Search any detective can move below the root.
+    // @param node the node to check.
+    // @return true if Mr X can be caught at the node.
+    private boolean canCapture(int node) {
+        List<GamePlayer> state = arena.getState(node);
+        int mrXLocation = ModelHelper.getPlayerOfColour(state, Colour.Black).location();
+        if (mrXLocation <= 0) return false;
+        boolean anyDetective = bestReply && node != root;
+        for (GamePlayer player : state) {
+            if (player.colour().equals(Colour.Black)) continue;
+            if (!anyDetective && !player.colour().equals(arena.getPlayer(node))) continue;
+            if (reachability.canReach(player, mrXLocation, 1)) return true;
+        }
+        return false;
+    }
+
+    // Returns the position in a node's block of children of its best child
+    // from the last search, which stays the same if the block is moved.
+    // @param node the node.
+    // @return the position of the best child, or kNone if there is none.
+    private int bestOffset(int node) {
+        int best = arena.getBestChild(node);
+        if (best == NodeArena.kNone) return NodeArena.kNone;
+        return best - arena.getFirstChild(node);
+    }
+
+    // Returns a child of a node in the order they should be searched: the
+    // best child from the last search first, then the others in the order
+    // of their stages. The next stage of children is added when the last
+    // one runs out, and a child's state is only made when it is reached.
+    // @param node the parent of the child.
+    // @param index the position of the child in search order.
+    // @param bestOffset the position of the best child from bestOffset.
+    // @param maximising true if Mr X is to move at the node.
+    // @return the child, or kNone if the node has no more children.
+    private int child(int node, int index, int bestOffset, boolean maximising) {
+        int offset = index;
+        if (bestOffset != NodeArena.kNone) {
+            if (index == 0) offset = bestOffset;
+            else if (index <= bestOffset) offset = index - 1;
+        }
+        while (offset >= arena.getChildCount(node)) {
+            if (!addStage(node, maximising)) return NodeArena.kNone;
+        }
+        int child = arena.getFirstChild(node) + offset;
+        if (arena.getState(child) == null) {
+            List<GamePlayer> clonedState = cloneList(arena.getState(node));
+            playMove(clonedState, arena.getMove(child));
+            arena.setState(child, clonedState);
+        }
+        return child;
+    }
+
+    // Adds the children of a node's next stage of Moves that has any.
+    // @param node the node to add children to.
+    // @param maximising true if Mr X is to move at the node.
+    // @return true if any children were added.
+    private boolean addStage(int node, boolean maximising) {
+        List<GamePlayer> state = arena.getState(node);
+        Colour player = arena.getPlayer(node);
+        Colour nextPlayer = Colour.Black;
+        int nextRound = arena.getRound(node);
+        if (!bestReply || maximising) {
+            nextPlayer = ModelHelper.getNextPlayer(state, ModelHelper.getPlayerOfColour(state, player)).colour();
+            if (maximising) nextRound++;
+        }
+        while (arena.getStage(node) < kStages) {
+            int stage = arena.getStage(node);
+            arena.setStage(node, stage + 1);
+            List<Move> moves = generateMoves(node, maximising, stage);
+            if (moves.isEmpty()) continue;
+            int[] packed = new int[moves.size()];
+            for (int i = 0; i < packed.length; i++) packed[i] = NodeArena.pack(moves.get(i));
+            if (nodeBudget > 0 && arena.size() + packed.length > nodeBudget) {
+                statistics.eviction(arena.evict(nodeBudget - nodeBudget / kEvictionShare, node));
+            }
+            // A double Move uses a round for each of its tickets.
+            int childRound = maximising && stage == kStageDoubles ? nextRound + 1 : nextRound;
+            arena.addChildren(node, packed, packed.length, nextPlayer, childRound);
+            return true;
         }
-        return parent;
+        return false;
+    }
+
+    // Returns the Moves of one stage of a node in search order. The single
+    // Moves stage holds the detectives' Moves that land on Mr X, then those
+    // that land next to him, then the other single Moves, then secret Moves.
+    // The doubles stage holds Mr X's double Moves if the tree searches them,
+    // with the ones that lead to the same state merged.
+    // In Best-Reply Search a detective node below the root has the Moves of
+    // every detective, and a pass only if none of them can move.
+    // @param parent the node to generate Moves for.
+    // @param maximising true if Mr X is to move at the node.
+    // @param stage the stage of Moves to generate.
+    // @return the Moves of the stage.
+    private List<Move> generateMoves(int parent, boolean maximising, int stage) {
+        List<GamePlayer> state = arena.getState(parent);
+        List<Move> moves = new ArrayList<Move>();
+        if (stage == kStageDoubles) {
+            if (!maximising || !doubleMoves) return moves;
+            GamePlayer mrX = ModelHelper.getPlayerOfColour(state, Colour.Black);
+            for (Move move : ModelHelper.mergeDoubleMoves(ModelHelper.validMoves(mrX, state, graph, true))) {
+                if (move instanceof MoveDouble) moves.add(move);
+            }
+            return moves;
+        }
+        if (stage != kStageSingles) return moves;
+        boolean bestReplies = bestReply && !maximising && parent != root;
+        int mrXLocation = ModelHelper.getPlayerOfColour(state, Colour.Black).location();
+        long[] nearMrX = null;
+        if (!maximising && mrXLocation > 0) nearMrX = reachability.getReachable(mrXLocation, Reachability.kAllRoutes, 1);
+        List<Move> near = new ArrayList<Move>();
+        List<Move> singles = new ArrayList<Move>();
+        List<Move> secrets = new ArrayList<Move>();
+        for (GamePlayer player : state) {
+            if (bestReplies ? player.colour().equals(Colour.Black) : !player.colour().equals(arena.getPlayer(parent))) continue;
+            for (Move move : ModelHelper.validMoves(player, state, graph, false)) {
+                if (move instanceof MoveTicket) {
+                    MoveTicket moveTicket = (MoveTicket) move;
+                    if (moveTicket.ticket.equals(Ticket.Secret)) secrets.add(move);
+                    else if (nearMrX == null) singles.add(move);
+                    else if (moveTicket.target == mrXLocation) moves.add(move);
+                    else if (Reachability.contains(nearMrX, moveTicket.target)) near.add(move);
+                    else singles.add(move);
+                } else if (!bestReplies) {
+                    singles.add(move);
+                }
+            }
+        }
+        moves.addAll(near);
+        moves.addAll(singles);
+        moves.addAll(secrets);
+        if (bestReplies && moves.isEmpty()) moves.add(MovePass.instance(arena.getPlayer(parent)));
+        return moves;
     }
 
     public Move getMrXMove() {
@@ -207,6 +545,84 @@ public class GameTree implements Runnable {
         return detMove;
     }
 
+    /**
+     * Returns the score of the root from the deepest completed search.
+     *
+     * @return the score of the root from the deepest completed search.
+     */
+    public double getScore() {
+        return score;
+    }
+
+    /**
+     * Returns the depth of the deepest completed search.
+     *
+     * @return the depth of the deepest completed search.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Returns the number of nodes visited by all searches of the tree.
+     *
+     * @return the number of nodes visited by all searches of the tree.
+     */
+    public long getNodes() {
+        return statistics.getNodes();
+    }
+
+    /**
+     * Returns the statistics of all searches of the tree.
+     *
+     * @return the statistics of all searches of the tree.
+     */
+    public SearchStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Sets the number of nodes the tree keeps. When a search reaches it, a
+     * quarter of the nodes are evicted, taking the children of the nodes
+     * searched longest ago first. Evicted children are made again if the
+     * search needs them. The default is set by NodeArena.getDefaultBudget.
+     *
+     * @param nodeBudget the number of nodes to keep, or 0 for no limit.
+     */
+    public void setNodeBudget(int nodeBudget) {
+        this.nodeBudget = nodeBudget;
+    }
+
+    /**
+     * Returns the number of nodes the tree holds.
+     *
+     * @return the number of nodes the tree holds.
+     */
+    public int getTreeSize() {
+        return arena.size();
+    }
+
+    /**
+     * Sets the pruning used by the search. It must be set before the tree is searched.
+     *
+     * @param options the SearchOptions to use.
+     */
+    public void setOptions(SearchOptions options) {
+        this.options = options;
+    }
+
+    // Returns the static score of a node, scoring it the first time it is needed.
+    // @param node the node to score.
+    // @return the score of the node.
+    private double score(int node) {
+        float score = arena.getScore(node);
+        if (Float.isNaN(score)) {
+            score = (float) evaluator.score(node);
+            arena.setScore(node, score);
+        }
+        return score;
+    }
+
     // Plays the specified Move in the specified game state.
     // @param players the specified game state.
     // @param move the specified Move.
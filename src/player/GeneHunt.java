@@ -14,11 +14,17 @@ import java.awt.event.*;
 
 public class GeneHunt implements Player {
 
+    private static final Set<String> internedGraphs = new HashSet<String>();
+
     private ScotlandYardView view;
     private ScotlandYardGame game;
     private Graph<Integer, Route> graph;
     private Dijkstra dijkstra;
     private PageRank pageRank;
+    private EndgameSolver endgame;
+    private Weights weights;
+    private boolean mrXBestReply = false;
+    private boolean detectiveBestReply = false;
     private List<Move> moveList;
     private ThreadCommunicator threadCom;
 
@@ -34,9 +40,12 @@ public class GeneHunt implements Player {
             this.view = view;
             ScotlandYardGraphReader graphReader = new ScotlandYardGraphReader();
             this.graph = graphReader.readGraph(graphFilename);
+            internMoves(graphFilename);
             this.dijkstra = new Dijkstra(graphFilename);
             this.pageRank = new PageRank(graph);
             this.pageRank.iterate(100);
+            this.endgame = new EndgameSolver(graph);
+            this.weights = Weights.getDefault();
             this.threadCom = threadCom;
             this.game = game;
         } catch (Exception e) {
@@ -55,21 +64,80 @@ public class GeneHunt implements Player {
      */
     @Override
     public Move notify(int location, Set<Move> moves) {
-        threadCom.putUpdate("current_player", Colour.Black);
-        threadCom.putUpdate("valid_moves", new HashSet<Move>());
+        threadCom.putUpdate(Update.CURRENT_PLAYER, Colour.Black);
+        threadCom.putUpdate(Update.VALID_MOVES, new HashSet<Move>());
         Colour player = view.getCurrentPlayer();
         if (threadCom != null) updateUI(player);
-        GameTree gameTree = new GameTree(graph, pageRank, dijkstra, view.getRound(), player, getPlayers(location, player), threadCom, game);
+        OpeningBook book = OpeningBook.getDefault();
+        if (book != null) {
+            OpeningBook.Entry entry = book.probe(player, view.getRound(), getPlayers(location, player), moves);
+            if (entry != null) {
+                if (threadCom != null) threadCom.putUpdate(Update.SEND_NOTIFICATION, "The AI found " + getPlayerMessage(player) + "'s Move in the opening book");
+                if (game != null) game.setAiEvaluation(entry.getScore(), book.getDepth());
+                return chosen(entry.getMove());
+            }
+        }
+        // Detectives only know where Mr X is straight after he has been seen.
+        int round = view.getRound();
+        if (player.equals(Colour.Black) || (round < view.getRounds().size() && view.getRounds().get(round))) {
+            EndgameSolver.Result result = endgame.solve(player, round, getPlayers(location, player), moves);
+            if (result != null && result.isWin()) {
+                // The solver lets the detectives see Mr X after every Move, so
+                // only his wins are proven. A detective's win only picks the Move.
+                if (player.equals(Colour.Black)) {
+                    if (threadCom != null) threadCom.putUpdate(Update.SEND_NOTIFICATION, "The AI has found a forced win for " + getPlayerMessage(player));
+                    if (game != null) game.setAiEvaluation(Double.POSITIVE_INFINITY, result.getPlies());
+                } else if (threadCom != null) {
+                    threadCom.putUpdate(Update.SEND_NOTIFICATION, "The AI found " + getPlayerMessage(player) + "'s Move with the endgame solver");
+                }
+                return chosen(result.getMove());
+            }
+        }
+        GameTree gameTree = new GameTree(graph, pageRank, dijkstra, weights, view.getRound(), player, getPlayers(location, player), threadCom, game);
+        gameTree.setBestReply(player.equals(Colour.Black) ? mrXBestReply : detectiveBestReply);
+        gameTree.setDoubleMoves(SearchOptions.getDefault().getDoubleMoves());
         Thread gameTreeThread = new Thread(gameTree);
         gameTreeThread.start();
         joinThread(gameTreeThread);
+        if (Boolean.getBoolean("scotlandyard.search.stats")) {
+            System.out.println("Searched " + getPlayerMessage(player) + "'s Move to depth " + gameTree.getDepth() + ": " + gameTree.getStatistics());
+        }
         Move move = gameTree.getMrXMove();
-        threadCom.putUpdate("detective_best_move", gameTree.getDetMove());
+        threadCom.putUpdate(Update.DETECTIVE_BEST_MOVE, gameTree.getDetMove());
+        if (game != null) game.setAiEvaluation(gameTree.getScore(), gameTree.getDepth());
         if (move == null || !moves.contains(move)) move = moves.iterator().next();
         gameTree = null;
+        return chosen(move);
+    }
+
+    // Makes every Move for the Graph once, before the first GameTree is
+    // searched, as the views of the tree make Moves on other threads.
+    // @param graphFilename the path to the file that contains the Graph.
+    private void internMoves(String graphFilename) {
+        synchronized (internedGraphs) {
+            if (internedGraphs.add(graphFilename)) ModelHelper.internMoves(graph);
+        }
+    }
+
+    // Returns a Move after recording it in the game, if there is one.
+    // @param move the Move chosen by the AI.
+    // @return the Move chosen by the AI.
+    private Move chosen(Move move) {
+        if (game != null) game.recordMove(move);
         return move;
     }
 
+    /**
+     * Sets whether Mr X and the detectives search with Best-Reply Search.
+     *
+     * @param mrX true if Mr X should use Best-Reply Search.
+     * @param detectives true if the detectives should use Best-Reply Search.
+     */
+    public void setBestReply(boolean mrX, boolean detectives) {
+        this.mrXBestReply = mrX;
+        this.detectiveBestReply = detectives;
+    }
+
     private void joinThread(Thread thread) {
         try {
             thread.join();
@@ -82,10 +150,10 @@ public class GeneHunt implements Player {
     // Updates the UI at the start of an AI move.
     // @param player the player whose turn it is.
     private void updateUI(Colour player) {
-        threadCom.putUpdate("stop_timer", true);
-        threadCom.putUpdate("ai_reset_prune", true);
-        threadCom.putUpdate("zoom_out", true);
-        threadCom.putUpdate("send_notification", "The AI is thinking about " + getPlayerMessage(player) + "'s Move");
+        threadCom.putUpdate(Update.STOP_TIMER, true);
+        threadCom.putUpdate(Update.AI_RESET_PRUNE, true);
+        threadCom.putUpdate(Update.ZOOM_OUT, true);
+        threadCom.putUpdate(Update.SEND_NOTIFICATION, "The AI is thinking about " + getPlayerMessage(player) + "'s Move");
         updateTickets(player);
     }
 
@@ -104,7 +172,7 @@ public class GeneHunt implements Player {
         newTickets.add(player);
         Map<Ticket, Integer> tickets = ModelHelper.getTickets(player, view);
         newTickets.add(tickets);
-        threadCom.putUpdate("update_tickets", newTickets);
+        threadCom.putUpdate(Update.UPDATE_TICKETS, newTickets);
     }
 
     // Returns the List of GamePlayer objects for the current game state.
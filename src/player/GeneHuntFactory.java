@@ -22,11 +22,15 @@ public class GeneHuntFactory implements PlayerFactory {
 
     public enum PlayerType {AI, GUI}
 
+    public enum SearchType {ALPHA_BETA, BEST_REPLY}
+
     private String graphFilename;
     private ScotlandYardGame gui;
     private GeneHunt ai;
     private ScotlandYardApplication application;
     private ThreadCommunicator threadCom;
+    private SearchType mrXSearch = searchType("scotlandyard.search.mrx");
+    private SearchType detectiveSearch = searchType("scotlandyard.search.detectives");
 
     private final int kTimerTime = 10;
 
@@ -66,6 +70,20 @@ public class GeneHuntFactory implements PlayerFactory {
         this.graphFilename = graphFilename;
     }
 
+    /**
+     * Sets the search the AI uses for Mr X and for the detectives.
+     * By default both use alpha-beta, unless the scotlandyard.search.mrx or
+     * scotlandyard.search.detectives property is set to BEST_REPLY.
+     *
+     * @param mrX the search the AI uses for Mr X.
+     * @param detectives the search the AI uses for the detectives.
+     */
+    public void setSearchTypes(SearchType mrX, SearchType detectives) {
+        this.mrXSearch = mrX;
+        this.detectiveSearch = detectives;
+        if (ai != null) ai.setBestReply(mrX == SearchType.BEST_REPLY, detectives == SearchType.BEST_REPLY);
+    }
+
     /**
      * Returns the correct Player for the specified player in the game.
      *
@@ -82,7 +100,7 @@ public class GeneHuntFactory implements PlayerFactory {
             case GUI:
                 return gui(view);
             default:
-                return new GeneHunt(view, graphFilename, threadCom, gui(view));
+                return geneHunt(view, graphFilename, threadCom);
         }
     }
 
@@ -124,11 +142,36 @@ public class GeneHuntFactory implements PlayerFactory {
 
     private GeneHunt ai(ScotlandYardView view, String graphFilename, ThreadCommunicator threadCom) {
         if (ai == null) {
-            ai = new GeneHunt(view, graphFilename, threadCom, gui(view));
+            ai = geneHunt(view, graphFilename, threadCom);
         }
         return ai;
     }
 
+    // Returns a new GeneHunt AI using the chosen searches.
+    // @param view the ScotlandYardView that contains the information about the game.
+    // @param graphFilename the path to the file containing the Graph.
+    // @param threadCom the ThreadCommunicator object to communicate with the GUI thread.
+    // @return a new GeneHunt AI.
+    private GeneHunt geneHunt(ScotlandYardView view, String graphFilename, ThreadCommunicator threadCom) {
+        GeneHunt geneHunt = new GeneHunt(view, graphFilename, threadCom, gui(view));
+        geneHunt.setBestReply(mrXSearch == SearchType.BEST_REPLY, detectiveSearch == SearchType.BEST_REPLY);
+        return geneHunt;
+    }
+
+    // Returns the SearchType named by a property, or ALPHA_BETA if it is not set.
+    // @param property the name of the property.
+    // @return the SearchType named by the property.
+    private static SearchType searchType(String property) {
+        String value = System.getProperty(property);
+        if (value == null) return SearchType.ALPHA_BETA;
+        try {
+            return SearchType.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown search " + value + " for " + property + ", using ALPHA_BETA");
+            return SearchType.ALPHA_BETA;
+        }
+    }
+
     /**
      * Returns the GUI associated with the game.
      *
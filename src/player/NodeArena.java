@@ -0,0 +1,584 @@
+package player;
+
+import scotlandyard.*;
+import client.model.*;
+
+import java.util.*;
+
+/**
+ * A class to hold the nodes of a GameTree in parallel arrays instead of one
+ * object each, so a search makes few objects for the garbage collector to
+ * follow. A node is an index into the arrays, the children of a node are a
+ * block of consecutive indexes, and Moves are packed into ints. Clearing
+ * the arena for a new search takes constant time. TreeNode gives a
+ * read-only view of a node for the AI view. Each node is stamped with a
+ * generation when it is made, so a view of a node that has since been
+ * evicted, moved or cleared can tell that its index no longer holds it.
+ * <p>
+ * The arena can be kept to a budget of nodes by evicting the children of
+ * nodes the search has not needed for a while. Their blocks are reused for
+ * new children, and an evicted node makes its children again if the search
+ * comes back to it.
+ */
+
+public class NodeArena {
+
+    public static final int kNone = -1;
+
+    private static final int kFree = -2;
+    private static final int kInitialCapacity = 1024;
+    private static final long kBytesPerNode = 2800;
+    private static final int kEvaluationSize = Evaluator.kTerms;
+
+    private static final int kKindNone = 0;
+    private static final int kKindTicket = 1;
+    private static final int kKindDouble = 2;
+    private static final int kKindPass = 3;
+
+    private int size = 0;
+    private int live = 0;
+    private int generations = 0;
+    private final TreeMap<Integer, ArrayDeque<Integer>> freeBlocks = new TreeMap<Integer, ArrayDeque<Integer>>();
+    private int[] parent;
+    private int[] firstChild;
+    private int[] childCount;
+    private int[] bestChild;
+    private int[] move;
+    private float[] score;
+    private byte[] player;
+    private byte[] round;
+    private byte[] stage;
+    private int[] visited;
+    private byte[] depth;
+    private double[] evaluation;
+    private Object[] state;
+    private int[] generation;
+
+    /**
+     * Constructs a new, empty NodeArena object.
+     */
+    public NodeArena() {
+        parent = new int[kInitialCapacity];
+        firstChild = new int[kInitialCapacity];
+        childCount = new int[kInitialCapacity];
+        bestChild = new int[kInitialCapacity];
+        move = new int[kInitialCapacity];
+        score = new float[kInitialCapacity];
+        player = new byte[kInitialCapacity];
+        round = new byte[kInitialCapacity];
+        stage = new byte[kInitialCapacity];
+        visited = new int[kInitialCapacity];
+        depth = new byte[kInitialCapacity];
+        evaluation = new double[kInitialCapacity * kEvaluationSize];
+        state = new Object[kInitialCapacity];
+        generation = new int[kInitialCapacity];
+    }
+
+    /**
+     * Returns the number of nodes a GameTree keeps before it evicts some,
+     * set by the scotlandyard.tree.nodes property, or else in megabytes by
+     * the scotlandyard.tree.memory property (256 by default). A node and its
+     * state take about 2.8KB.
+     *
+     * @return the default node budget, or 0 for no budget.
+     */
+    public static int getDefaultBudget() {
+        Integer nodes = Integer.getInteger("scotlandyard.tree.nodes");
+        if (nodes != null) return Math.max(nodes, 0);
+        long megabytes = Integer.getInteger("scotlandyard.tree.memory", 256);
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(megabytes, 0) * 1024 * 1024 / kBytesPerNode);
+    }
+
+    /**
+     * Removes all nodes from the arena. The arrays are kept for the next
+     * search, so this takes constant time.
+     */
+    public synchronized void clear() {
+        size = 0;
+        live = 0;
+        freeBlocks.clear();
+    }
+
+    /**
+     * Returns the number of nodes in the arena, not counting evicted ones.
+     *
+     * @return the number of nodes in the arena.
+     */
+    public synchronized int size() {
+        return live;
+    }
+
+    // Adds a node with no children.
+    // @param parent the parent of the node, or kNone for a root.
+    // @param move the packed Move used to get to the node.
+    // @param player the player to move at the node.
+    // @param round the round at the node.
+    // @param state the state at the node, or null if it has not been made yet.
+    // @return the index of the new node.
+    synchronized int add(int parent, int move, Colour player, int round, List<GamePlayer> state) {
+        int node = allocate(1);
+        set(node, parent, move, (byte) player.ordinal(), (byte) round, state);
+        return node;
+    }
+
+    // Adds a block of children to a node, one for each packed Move. Their
+    // states are made later with setState. If the node already has children
+    // and its block cannot grow where it is, the children are moved to a new
+    // block first, so all of its children stay next to each other.
+    // @param node the node to add children to.
+    // @param moves the packed Moves of the new children.
+    // @param count the number of Moves to add.
+    // @param player the player to move at the new children.
+    // @param round the round at the new children.
+    @SuppressWarnings("unchecked")
+    synchronized void addChildren(int node, int[] moves, int count, Colour player, int round) {
+        if (count == 0) return;
+        int first = firstChild[node];
+        int children = childCount[node];
+        int start;
+        if (children > 0 && first + children == size) {
+            ensureCapacity(size + count);
+            size += count;
+            live += count;
+            start = first + children;
+        } else {
+            int block = allocate(children + count);
+            for (int i = 0; i < children; i++) {
+                int from = first + i;
+                int to = block + i;
+                set(to, node, move[from], this.player[from], this.round[from], (List<GamePlayer>) state[from]);
+                firstChild[to] = firstChild[from];
+                childCount[to] = childCount[from];
+                bestChild[to] = bestChild[from];
+                score[to] = score[from];
+                stage[to] = stage[from];
+                visited[to] = visited[from];
+                depth[to] = depth[from];
+                generation[to] = generation[from];
+                copyEvaluation(from, to);
+                for (int j = 0; j < childCount[from]; j++) parent[firstChild[from] + j] = to;
+            }
+            if (children > 0) {
+                if (bestChild[node] != kNone) bestChild[node] = block + (bestChild[node] - first);
+                release(first, children);
+            }
+            firstChild[node] = block;
+            start = block + children;
+        }
+        for (int i = 0; i < count; i++) {
+            set(start + i, node, moves[i], (byte) player.ordinal(), (byte) round, null);
+        }
+        childCount[node] += count;
+    }
+
+    // Returns the first index of a block of free nodes, reusing an evicted
+    // block if there is one big enough.
+    // @param count the number of nodes in the block.
+    // @return the first index of the block.
+    private int allocate(int count) {
+        live += count;
+        Map.Entry<Integer, ArrayDeque<Integer>> entry = freeBlocks.ceilingEntry(count);
+        if (entry != null) {
+            int block = entry.getValue().poll();
+            if (entry.getValue().isEmpty()) freeBlocks.remove(entry.getKey());
+            if (entry.getKey() > count) free(block + count, entry.getKey() - count);
+            return block;
+        }
+        ensureCapacity(size + count);
+        int block = size;
+        size += count;
+        return block;
+    }
+
+    // Marks a block of nodes as evicted so it can be reused.
+    // @param first the first index of the block.
+    // @param count the number of nodes in the block.
+    private void release(int first, int count) {
+        live -= count;
+        for (int i = first; i < first + count; i++) {
+            parent[i] = kFree;
+            state[i] = null;
+            generation[i] = 0;
+        }
+        free(first, count);
+    }
+
+    // Adds a block of nodes to the free blocks.
+    // @param first the first index of the block.
+    // @param count the number of nodes in the block.
+    private void free(int first, int count) {
+        ArrayDeque<Integer> blocks = freeBlocks.get(count);
+        if (blocks == null) {
+            blocks = new ArrayDeque<Integer>();
+            freeBlocks.put(count, blocks);
+        }
+        blocks.add(first);
+    }
+
+    // Evicts the children of the nodes the search needs least until no more
+    // than a number of nodes are left. Nodes last searched longest ago go
+    // first, then those searched to the smallest depth. The line from the
+    // root to the node being searched and the best line from the root are
+    // kept.
+    // @param target the number of nodes to leave.
+    // @param node the node being searched.
+    // @return the number of nodes evicted.
+    synchronized int evict(int target, int node) {
+        int before = live;
+        boolean[] keep = new boolean[size];
+        int root = node;
+        for (int n = node; n >= 0; n = parent[n]) {
+            keep[n] = true;
+            root = n;
+        }
+        for (int n = root; n != kNone; n = bestChild[n]) keep[n] = true;
+        int candidates = 0;
+        long[] order = new long[size];
+        for (int n = 0; n < size; n++) {
+            if (parent[n] == kFree || childCount[n] == 0 || keep[n]) continue;
+            order[candidates++] = (long) visited[n] << 40 | (long) depth[n] << 32 | n;
+        }
+        Arrays.sort(order, 0, candidates);
+        Deque<Integer> stack = new ArrayDeque<Integer>();
+        for (int i = 0; i < candidates && live > target; i++) {
+            int n = (int) order[i];
+            if (parent[n] == kFree || childCount[n] == 0) continue;
+            stack.push(n);
+            while (!stack.isEmpty()) {
+                int m = stack.pop();
+                int first = firstChild[m];
+                for (int c = first; c < first + childCount[m]; c++) {
+                    if (childCount[c] > 0) stack.push(c);
+                }
+                release(first, childCount[m]);
+                firstChild[m] = kNone;
+                childCount[m] = 0;
+                bestChild[m] = kNone;
+                stage[m] = 0;
+            }
+        }
+        return before - live;
+    }
+
+    // Records that a node has been searched.
+    // @param node the node searched.
+    // @param search the number of the search, which grows with each search of the root.
+    // @param depth the depth the node was searched to.
+    synchronized void visit(int node, int search, int depth) {
+        visited[node] = search;
+        this.depth[node] = (byte) depth;
+    }
+
+    // Sets every array at an index, leaving the node with no children.
+    private void set(int index, int parent, int move, byte player, byte round, List<GamePlayer> state) {
+        this.parent[index] = parent;
+        this.firstChild[index] = kNone;
+        this.childCount[index] = 0;
+        this.bestChild[index] = kNone;
+        this.move[index] = move;
+        this.score[index] = Float.NaN;
+        this.player[index] = player;
+        this.round[index] = round;
+        this.stage[index] = 0;
+        this.visited[index] = 0;
+        this.depth[index] = 0;
+        this.evaluation[index * kEvaluationSize] = Double.NaN;
+        this.state[index] = state;
+        this.generation[index] = ++generations;
+    }
+
+    // Grows the arrays so they can hold at least the given number of nodes.
+    private void ensureCapacity(int capacity) {
+        if (capacity <= parent.length) return;
+        int length = Math.max(capacity, parent.length * 2);
+        parent = Arrays.copyOf(parent, length);
+        firstChild = Arrays.copyOf(firstChild, length);
+        childCount = Arrays.copyOf(childCount, length);
+        bestChild = Arrays.copyOf(bestChild, length);
+        move = Arrays.copyOf(move, length);
+        score = Arrays.copyOf(score, length);
+        player = Arrays.copyOf(player, length);
+        round = Arrays.copyOf(round, length);
+        stage = Arrays.copyOf(stage, length);
+        visited = Arrays.copyOf(visited, length);
+        depth = Arrays.copyOf(depth, length);
+        evaluation = Arrays.copyOf(evaluation, length * kEvaluationSize);
+        state = Arrays.copyOf(state, length);
+        generation = Arrays.copyOf(generation, length);
+    }
+
+    /**
+     * Returns a read-only view of a node.
+     *
+     * @param node the index of the node.
+     * @return a TreeNode for the node, or null if there is no node.
+     */
+    public synchronized TreeNode view(int node) {
+        if (node < 0 || node >= size || parent[node] == kFree) return null;
+        return new TreeNode(this, node, generation[node]);
+    }
+
+    /**
+     * Returns true if a node made in a generation is still at an index, and
+     * has not been evicted, moved or cleared since.
+     * Callers reading several fields of the node should hold the arena's
+     * lock so it cannot change in between.
+     *
+     * @param node the index of the node.
+     * @param generation the generation of the node.
+     * @return true if the node is still at the index.
+     */
+    public synchronized boolean isLive(int node, int generation) {
+        return node >= 0 && node < size && parent[node] != kFree && this.generation[node] == generation;
+    }
+
+    /**
+     * Returns the parent of a node.
+     *
+     * @param node the index of the node.
+     * @return the index of the parent, or kNone for a root.
+     */
+    public synchronized int getParent(int node) {
+        return parent[node];
+    }
+
+    /**
+     * Returns the first child of a node. The other children follow it.
+     *
+     * @param node the index of the node.
+     * @return the index of the first child, or kNone if there are none.
+     */
+    public synchronized int getFirstChild(int node) {
+        return firstChild[node];
+    }
+
+    /**
+     * Returns the number of children of a node.
+     *
+     * @param node the index of the node.
+     * @return the number of children of the node.
+     */
+    public synchronized int getChildCount(int node) {
+        return childCount[node];
+    }
+
+    /**
+     * Returns the best child of a node from the last search of it.
+     *
+     * @param node the index of the node.
+     * @return the index of the best child, or kNone if it has not been searched.
+     */
+    public synchronized int getBestChild(int node) {
+        return bestChild[node];
+    }
+
+    synchronized void setBestChild(int node, int child) {
+        bestChild[node] = child;
+    }
+
+    /**
+     * Returns the packed Move used to get to a node.
+     *
+     * @param node the index of the node.
+     * @return the packed Move, or 0 for a root.
+     */
+    public synchronized int getPackedMove(int node) {
+        return move[node];
+    }
+
+    /**
+     * Returns the Move used to get to a node.
+     *
+     * @param node the index of the node.
+     * @return the Move, or null for a root.
+     */
+    public Move getMove(int node) {
+        return unpack(getPackedMove(node));
+    }
+
+    /**
+     * Returns the static score of a node.
+     *
+     * @param node the index of the node.
+     * @return the score, or NaN if the node has not been scored.
+     */
+    public synchronized float getScore(int node) {
+        return score[node];
+    }
+
+    synchronized void setScore(int node, float value) {
+        score[node] = value;
+    }
+
+    /**
+     * Returns the player to move at a node.
+     *
+     * @param node the index of the node.
+     * @return the player to move at the node.
+     */
+    public synchronized Colour getPlayer(int node) {
+        return Colour.values()[player[node]];
+    }
+
+    /**
+     * Returns the round at a node.
+     *
+     * @param node the index of the node.
+     * @return the round at the node.
+     */
+    public synchronized int getRound(int node) {
+        return round[node];
+    }
+
+    // Returns the next stage of Moves to add children from.
+    synchronized int getStage(int node) {
+        return stage[node];
+    }
+
+    synchronized void setStage(int node, int value) {
+        stage[node] = (byte) value;
+    }
+
+    // Returns true if the terms of a node's evaluation have been worked out.
+    synchronized boolean isEvaluated(int node) {
+        return !Double.isNaN(evaluation[node * kEvaluationSize]);
+    }
+
+    // Returns one of the terms Evaluator keeps for a node.
+    synchronized double getEvaluation(int node, int term) {
+        return evaluation[node * kEvaluationSize + term];
+    }
+
+    synchronized void setEvaluation(int node, int term, double value) {
+        evaluation[node * kEvaluationSize + term] = value;
+    }
+
+    // Copies the terms of one node's evaluation to another.
+    synchronized void copyEvaluation(int from, int to) {
+        System.arraycopy(evaluation, from * kEvaluationSize, evaluation, to * kEvaluationSize, kEvaluationSize);
+    }
+
+    /**
+     * Returns the state of the game at a node.
+     *
+     * @param node the index of the node.
+     * @return the List of GamePlayers at the node, or null if it has not been made yet.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized List<GamePlayer> getState(int node) {
+        return (List<GamePlayer>) state[node];
+    }
+
+    synchronized void setState(int node, List<GamePlayer> value) {
+        state[node] = value;
+    }
+
+    /**
+     * Packs a Move into an int: 2 bits for the kind of Move, 3 for the
+     * player and 12 for each single Move in it.
+     *
+     * @param move the Move to pack.
+     * @return the packed Move, or 0 if it is null.
+     */
+    public static int pack(Move move) {
+        if (move instanceof MoveTicket) {
+            return kKindTicket | pack(move.colour) | pack((MoveTicket) move) << 5;
+        } else if (move instanceof MoveDouble) {
+            MoveDouble moveDouble = (MoveDouble) move;
+            return kKindDouble | pack(move.colour) | pack(moveDouble.move1) << 5 | pack(moveDouble.move2) << 17;
+        } else if (move instanceof MovePass) {
+            return kKindPass | pack(move.colour);
+        }
+        return kKindNone;
+    }
+
+    /**
+     * Returns the Move packed into an int.
+     *
+     * @param packed the packed Move.
+     * @return the Move, or null if it is 0.
+     */
+    public static Move unpack(int packed) {
+        Colour colour = Colour.values()[(packed >>> 2) & 7];
+        switch (packed & 3) {
+            case kKindTicket:
+                return MoveTicket.instance(colour, getTicket(packed), getTarget(packed));
+            case kKindDouble:
+                return MoveDouble.instance(colour, getTicket(packed), getTarget(packed),
+                                           Ticket.values()[(packed >>> 17) & 7], (packed >>> 20) & 511);
+            case kKindPass:
+                return MovePass.instance(colour);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Returns true if a packed Move is a double Move.
+     *
+     * @param packed the packed Move.
+     * @return true if the packed Move is a double Move.
+     */
+    public static boolean isDouble(int packed) {
+        return (packed & 3) == kKindDouble;
+    }
+
+    /**
+     * Returns true if a packed Move is a single Move with a secret Ticket.
+     *
+     * @param packed the packed Move.
+     * @return true if the packed Move is a secret single Move.
+     */
+    public static boolean isSecret(int packed) {
+        return (packed & 3) == kKindTicket && getTicket(packed).equals(Ticket.Secret);
+    }
+
+    /**
+     * Returns the Ticket of the first Move in a packed Move.
+     *
+     * @param packed the packed Move, which must not be a pass.
+     * @return the Ticket used first.
+     */
+    public static Ticket getTicket(int packed) {
+        return Ticket.values()[(packed >>> 5) & 7];
+    }
+
+    /**
+     * Returns the location at the end of the first Move in a packed Move.
+     *
+     * @param packed the packed Move, which must not be a pass.
+     * @return the location at the end of the first Move.
+     */
+    public static int getTarget(int packed) {
+        return (packed >>> 8) & 511;
+    }
+
+    /**
+     * Returns the location at the end of a packed Move, without making the
+     * Move itself.
+     *
+     * @param packed the packed Move.
+     * @return the location at the end of the Move, or -1 if it is a pass or 0.
+     */
+    public static int getLocation(int packed) {
+        switch (packed & 3) {
+            case kKindTicket:
+                return getTarget(packed);
+            case kKindDouble:
+                return (packed >>> 20) & 511;
+            default:
+                return -1;
+        }
+    }
+
+    // Packs a Colour into bits 2 to 4.
+    private static int pack(Colour colour) {
+        return colour.ordinal() << 2;
+    }
+
+    // Packs a single Move into 12 bits: 3 for the Ticket and 9 for the target.
+    private static int pack(MoveTicket move) {
+        return move.ticket.ordinal() | move.target << 3;
+    }
+
+}
@@ -0,0 +1,282 @@
+package player;
+
+import scotlandyard.*;
+import client.model.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * A class to look up the first Moves of a game in an opening book made by
+ * OpeningBookGenerator, so the AI does not have to search them.
+ * The book is a file of fixed size entries sorted by the key of their
+ * position, which is memory-mapped and binary searched.
+ * Detectives are interchangeable, so a key depends on where the detectives
+ * are and what tickets they have but not on their colours. Mr X's tickets
+ * are left out of a detective's key, as they depend on his hidden Move.
+ */
+
+public class OpeningBook {
+
+    public static final String kDefaultFile = "resources/opening.book";
+
+    private static final int kMagic = 0x53594F42; // "SYOB"
+    private static final short kVersion = 1;
+    private static final int kHeaderSize = 16;
+    private static final int kEntrySize = 16;
+
+    private static OpeningBook defaultBook = null;
+    private static boolean defaultLoaded = false;
+
+    private final MappedByteBuffer map;
+    private final int count;
+    private final int depth;
+
+    // Constructs a new OpeningBook object.
+    // @param map the mapped book.
+    private OpeningBook(MappedByteBuffer map) throws IOException {
+        if (map.capacity() < kHeaderSize || map.getInt(0) != kMagic || map.getShort(4) > kVersion) {
+            throw new IOException("Not an opening book");
+        }
+        this.map = map;
+        this.depth = map.getShort(6);
+        this.count = Math.min(map.getInt(8), (map.capacity() - kHeaderSize) / kEntrySize);
+    }
+
+    /**
+     * Opens and memory-maps an opening book.
+     *
+     * @param file the file containing the book.
+     * @return the OpeningBook.
+     * @throws IOException if the book cannot be read.
+     */
+    public static OpeningBook open(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return new OpeningBook(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Returns the book named by the scotlandyard.book property,
+     * or resources/opening.book if it is not set.
+     *
+     * @return the OpeningBook, or null if there is no book.
+     */
+    public static synchronized OpeningBook getDefault() {
+        if (defaultLoaded) return defaultBook;
+        defaultLoaded = true;
+        File file = new File(System.getProperty("scotlandyard.book", kDefaultFile));
+        if (!file.exists()) return null;
+        try {
+            defaultBook = open(file);
+        } catch (IOException e) {
+            System.err.println("Error opening the opening book :" + e);
+        }
+        return defaultBook;
+    }
+
+    /**
+     * Writes an opening book.
+     *
+     * @param file the file to write the book to.
+     * @param depth the depth the positions were searched to.
+     * @param entries the entries to write.
+     * @throws IOException if the book cannot be written.
+     */
+    public static void write(File file, int depth, List<Entry> entries) throws IOException {
+        List<Entry> sorted = new ArrayList<Entry>(entries);
+        sorted.sort((a, b) -> Long.compare(a.key, b.key));
+        ByteBuffer data = ByteBuffer.allocate(kHeaderSize + kEntrySize * sorted.size());
+        data.putInt(kMagic);
+        data.putShort(kVersion);
+        data.putShort((short) depth);
+        data.putInt(sorted.size());
+        data.putInt(0);
+        for (Entry entry : sorted) {
+            data.putLong(entry.key);
+            data.putInt(entry.move);
+            data.putFloat((float) entry.score);
+        }
+        data.flip();
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE,
+                                                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (data.hasRemaining()) out.write(data);
+            out.force(true);
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Returns the number of positions in the book.
+     *
+     * @return the number of positions in the book.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns the depth the positions were searched to.
+     *
+     * @return the depth the positions were searched to.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Looks up a position in the book.
+     *
+     * @param player the player to move.
+     * @param round the current round.
+     * @param state the List of GamePlayers in the game, as seen by the player.
+     * @param moves the Set of valid Moves for the player.
+     * @return the Entry for the position, or null if it is not in the book
+     * or its Move is not valid.
+     */
+    public Entry probe(Colour player, int round, List<GamePlayer> state, Set<Move> moves) {
+        long key = key(player, round, state);
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long found = map.getLong(kHeaderSize + middle * kEntrySize);
+            if (found < key) {
+                low = middle + 1;
+            } else if (found > key) {
+                high = middle - 1;
+            } else {
+                int position = kHeaderSize + middle * kEntrySize;
+                int code = map.getInt(position + 8);
+                for (Move move : moves) {
+                    if (encode(move) == code) return new Entry(key, move, map.getFloat(position + 12));
+                }
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the key of a position.
+     *
+     * @param player the player to move.
+     * @param round the current round.
+     * @param state the List of GamePlayers in the game, as seen by the player.
+     * @return the key of the position.
+     */
+    public static long key(Colour player, int round, List<GamePlayer> state) {
+        long hash = mix(player.equals(Colour.Black) ? 1 : 2);
+        hash = mix(hash ^ round);
+        long mrXLocation = 0;
+        List<Long> detectives = new ArrayList<Long>();
+        for (GamePlayer gamePlayer : state) {
+            if (gamePlayer.colour().equals(player)) hash = mix(hash ^ describe(gamePlayer));
+            else if (gamePlayer.colour().equals(Colour.Black)) mrXLocation = gamePlayer.location();
+            else detectives.add(describe(gamePlayer));
+        }
+        hash = mix(hash ^ mrXLocation);
+        Collections.sort(detectives);
+        for (Long detective : detectives) hash = mix(hash ^ detective);
+        return hash;
+    }
+
+    /**
+     * Returns a number identifying a Move of the player to move.
+     * The colour is left out, as detectives are interchangeable.
+     *
+     * @param move the Move.
+     * @return the number identifying the Move.
+     */
+    public static int encode(Move move) {
+        int code = 0;
+        if (move instanceof MoveTicket) {
+            code |= encodeTicket((MoveTicket) move) << 12;
+        } else if (move instanceof MoveDouble) {
+            MoveDouble moveDouble = (MoveDouble) move;
+            code |= 1 << 24;
+            code |= encodeTicket(moveDouble.move1) << 12;
+            code |= encodeTicket(moveDouble.move2);
+        } else {
+            code |= 2 << 24;
+        }
+        return code;
+    }
+
+    // Returns a number identifying the ticket and target of a MoveTicket.
+    // @param move the MoveTicket.
+    // @return the number identifying the MoveTicket.
+    private static int encodeTicket(MoveTicket move) {
+        return (move.ticket.ordinal() << 9) | (move.target & 0x1FF);
+    }
+
+    // Returns a number identifying a player's location and tickets.
+    // @param player the GamePlayer.
+    // @return the number identifying the player.
+    private static long describe(GamePlayer player) {
+        long description = player.location() & 0xFFFF;
+        for (Ticket ticket : Ticket.values()) {
+            Integer number = player.tickets().get(ticket);
+            description = (description << 8) | ((number == null ? 0 : number) & 0xFF);
+        }
+        return description;
+    }
+
+    // Mixes the bits of a hash.
+    // @param value the value to mix.
+    // @return the mixed value.
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+
+    /**
+     * A position in the book and the Move to play from it.
+     */
+    public static class Entry {
+
+        private final long key;
+        private final int move;
+        private final Move validMove;
+        private final double score;
+
+        /**
+         * Constructs a new Entry object for writing to a book.
+         *
+         * @param key the key of the position.
+         * @param move the Move to play.
+         * @param score the score of the search.
+         */
+        public Entry(long key, Move move, double score) {
+            this.key = key;
+            this.move = encode(move);
+            this.validMove = move;
+            this.score = score;
+        }
+
+        /**
+         * Returns the Move to play.
+         *
+         * @return the Move to play.
+         */
+        public Move getMove() {
+            return validMove;
+        }
+
+        /**
+         * Returns the score of the search.
+         *
+         * @return the score of the search.
+         */
+        public double getScore() {
+            return score;
+        }
+
+    }
+
+}
@@ -0,0 +1,212 @@
+package player;
+
+import scotlandyard.*;
+import client.algorithms.*;
+import client.model.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A class to make an opening book by searching every combination of
+ * starting locations in parallel:
+ * <pre>
+ *   java player.OpeningBookGenerator resources/opening.book [app|judge] [depth] [threads] [detectives]
+ * </pre>
+ * The app starting locations and tickets are those of ScotlandYardGame,
+ * and the judge ones those of JudgeService. For each combination the book
+ * has Mr X's first Move, and the first detective's Move for each of the
+ * detectives that could be moving first. Mr X is at location 0 in the
+ * detectives' positions, as he is before he has been seen.
+ */
+
+public class OpeningBookGenerator {
+
+    private static final String kGraphFilename = "resources/graph.txt";
+
+    static final int[] kAppMrXStart = {35, 45, 51, 71, 78, 104, 106, 127, 132, 166, 170, 172};
+    static final int[] kAppDetectiveStart = {26, 29, 50, 53, 91, 94, 103, 112, 117, 123, 138, 141, 155, 174};
+    static final int[] kJudgeMrXStart = {35, 45, 51, 71, 78, 104, 106, 127, 132, 146, 166, 170, 172};
+    static final int[] kJudgeDetectiveStart = {13, 26, 29, 34, 50, 53, 91, 94, 103, 112, 117, 123, 138, 141, 155, 174};
+
+    private final Graph<Integer, Route> graph;
+    private final PageRank pageRank;
+    private final Dijkstra dijkstra;
+    private final int depth;
+
+    /**
+     * Constructs a new OpeningBookGenerator object.
+     *
+     * @param depth the depth to search each position to.
+     * @throws IOException if the Graph cannot be read.
+     */
+    public OpeningBookGenerator(int depth) throws IOException {
+        this.graph = new ScotlandYardGraphReader().readGraph(kGraphFilename);
+        this.pageRank = new PageRank(graph);
+        this.pageRank.iterate(100);
+        this.dijkstra = new Dijkstra(kGraphFilename);
+        this.depth = depth;
+        ModelHelper.internMoves(graph);
+    }
+
+    /**
+     * Makes an opening book.
+     *
+     * @param args the output file, and optionally the starting locations
+     * (app or judge), the search depth, the number of threads and the
+     * number of detectives.
+     */
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Usage: OpeningBookGenerator outputFile [app|judge] [depth] [threads] [detectives]");
+            System.exit(1);
+        }
+        boolean judge = args.length > 1 && args[1].equals("judge");
+        int depth = 3;
+        if (args.length > 2) depth = Integer.parseInt(args[2]);
+        int threads = Runtime.getRuntime().availableProcessors();
+        if (args.length > 3) threads = Integer.parseInt(args[3]);
+        int detectives = 5;
+        if (args.length > 4) detectives = Integer.parseInt(args[4]);
+        try {
+            long start = System.currentTimeMillis();
+            OpeningBookGenerator generator = new OpeningBookGenerator(depth);
+            List<OpeningBook.Entry> entries = generator.generate(judge, detectives, threads);
+            OpeningBook.write(new File(args[0]), depth, entries);
+            System.out.println("Wrote " + entries.size() + " positions in " + (System.currentTimeMillis() - start) + "ms");
+        } catch (Exception e) {
+            System.err.println("Error making the opening book :" + e);
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Searches the first Moves of every combination of starting locations.
+     *
+     * @param judge true for the JudgeService starting locations and tickets,
+     * false for the ScotlandYardGame ones.
+     * @param detectives the number of detectives.
+     * @param threads the number of positions to search at once.
+     * @return the List of entries for the book.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    public List<OpeningBook.Entry> generate(final boolean judge, int detectives, int threads) throws InterruptedException {
+        int[] mrXStart = judge ? kJudgeMrXStart : kAppMrXStart;
+        List<int[]> combinations = combinations(judge ? kJudgeDetectiveStart : kAppDetectiveStart, detectives);
+        final int total = combinations.size() * (mrXStart.length + detectives);
+        final AtomicInteger done = new AtomicInteger();
+        final Map<Long, OpeningBook.Entry> entries = new ConcurrentHashMap<Long, OpeningBook.Entry>();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        for (final int[] locations : combinations) {
+            for (final int mrXLocation : mrXStart) {
+                executor.execute(() -> {
+                    add(entries, Colour.Black, 0, state(judge, mrXLocation, locations));
+                    progress(done.incrementAndGet(), total);
+                });
+            }
+            for (int first = 0; first < detectives; first++) {
+                final int[] order = firstDetective(locations, first);
+                executor.execute(() -> {
+                    add(entries, Colour.Blue, 1, state(judge, 0, order));
+                    progress(done.incrementAndGet(), total);
+                });
+            }
+        }
+        executor.shutdown();
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        return new ArrayList<OpeningBook.Entry>(entries.values());
+    }
+
+    // Searches a position and adds its best Move to the entries.
+    // @param entries the Map of entries by key.
+    // @param player the player to move.
+    // @param round the current round.
+    // @param state the List of GamePlayers in the position.
+    private void add(Map<Long, OpeningBook.Entry> entries, Colour player, int round, List<GamePlayer> state) {
+        long key = OpeningBook.key(player, round, state);
+        if (entries.containsKey(key)) return;
+        GameTree tree = new GameTree(graph, pageRank, dijkstra, round, player, state, null, null);
+        Move move = tree.search(depth);
+        if (move != null) entries.put(key, new OpeningBook.Entry(key, move, tree.getScore()));
+    }
+
+    // Returns the players at the start of a game.
+    // @param judge true for the JudgeService tickets.
+    // @param mrXLocation the location of Mr X.
+    // @param locations the locations of the detectives in colour order.
+    // @return the List of GamePlayers.
+    static List<GamePlayer> state(boolean judge, int mrXLocation, int[] locations) {
+        Colour[] colours = Colour.values();
+        List<GamePlayer> players = new ArrayList<GamePlayer>();
+        players.add(new GamePlayer(null, Colour.Black, mrXLocation,
+                                   judge ? tickets(3, 4, 3, 2, 5) : tickets(10, 10, 10, 2, 5)));
+        for (int i = 0; i < locations.length; i++) {
+            players.add(new GamePlayer(null, colours[i + 1], locations[i], tickets(11, 8, 4, 0, 0)));
+        }
+        return players;
+    }
+
+    // Returns a Map of Ticket numbers.
+    // @param taxi the number of Taxi tickets.
+    // @param bus the number of Bus tickets.
+    // @param underground the number of Underground tickets.
+    // @param doubles the number of Double tickets.
+    // @param secret the number of Secret tickets.
+    // @return the Map of Ticket numbers.
+    private static Map<Ticket, Integer> tickets(int taxi, int bus, int underground, int doubles, int secret) {
+        Map<Ticket, Integer> tickets = new HashMap<Ticket, Integer>();
+        tickets.put(Ticket.Taxi, taxi);
+        tickets.put(Ticket.Bus, bus);
+        tickets.put(Ticket.Underground, underground);
+        tickets.put(Ticket.Double, doubles);
+        tickets.put(Ticket.Secret, secret);
+        return tickets;
+    }
+
+    // Returns the detective locations with one of them moved to the front,
+    // so that it is the first detective to move.
+    // @param locations the locations of the detectives.
+    // @param first the index of the detective to move first.
+    // @return the reordered locations.
+    private static int[] firstDetective(int[] locations, int first) {
+        int[] order = locations.clone();
+        order[0] = locations[first];
+        order[first] = locations[0];
+        return order;
+    }
+
+    // Returns every combination of a number of locations.
+    // @param locations the locations to choose from.
+    // @param size the number of locations in each combination.
+    // @return the List of combinations.
+    private static List<int[]> combinations(int[] locations, int size) {
+        List<int[]> combinations = new ArrayList<int[]>();
+        int[] indices = new int[size];
+        for (int i = 0; i < size; i++) indices[i] = i;
+        while (size <= locations.length) {
+            int[] combination = new int[size];
+            for (int i = 0; i < size; i++) combination[i] = locations[indices[i]];
+            combinations.add(combination);
+            int i = size - 1;
+            while (i >= 0 && indices[i] == locations.length - size + i) i--;
+            if (i < 0) break;
+            indices[i]++;
+            for (int j = i + 1; j < size; j++) indices[j] = indices[j - 1] + 1;
+        }
+        return combinations;
+    }
+
+    // Prints the progress every percent.
+    // @param done the number of positions searched.
+    // @param total the number of positions to search.
+    private static void progress(int done, int total) {
+        if (done * 100L / total != (done - 1) * 100L / total) {
+            System.out.println((done * 100L / total) + "% (" + done + "/" + total + ")");
+        }
+    }
+
+}
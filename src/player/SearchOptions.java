@@ -0,0 +1,163 @@
+package player;
+
+/**
+ * A class to hold the settings GameTree uses to prune its search: late move
+ * reductions, futility pruning and razoring, and to extend it where Mr X
+ * can be caught. Each can be turned off by setting it to 0 or false. They
+ * also set whether the AI searches Mr X's double Moves. The defaults can be
+ * changed with the scotlandyard.search.* properties.
+ */
+
+public class SearchOptions {
+
+    private static SearchOptions defaultOptions = null;
+
+    private final int lateMoves;
+    private final int reductionDepth;
+    private final int reduction;
+    private final double futilityMargin;
+    private final double razorMargin;
+    private final boolean captureExtension;
+    private final boolean doubleMoves;
+
+    /**
+     * Constructs a new SearchOptions object.
+     *
+     * @param lateMoves the number of children searched at full depth before
+     * the rest are reduced.
+     * @param reductionDepth the least depth at which children are reduced.
+     * @param reduction the number of plies late children are reduced by, or 0
+     * for no reductions.
+     * @param futilityMargin how far a node one ply from the leaves can be
+     * below alpha (or above beta for detectives) before it is pruned, or 0
+     * for no futility pruning.
+     * @param razorMargin how far a node two plies from the leaves can be below
+     * alpha (or above beta for detectives) before it is searched one ply
+     * shallower, or 0 for no razoring.
+     * @param captureExtension true if leaves where a detective can move onto
+     * Mr X are searched one ply deeper.
+     * @param doubleMoves true if the AI searches Mr X's double Moves.
+     */
+    public SearchOptions(int lateMoves, int reductionDepth, int reduction, double futilityMargin, double razorMargin,
+                         boolean captureExtension, boolean doubleMoves) {
+        this.lateMoves = lateMoves;
+        this.reductionDepth = reductionDepth;
+        this.reduction = reduction;
+        this.futilityMargin = futilityMargin;
+        this.razorMargin = razorMargin;
+        this.captureExtension = captureExtension;
+        this.doubleMoves = doubleMoves;
+    }
+
+    /**
+     * Returns the SearchOptions set by the scotlandyard.search.lmr.moves,
+     * scotlandyard.search.lmr.depth, scotlandyard.search.lmr.reduction,
+     * scotlandyard.search.futility, scotlandyard.search.razor,
+     * scotlandyard.search.extension and scotlandyard.search.doubles properties.
+     *
+     * @return the default SearchOptions.
+     */
+    public static synchronized SearchOptions getDefault() {
+        if (defaultOptions == null) {
+            defaultOptions = new SearchOptions(Integer.getInteger("scotlandyard.search.lmr.moves", 3),
+                                               Integer.getInteger("scotlandyard.search.lmr.depth", 3),
+                                               Integer.getInteger("scotlandyard.search.lmr.reduction", 1),
+                                               getDouble("scotlandyard.search.futility", 1.0),
+                                               getDouble("scotlandyard.search.razor", 2.0),
+                                               !"false".equalsIgnoreCase(System.getProperty("scotlandyard.search.extension")),
+                                               !"false".equalsIgnoreCase(System.getProperty("scotlandyard.search.doubles")));
+        }
+        return defaultOptions;
+    }
+
+    /**
+     * Returns SearchOptions with all pruning and extensions turned off,
+     * searching single Moves only.
+     *
+     * @return SearchOptions with all pruning and extensions turned off.
+     */
+    public static SearchOptions none() {
+        return new SearchOptions(0, 0, 0, 0.0, 0.0, false, false);
+    }
+
+    // Returns the value of a property as a double.
+    // @param property the name of the property.
+    // @param value the value to use if the property is not set or is not a number.
+    // @return the value of the property.
+    private static double getDouble(String property, double value) {
+        String setting = System.getProperty(property);
+        if (setting == null) return value;
+        try {
+            return Double.parseDouble(setting.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Unknown value " + setting + " for " + property + ", using " + value);
+            return value;
+        }
+    }
+
+    /**
+     * Returns the number of children searched at full depth before the rest are reduced.
+     *
+     * @return the number of children searched at full depth.
+     */
+    public int getLateMoves() {
+        return lateMoves;
+    }
+
+    /**
+     * Returns the least depth at which children are reduced.
+     *
+     * @return the least depth at which children are reduced.
+     */
+    public int getReductionDepth() {
+        return reductionDepth;
+    }
+
+    /**
+     * Returns the number of plies late children are reduced by.
+     *
+     * @return the number of plies late children are reduced by.
+     */
+    public int getReduction() {
+        return reduction;
+    }
+
+    /**
+     * Returns the futility margin.
+     *
+     * @return the futility margin.
+     */
+    public double getFutilityMargin() {
+        return futilityMargin;
+    }
+
+    /**
+     * Returns the razoring margin.
+     *
+     * @return the razoring margin.
+     */
+    public double getRazorMargin() {
+        return razorMargin;
+    }
+
+    /**
+     * Returns true if leaves where a detective can move onto Mr X are
+     * searched one ply deeper.
+     *
+     * @return true if capture extensions are turned on.
+     */
+    public boolean getCaptureExtension() {
+        return captureExtension;
+    }
+
+    /**
+     * Returns true if the AI searches Mr X's double Moves. Double Moves that
+     * lead to the same state are searched once.
+     *
+     * @return true if double Moves are searched.
+     */
+    public boolean getDoubleMoves() {
+        return doubleMoves;
+    }
+
+}
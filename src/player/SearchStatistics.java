@@ -0,0 +1,143 @@
+package player;
+
+/**
+ * A class to count what a GameTree did while searching, so the effect of
+ * its pruning can be seen.
+ */
+
+public class SearchStatistics {
+
+    private long nodes = 0;
+    private long researches = 0;
+    private long reductions = 0;
+    private long reductionResearches = 0;
+    private long futilityPrunes = 0;
+    private long razors = 0;
+    private long extensions = 0;
+    private long evictions = 0;
+    private long evictedNodes = 0;
+
+    void node() {
+        nodes++;
+    }
+
+    void research() {
+        researches++;
+    }
+
+    void reduction() {
+        reductions++;
+    }
+
+    void reductionResearch() {
+        reductionResearches++;
+    }
+
+    void futilityPrune() {
+        futilityPrunes++;
+    }
+
+    void razor() {
+        razors++;
+    }
+
+    void extension() {
+        extensions++;
+    }
+
+    void eviction(int nodes) {
+        evictions++;
+        evictedNodes += nodes;
+    }
+
+    /**
+     * Returns the number of nodes visited.
+     *
+     * @return the number of nodes visited.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Returns the number of children searched again with the full window
+     * after a null window search.
+     *
+     * @return the number of full window searches again.
+     */
+    public long getResearches() {
+        return researches;
+    }
+
+    /**
+     * Returns the number of children searched at reduced depth.
+     *
+     * @return the number of children searched at reduced depth.
+     */
+    public long getReductions() {
+        return reductions;
+    }
+
+    /**
+     * Returns the number of reduced children searched again at full depth.
+     *
+     * @return the number of reduced children searched again at full depth.
+     */
+    public long getReductionResearches() {
+        return reductionResearches;
+    }
+
+    /**
+     * Returns the number of nodes pruned by futility pruning.
+     *
+     * @return the number of nodes pruned by futility pruning.
+     */
+    public long getFutilityPrunes() {
+        return futilityPrunes;
+    }
+
+    /**
+     * Returns the number of nodes searched one ply shallower by razoring.
+     *
+     * @return the number of nodes razored.
+     */
+    public long getRazors() {
+        return razors;
+    }
+
+    /**
+     * Returns the number of leaves searched one ply deeper because a
+     * detective could move onto Mr X.
+     *
+     * @return the number of extended leaves.
+     */
+    public long getExtensions() {
+        return extensions;
+    }
+
+    /**
+     * Returns the number of times nodes were evicted to keep the tree in its budget.
+     *
+     * @return the number of evictions.
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Returns the number of nodes evicted to keep the tree in its budget.
+     *
+     * @return the number of nodes evicted.
+     */
+    public long getEvictedNodes() {
+        return evictedNodes;
+    }
+
+    @Override
+    public String toString() {
+        return nodes + " nodes, " + researches + " re-searches, " + reductions + " reductions ("
+               + reductionResearches + " re-searched), " + futilityPrunes + " futility prunes, " + razors + " razors, " + extensions + " extensions, "
+               + evictedNodes + " nodes evicted in " + evictions + " evictions";
+    }
+
+}
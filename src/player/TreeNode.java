@@ -6,22 +6,18 @@ import client.model.*;
 import java.util.*;
 
 /**
- * A class to represent a node in the game tree.
+ * A class to represent a node in the game tree. The tree itself is kept in
+ * a NodeArena, and a TreeNode is a read-only view of one of its nodes, so
+ * the AI view can walk the tree while it is being searched. The search can
+ * evict a node while it is being viewed, after which its getters return
+ * null (or NaN for the score, and no children).
  */
 
 public class TreeNode {
 
-    private TreeNode parent;
-    private final List<GamePlayer> currentState;
-    private final Colour currentPlayer;
-    private final int round;
-    private final Move move;
-    private final GameTree gameTree;
-    private List<TreeNode> children;
-    private TreeNode bestChild = null;
-    private Double score = null;
-    private static final double kTicketInfluence = 0.5;
-    private static final double kPageRankInfluence = 0.1;
+    private final NodeArena arena;
+    private final int index;
+    private final int generation;
 
     public static final double kMultiplier = 1.0;
     public static final double kMax = 10.0;
@@ -30,60 +26,75 @@ public class TreeNode {
     /**
      * Constructs a new TreeNode object.
      *
-     * @param parent the parent of this node.
-     * @param currentState the List of GamePlayer objects representing the current state of the game.
-     * @param currentPlayer the current player in the game.
-     * @param round the current round of the game.
-     * @param move the Move used to get to this node in the game tree.
-     * @param gameTree the GameTree that this node is a part of.
+     * @param arena the NodeArena that holds the node.
+     * @param index the index of the node in the arena.
+     * @param generation the generation the node was made in.
      */
-    public TreeNode(TreeNode parent, List<GamePlayer> currentState, Colour currentPlayer,
-                    int round, Move move, GameTree gameTree) {
-        this.parent = parent;
-        this.currentState = currentState;
-        this.currentPlayer = currentPlayer;
-        this.round = round;
-        this.move = move;
-        this.gameTree = gameTree;
-        this.children = new ArrayList<TreeNode>();
+    public TreeNode(NodeArena arena, int index, int generation) {
+        this.arena = arena;
+        this.index = index;
+        this.generation = generation;
     }
 
     public Integer getMoveLocation() {
-        if (move == null) return null;
-        return ModelHelper.getLocation(move);
+        synchronized (arena) {
+            if (!isLive()) return null;
+            int location = NodeArena.getLocation(arena.getPackedMove(index));
+            if (location < 0) return null;
+            return location;
+        }
     }
 
     public Integer getPlayerLocation() {
-        GamePlayer player = ModelHelper.getPlayerOfColour(currentState, currentPlayer);
-        //?add check here for player == null
-        return player.location();
+        synchronized (arena) {
+            if (!isLive() || arena.getState(index) == null) return null;
+            GamePlayer player = ModelHelper.getPlayerOfColour(arena.getState(index), arena.getPlayer(index));
+            if (player == null) return null;
+            return player.location();
+        }
     }
 
     /**
-     * Returns the parent associated with this node.
+     * Returns true if the node is still in the tree.
      *
-     * @return the parent associated with this node.
+     * @return true if the node has not been evicted.
      */
-    public TreeNode getParent() {
-        return parent;
+    public boolean isLive() {
+        return arena.isLive(index, generation);
     }
 
     /**
-     * Sets the new parent of this node.
+     * Returns the index of this node in its NodeArena.
      *
-     * @param parent the new parent of this node.
+     * @return the index of this node.
      */
-    public void setParent(TreeNode parent) {
-        this.parent = parent;
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Returns the parent associated with this node.
+     *
+     * @return the parent associated with this node, or null if it has none.
+     */
+    public TreeNode getParent() {
+        synchronized (arena) {
+            if (!isLive()) return null;
+            return arena.view(arena.getParent(index));
+        }
     }
 
     /**
      * Returns the current state associated with this node.
      *
-     * @return the current state associated with this node.
+     * @return the current state associated with this node, or null if it
+     * has not been made.
      */
     public List<GamePlayer> getState() {
-        return currentState;
+        synchronized (arena) {
+            if (!isLive()) return null;
+            return arena.getState(index);
+        }
     }
 
     /**
@@ -92,51 +103,53 @@ public class TreeNode {
      * @return the current player associated with this node.
      */
     public Colour getPlayer() {
-        return currentPlayer;
+        synchronized (arena) {
+            if (!isLive()) return null;
+            return arena.getPlayer(index);
+        }
     }
 
     /**
      * Returns the round associated with this node.
      *
-     * @return the round associated with this node.
+     * @return the round associated with this node, or -1 if it has been evicted.
      */
     public int getRound() {
-        return round;
-    }
-
-    /**
-     * Adds a child to this node.
-     *
-     * @param child the child to be added to this node.
-     */
-    public void addChild(TreeNode child) {
-        children.add(child);
+        synchronized (arena) {
+            if (!isLive()) return -1;
+            return arena.getRound(index);
+        }
     }
 
     /**
-     * Returns the children associated with this node.
+     * Returns the children of this node that have been searched. Children
+     * are only made when the search reaches them.
      *
-     * @return the children associated with this node.
+     * @return the children of this node that have been searched.
      */
     public List<TreeNode> getChildren() {
+        List<TreeNode> children = new ArrayList<TreeNode>();
+        synchronized (arena) {
+            if (!isLive()) return children;
+            int first = arena.getFirstChild(index);
+            int count = arena.getChildCount(index);
+            for (int i = 0; i < count; i++) {
+                if (arena.getState(first + i) != null) children.add(arena.view(first + i));
+            }
+        }
         return children;
     }
 
-    /**
-     * Removes all of the children associated with this node.
-     */
-    public void removeChildren() {
-        children = new ArrayList<TreeNode>();
-    }
-
     /**
      * Returns the score associated with this node.
      *
-     * @return the score associated with this node.
+     * @return the score associated with this node, or NaN if it has not been scored.
      */
     public double getScore() {
-        if (score == null) score = score();
-        return score;
+        synchronized (arena) {
+            if (!isLive()) return Double.NaN;
+            return arena.getScore(index);
+        }
     }
 
     /**
@@ -145,16 +158,10 @@ public class TreeNode {
      * @return the Move associated with this node.
      */
     public Move getMove() {
-        return move;
-    }
-
-    /**
-     * Sets the best child for this node.
-     *
-     * @param bestChild the best child for this node.
-     */
-    public void setBestChild(TreeNode bestChild) {
-        this.bestChild = bestChild;
+        synchronized (arena) {
+            if (!isLive()) return null;
+            return arena.getMove(index);
+        }
     }
 
     /**
@@ -163,82 +170,22 @@ public class TreeNode {
      * @return the best child associated with this node.
      */
     public TreeNode getBestChild() {
-        return bestChild;
-    }
-
-    // Returns the value of the given Ticket.
-    // @param t the Ticket whose value is to be returned.
-    // @param count the number of Tickets the player has.
-    // @return the value of the given Ticket.
-    private Double ticketValue(Ticket t, Integer count) {
-        if (t.equals(Ticket.Taxi)) return 1.0 * count;
-        if (t.equals(Ticket.Bus)) return 2.0 * count;
-        if (t.equals(Ticket.Underground)) return 4.0 * count;
-        if (t.equals(Ticket.Secret)) return 20.0 * count;
-        if (t.equals(Ticket.Double)) return 30.0 * count;
-        return 0.0;
-
-    }
-
-    // Returns the value of a players Tickets.
-    // @param tickets the Map of Tickets the player has.
-    // @return the value of a players Tickets.
-    private Double playerTicketValue(Map<Ticket, Integer> tickets) {
-        Double value = 0.0;
-        for (Map.Entry<Ticket, Integer> entry : tickets.entrySet()) {
-            value += ticketValue(entry.getKey(), entry.getValue());
+        synchronized (arena) {
+            if (!isLive()) return null;
+            return arena.view(arena.getBestChild(index));
         }
-        return value;
     }
 
-    // Returns the score for this node.
-    // @return the score for this node.
-    private double score() {
-        GamePlayer mrX = currentState.get(0);
-        int mrXLocation = mrX.location();
-        if (mrXLocation <= 0) mrXLocation = 1;
-        double mrXPageRank = gameTree.pageRank.getPageRank(mrXLocation);
-        double mrXTicketValue = playerTicketValue(mrX.tickets());
-        int closestDistance = Integer.MAX_VALUE;
-        double detPageRank = 0.0;
-        double detDistance = 0.0;
-        double detTicketValue = 0.0;
-
-        for (int i = 1; i < currentState.size(); i++) {
-            GamePlayer player = currentState.get(i);
-            Map<Ticket, Integer> detTickets = player.tickets();
-            int detectiveLocation = player.location();
-            detPageRank += gameTree.pageRank.getPageRank(detectiveLocation);
-            int detectiveDistance = gameTree.dijkstra.getRoute(detectiveLocation, mrXLocation, convertDetTickets(detTickets)).size();
-            if (detectiveDistance < closestDistance) closestDistance = detectiveDistance;
-            detDistance += (double) detectiveDistance;
-            detTicketValue += playerTicketValue(detTickets);
-        }
-        detPageRank /= (double) (currentState.size() - 1);
-        detDistance /= (double) (currentState.size() - 1);
-
-        double ticketRatio = mrXTicketValue / detTicketValue;
-        double pageRankRatio = mrXPageRank / detPageRank;
-
-        double score = (10 * Math.pow(detDistance, 0.5));
-        score += ((ticketRatio - 1) * kTicketInfluence) * score;
-        score += ((pageRankRatio - 1) * kPageRankInfluence) * score;
-
-        if ((closestDistance < 3) && (move instanceof MoveTicket) && (((MoveTicket)move).ticket.equals(Ticket.Secret))) score += 4;//Need to adjust if we change things
-        if ((closestDistance < 3) && (move instanceof MoveDouble)) score += 4;//Need to adjust if we change things
-        return score;
+    @Override
+    public boolean equals(Object object) {
+        if (!(object instanceof TreeNode)) return false;
+        TreeNode node = (TreeNode) object;
+        return node.arena == arena && node.index == index && node.generation == generation;
     }
 
-    // Returns a converted Map of the Tickets for a player.
-    // @param tickets the Map of Tickets for a player.
-    // @return a converted Map of the Tickets for a player.
-    private Map<Route, Integer> convertDetTickets(Map<Ticket, Integer> tickets) {
-        Map<Route, Integer> routeMap = new HashMap<Route, Integer>();
-        routeMap.put(Route.Taxi, tickets.get(Ticket.Taxi));
-        routeMap.put(Route.Bus, tickets.get(Ticket.Bus));
-        routeMap.put(Route.Underground, tickets.get(Ticket.Underground));
-        routeMap.put(Route.Boat, tickets.get(Ticket.Secret));
-        return routeMap;
+    @Override
+    public int hashCode() {
+        return (System.identityHashCode(arena) * 31 + index) * 31 + generation;
     }
 
 }
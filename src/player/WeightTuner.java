@@ -0,0 +1,244 @@
+package player;
+
+import scotlandyard.*;
+import client.algorithms.*;
+import client.model.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * A class to tune the Weights TreeNode scores states with, by playing
+ * games between GameTrees with different Weights on many threads:
+ * <pre>
+ *   java player.WeightTuner resources/weights.properties [iterations] [games] [threads] [depth] [detectives]
+ * </pre>
+ * It uses simultaneous perturbation stochastic approximation (SPSA): each
+ * iteration nudges every weight up or down at random, and plays the nudged
+ * Weights against the opposite nudge from the same starting locations on
+ * both sides. All weights are moved towards whichever side did better.
+ * Tuning starts from the Weights named by the scotlandyard.weights
+ * property, so a run can be carried on from its last file, and the file is
+ * written after every iteration.
+ */
+
+public class WeightTuner {
+
+    private static final String kGraphFilename = "resources/graph.txt";
+
+    private static final double kStep = 0.05;
+    private static final double kPerturbation = 0.3;
+    private static final double kStepDecay = 0.602;
+    private static final double kPerturbationDecay = 0.101;
+
+    private final Graph<Integer, Route> graph;
+    private final PageRank pageRank;
+    private final Dijkstra dijkstra;
+    private final int depth;
+    private final int detectives;
+    private final int lastRound;
+
+    /**
+     * Constructs a new WeightTuner object.
+     *
+     * @param depth the depth the players search to.
+     * @param detectives the number of detectives in each game.
+     * @throws IOException if the Graph cannot be read.
+     */
+    public WeightTuner(int depth, int detectives) throws IOException {
+        this.graph = new ScotlandYardGraphReader().readGraph(kGraphFilename);
+        this.pageRank = new PageRank(graph);
+        this.pageRank.iterate(100);
+        this.dijkstra = new Dijkstra(kGraphFilename);
+        this.depth = depth;
+        this.detectives = detectives;
+        this.lastRound = ModelHelper.getRounds().size() - 1;
+        ModelHelper.internMoves(graph);
+    }
+
+    /**
+     * Tunes the weights.
+     *
+     * @param args the output file, and optionally the number of iterations,
+     * the number of starting locations played each iteration, the number of
+     * threads, the search depth and the number of detectives.
+     */
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Usage: WeightTuner outputFile [iterations] [games] [threads] [depth] [detectives]");
+            System.exit(1);
+        }
+        int iterations = 100;
+        if (args.length > 1) iterations = Integer.parseInt(args[1]);
+        int games = 8;
+        if (args.length > 2) games = Integer.parseInt(args[2]);
+        int threads = Runtime.getRuntime().availableProcessors();
+        if (args.length > 3) threads = Integer.parseInt(args[3]);
+        int depth = 2;
+        if (args.length > 4) depth = Integer.parseInt(args[4]);
+        int detectives = 5;
+        if (args.length > 5) detectives = Integer.parseInt(args[5]);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            WeightTuner tuner = new WeightTuner(depth, detectives);
+            tuner.tune(Weights.getDefault(), iterations, games, new File(args[0]), executor);
+        } catch (Exception e) {
+            System.err.println("Error tuning the weights :" + e);
+            e.printStackTrace();
+            System.exit(1);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Tunes Weights with SPSA, writing them to a file after every iteration.
+     * The weights are tuned as multiples of their starting values, so they
+     * keep their signs and large and small weights move at the same rate.
+     *
+     * @param start the Weights to start from.
+     * @param iterations the number of iterations.
+     * @param games the number of starting locations played each iteration.
+     * @param output the file to write the Weights to.
+     * @param executor the ExecutorService to play the games on.
+     * @return the tuned Weights.
+     * @throws IOException if the Weights cannot be written.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     * @throws ExecutionException if a game fails.
+     */
+    public Weights tune(Weights start, int iterations, int games, File output, ExecutorService executor)
+            throws IOException, InterruptedException, ExecutionException {
+        double[] initial = start.toArray();
+        double[] x = new double[initial.length];
+        Random random = new Random(1);
+        Weights weights = start;
+        for (int k = 0; k < iterations; k++) {
+            long time = System.currentTimeMillis();
+            double step = kStep / Math.pow(k + 1 + iterations / 10.0, kStepDecay);
+            double perturbation = kPerturbation / Math.pow(k + 1, kPerturbationDecay);
+            double[] delta = new double[x.length];
+            double[] plus = new double[x.length];
+            double[] minus = new double[x.length];
+            for (int i = 0; i < x.length; i++) {
+                delta[i] = random.nextBoolean() ? 1.0 : -1.0;
+                plus[i] = initial[i] * Math.exp(x[i] + perturbation * delta[i]);
+                minus[i] = initial[i] * Math.exp(x[i] - perturbation * delta[i]);
+            }
+            double difference = match(new Weights(plus), new Weights(minus), (long) k * games, games, executor);
+            for (int i = 0; i < x.length; i++) x[i] += step * difference / (2 * perturbation * delta[i]);
+
+            double[] values = new double[x.length];
+            for (int i = 0; i < x.length; i++) values[i] = initial[i] * Math.exp(x[i]);
+            weights = new Weights(values);
+            weights.save(output, "Tuned by WeightTuner: " + (k + 1) + " iterations of " + games + " games at depth " + depth);
+            System.out.println(String.format("Iteration %d: %+.3f in %dms %s",
+                                             k + 1, difference, System.currentTimeMillis() - time, describe(weights)));
+        }
+        return weights;
+    }
+
+    /**
+     * Plays two Weights against each other from the same starting locations
+     * on both sides.
+     *
+     * @param first the first Weights.
+     * @param second the second Weights.
+     * @param seed the seed of the first starting locations.
+     * @param games the number of starting locations.
+     * @param executor the ExecutorService to play the games on.
+     * @return how much better the first Weights did, between -1 and 1.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     * @throws ExecutionException if a game fails.
+     */
+    public double match(Weights first, Weights second, long seed, int games, ExecutorService executor)
+            throws InterruptedException, ExecutionException {
+        List<Future<Double>> asMrX = new ArrayList<Future<Double>>();
+        List<Future<Double>> asDetectives = new ArrayList<Future<Double>>();
+        for (int i = 0; i < games; i++) {
+            final long gameSeed = seed + i;
+            asMrX.add(executor.submit(() -> play(first, second, gameSeed)));
+            asDetectives.add(executor.submit(() -> play(second, first, gameSeed)));
+        }
+        double difference = 0.0;
+        for (int i = 0; i < games; i++) difference += asMrX.get(i).get() - asDetectives.get(i).get();
+        return difference / games;
+    }
+
+    /**
+     * Plays a game without a UI.
+     *
+     * @param mrX the Weights Mr X plays with.
+     * @param detectives the Weights the detectives play with.
+     * @param seed the seed that decides the starting locations.
+     * @return 1 if Mr X wins, otherwise the share of the game he survived.
+     */
+    public double play(Weights mrX, Weights detectives, long seed) {
+        Random random = new Random(seed);
+        int mrXLocation = OpeningBookGenerator.kAppMrXStart[random.nextInt(OpeningBookGenerator.kAppMrXStart.length)];
+        List<Integer> starts = new ArrayList<Integer>();
+        for (int location : OpeningBookGenerator.kAppDetectiveStart) starts.add(location);
+        Collections.shuffle(starts, random);
+        int[] locations = new int[this.detectives];
+        for (int i = 0; i < locations.length; i++) locations[i] = starts.get(i);
+        List<GamePlayer> state = OpeningBookGenerator.state(false, mrXLocation, locations);
+
+        List<Boolean> rounds = ModelHelper.getRounds();
+        int round = 0;
+        int index = 0;
+        int seen = 0;
+        while (true) {
+            GamePlayer player = state.get(index);
+            Colour colour = player.colour();
+            if (ModelHelper.isGameOver(state, colour, graph, round)) {
+                if (ModelHelper.getWinningPlayers(state, colour, graph, round).contains(Colour.Black)) return 1.0;
+                return Math.min(round, lastRound) / (double) lastRound;
+            }
+            List<GamePlayer> view = cloneList(state);
+            if (!colour.equals(Colour.Black)) view.get(0).setLocation(seen);
+            GameTree tree = new GameTree(graph, pageRank, dijkstra, colour.equals(Colour.Black) ? mrX : detectives,
+                                         round, colour, view, null, null);
+            Move move = tree.search(depth);
+            Set<Move> moves = ModelHelper.validMoves(player, state, graph, false);
+            if (move == null || !moves.contains(move)) move = moves.iterator().next();
+
+            if (move instanceof MoveTicket) {
+                MoveTicket moveTicket = (MoveTicket) move;
+                player.setLocation(moveTicket.target);
+                player.removeTicket(moveTicket.ticket);
+                if (colour.equals(Colour.Black)) {
+                    round++;
+                    if (round < rounds.size() && rounds.get(round)) seen = moveTicket.target;
+                } else {
+                    state.get(0).addTicket(moveTicket.ticket);
+                }
+            } else {
+                round++;
+            }
+            index = (index + 1) % state.size();
+        }
+    }
+
+    // Returns a List of GamePlayers that is an identical copy of the List passed in.
+    // @param players the List of GamePlayers to clone.
+    // @return a List of GamePlayers that is an identical copy of the List passed in.
+    private static List<GamePlayer> cloneList(List<GamePlayer> players) {
+        List<GamePlayer> newPlayers = new ArrayList<GamePlayer>();
+        for (GamePlayer player : players) newPlayers.add(new GamePlayer(player));
+        return newPlayers;
+    }
+
+    // Returns the Weights as a String of name=value pairs.
+    // @param weights the Weights.
+    // @return the Weights as a String.
+    private static String describe(Weights weights) {
+        StringBuilder builder = new StringBuilder();
+        double[] values = weights.toArray();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) builder.append(' ');
+            builder.append(weights.getName(i)).append('=').append(String.format("%.3f", values[i]));
+        }
+        return builder.toString();
+    }
+
+}
@@ -0,0 +1,218 @@
+package player;
+
+import scotlandyard.*;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * A class to hold the weights TreeNode uses to score a game state, so they
+ * can be tuned by WeightTuner and loaded from a file instead of being fixed.
+ * A weights file has one name=value line for each weight, and weights it
+ * leaves out keep their default values.
+ */
+
+public class Weights {
+
+    public static final String kDefaultFile = "resources/weights.properties";
+
+    private static final String[] kNames = {"ticketInfluence", "pageRankInfluence",
+                                            "taxi", "bus", "underground", "secret", "double",
+                                            "secretBonus", "doubleBonus",
+                                            "distanceScale", "distanceExponent"};
+    private static final double[] kDefaults = {0.5, 0.1,
+                                               1.0, 2.0, 4.0, 20.0, 30.0,
+                                               4.0, 4.0,
+                                               10.0, 0.5};
+
+    private static final int kTicketInfluence = 0;
+    private static final int kPageRankInfluence = 1;
+    private static final int kTaxi = 2;
+    private static final int kBus = 3;
+    private static final int kUnderground = 4;
+    private static final int kSecret = 5;
+    private static final int kDouble = 6;
+    private static final int kSecretBonus = 7;
+    private static final int kDoubleBonus = 8;
+    private static final int kDistanceScale = 9;
+    private static final int kDistanceExponent = 10;
+
+    private static Weights defaultWeights = null;
+
+    private final double[] values;
+
+    /**
+     * Constructs a new Weights object with the default weights.
+     */
+    public Weights() {
+        this(kDefaults);
+    }
+
+    /**
+     * Constructs a new Weights object.
+     *
+     * @param values the weights, in the order of getName.
+     */
+    public Weights(double[] values) {
+        if (values.length != kNames.length) throw new IllegalArgumentException("Expected " + kNames.length + " weights");
+        this.values = values.clone();
+    }
+
+    /**
+     * Reads the weights from a file.
+     *
+     * @param file the file containing the weights.
+     * @return the Weights.
+     * @throws IOException if the file cannot be read or a weight is not a number.
+     */
+    public static Weights load(File file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = new BufferedReader(new FileReader(file))) {
+            properties.load(reader);
+        }
+        double[] values = kDefaults.clone();
+        for (int i = 0; i < kNames.length; i++) {
+            String value = properties.getProperty(kNames[i]);
+            if (value == null) continue;
+            try {
+                values[i] = Double.parseDouble(value.trim());
+            } catch (NumberFormatException e) {
+                throw new IOException("Weight " + kNames[i] + " is not a number: " + value);
+            }
+        }
+        return new Weights(values);
+    }
+
+    /**
+     * Returns the weights in the file named by the scotlandyard.weights
+     * property, or resources/weights.properties if it is not set.
+     *
+     * @return the Weights, or the default weights if there is no file.
+     */
+    public static synchronized Weights getDefault() {
+        if (defaultWeights != null) return defaultWeights;
+        defaultWeights = new Weights();
+        File file = new File(System.getProperty("scotlandyard.weights", kDefaultFile));
+        if (!file.exists()) return defaultWeights;
+        try {
+            defaultWeights = load(file);
+        } catch (IOException e) {
+            System.err.println("Error loading the AI weights :" + e);
+        }
+        return defaultWeights;
+    }
+
+    /**
+     * Writes the weights to a file.
+     *
+     * @param file the file to write the weights to.
+     * @param comment the comment to write at the top of the file.
+     * @throws IOException if the file cannot be written.
+     */
+    public void save(File file, String comment) throws IOException {
+        try (PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(file)))) {
+            if (comment != null) writer.println("# " + comment);
+            for (int i = 0; i < kNames.length; i++) writer.println(kNames[i] + "=" + values[i]);
+        }
+    }
+
+    /**
+     * Returns the number of weights.
+     *
+     * @return the number of weights.
+     */
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * Returns the name of a weight.
+     *
+     * @param index the index of the weight.
+     * @return the name of the weight.
+     */
+    public String getName(int index) {
+        return kNames[index];
+    }
+
+    /**
+     * Returns the weights, in the order of getName.
+     *
+     * @return the weights.
+     */
+    public double[] toArray() {
+        return values.clone();
+    }
+
+    /**
+     * Returns how much the ratio of Mr X's Tickets to the detectives' affects the score.
+     *
+     * @return how much the ratio of Tickets affects the score.
+     */
+    public double getTicketInfluence() {
+        return values[kTicketInfluence];
+    }
+
+    /**
+     * Returns how much the ratio of Mr X's PageRank to the detectives' affects the score.
+     *
+     * @return how much the ratio of PageRanks affects the score.
+     */
+    public double getPageRankInfluence() {
+        return values[kPageRankInfluence];
+    }
+
+    /**
+     * Returns the value of one of a Ticket.
+     *
+     * @param ticket the Ticket.
+     * @return the value of one of the Ticket.
+     */
+    public double getTicketValue(Ticket ticket) {
+        switch (ticket) {
+            case Taxi: return values[kTaxi];
+            case Bus: return values[kBus];
+            case Underground: return values[kUnderground];
+            case Secret: return values[kSecret];
+            case Double: return values[kDouble];
+            default: return 0.0;
+        }
+    }
+
+    /**
+     * Returns the score added for a secret Move close to a detective.
+     *
+     * @return the score added for a secret Move close to a detective.
+     */
+    public double getSecretBonus() {
+        return values[kSecretBonus];
+    }
+
+    /**
+     * Returns the score added for a double Move close to a detective.
+     *
+     * @return the score added for a double Move close to a detective.
+     */
+    public double getDoubleBonus() {
+        return values[kDoubleBonus];
+    }
+
+    /**
+     * Returns the multiplier of the detectives' distance from Mr X.
+     *
+     * @return the multiplier of the detectives' distance from Mr X.
+     */
+    public double getDistanceScale() {
+        return values[kDistanceScale];
+    }
+
+    /**
+     * Returns the power the detectives' distance from Mr X is raised to.
+     *
+     * @return the power the detectives' distance from Mr X is raised to.
+     */
+    public double getDistanceExponent() {
+        return values[kDistanceExponent];
+    }
+
+}